@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.benchmarks;
+
+import com.daniel.simplesql.data.ConnectionPoolManager;
+import com.daniel.simplesql.model.ConnectionProperties;
+import com.daniel.simplesql.model.FetchMode;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * This class sets up an in-memory H2 database in MySQL compatibility mode for
+ * the benchmarks. The connection properties give the complete H2 URL, because
+ * the URL the application builds from host, port and database carries MySQL
+ * driver parameters that H2 rejects. They also select cursor fetching: H2
+ * accepts a positive fetch size, but not the fetch size of the MySQL
+ * streaming mode that single SELECT statements otherwise use.
+ *
+ * @author Bryan Daniel
+ */
+public final class BenchmarkDatabase {
+
+    /**
+     * The name of the table holding the benchmark rows
+     */
+    public static final String TABLE_NAME = "bench";
+
+    /**
+     * Private constructor - not called
+     */
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * This method returns connection properties for a private in-memory
+     * database with the given name.
+     *
+     * @param name the database name
+     * @return the connection properties
+     */
+    public static ConnectionProperties createProperties(String name) {
+        ConnectionProperties properties = new ConnectionProperties("jdbc:h2:mem:", "localhost",
+                name, "3306", "sa", "sa");
+        properties.setProperty(ConnectionProperties.JDBC_URL,
+                "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.setProperty(ConnectionProperties.FETCH_MODE, FetchMode.CURSOR.name());
+        return properties;
+    }
+
+    /**
+     * This method creates the benchmark table with the given number of rows
+     * of mixed column types.
+     *
+     * @param properties the connection properties
+     * @param rowCount the number of rows
+     * @throws SQLException if the table cannot be created
+     */
+    public static void createTable(ConnectionProperties properties, int rowCount)
+            throws SQLException {
+        Connection connection = ConnectionPoolManager.getInstance().getPool(properties)
+                .borrowConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE_NAME);
+            statement.execute("CREATE TABLE " + TABLE_NAME + " (id INT PRIMARY KEY,"
+                    + " name VARCHAR(40), amount DECIMAL(12,2), ratio DOUBLE, created TIMESTAMP,"
+                    + " flag BOOLEAN, note VARCHAR(200))");
+            statement.execute("INSERT INTO " + TABLE_NAME + " SELECT X, 'name-' || X,"
+                    + " X * 1.25, X / 7.0, DATEADD(SECOND, X, TIMESTAMP '2017-01-01 00:00:00'), MOD(X, 2) = 0,"
+                    + " CASE WHEN MOD(X, 10) = 0 THEN NULL ELSE REPEAT('n', MOD(X, 50)) END"
+                    + " FROM SYSTEM_RANGE(1, " + rowCount + ")");
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * This method closes the pool of the database.
+     *
+     * @param properties the connection properties
+     */
+    public static void close(ConnectionProperties properties) {
+        ConnectionPoolManager.getInstance().closePool(properties);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.benchmarks;
+
+import com.daniel.simplesql.util.TableUtil;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JTable;
+import javax.swing.table.AbstractTableModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures sizing the columns of a result table at various
+ * row and column counts.
+ *
+ * @author Bryan Daniel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ColumnWidthBenchmark {
+
+    /**
+     * The number of rows in the table
+     */
+    @Param({"1000", "100000", "1000000"})
+    public int rowCount;
+
+    /**
+     * The number of columns in the table
+     */
+    @Param({"5", "50"})
+    public int columnCount;
+
+    /**
+     * The table being sized
+     */
+    private JTable table;
+
+    /**
+     * This method creates the table over a model that generates its values.
+     */
+    @Setup
+    public void setUp() {
+        table = new JTable(new AbstractTableModel() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public int getRowCount() {
+                return rowCount;
+            }
+
+            @Override
+            public int getColumnCount() {
+                return columnCount;
+            }
+
+            @Override
+            public Object getValueAt(int rowIndex, int columnIndex) {
+                // values of varying width so every row could be the widest
+                return "value-" + (rowIndex * 31 + columnIndex) % 100003;
+            }
+        });
+    }
+
+    /**
+     * This method sizes the columns of the table.
+     *
+     * @return the table, so the work is not optimized away
+     */
+    @Benchmark
+    public JTable adjustTableColumnWidths() {
+        TableUtil.adjustTableColumnWidths(table);
+        return table;
+    }
+}
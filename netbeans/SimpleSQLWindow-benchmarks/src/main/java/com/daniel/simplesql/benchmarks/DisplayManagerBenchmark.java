@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.benchmarks;
+
+import com.daniel.simplesql.ui.DisplayManager;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * This benchmark measures DisplayManager when one thread and when several
+ * threads display results through the same instance. The output is
+ * discarded, so only the cost of the manager and its stream is measured.
+ *
+ * @author Bryan Daniel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DisplayManagerBenchmark {
+
+    /**
+     * The manager shared by the benchmark threads
+     */
+    private DisplayManager displayManager;
+
+    /**
+     * The result rows displayed per operation
+     */
+    private final List<String> resultRows = Arrays.asList("1 | first | 10.00",
+            "2 | second | 20.00", "3 | third | 30.00", "4 | fourth | 40.00");
+
+    /**
+     * This method creates the manager over a stream that discards its output.
+     *
+     * @param blackhole the sink consuming the output
+     */
+    @Setup
+    public void setUp(final Blackhole blackhole) {
+        displayManager = new DisplayManager(new OutputStream() {
+            @Override
+            public void write(int b) {
+                blackhole.consume(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                blackhole.consume(b);
+            }
+        });
+    }
+
+    /**
+     * This method displays a line from a single thread.
+     */
+    @Benchmark
+    @Threads(1)
+    public void displayLineUncontended() {
+        displayManager.displayResultLine("Total records updated: 1");
+    }
+
+    /**
+     * This method displays a line from four threads at once.
+     */
+    @Benchmark
+    @Threads(4)
+    public void displayLineContended() {
+        displayManager.displayResultLine("Total records updated: 1");
+    }
+
+    /**
+     * This method displays a result set from four threads at once.
+     */
+    @Benchmark
+    @Threads(4)
+    public void displayResultSetContended() {
+        displayManager.displayResultSet(resultRows);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.benchmarks;
+
+import com.daniel.simplesql.ui.GuiOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures the throughput of writing console output through
+ * GuiOutputStream into a text area, including the appends made on the event
+ * dispatch thread, which are waited for at the end of each iteration.
+ *
+ * @author Bryan Daniel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GuiOutputStreamBenchmark {
+
+    /**
+     * The number of lines written per operation
+     */
+    private static final int LINES_PER_OPERATION = 100;
+
+    /**
+     * The text area receiving the output
+     */
+    private JTextArea textArea;
+
+    /**
+     * The stream under test
+     */
+    private GuiOutputStream outputStream;
+
+    /**
+     * The bytes of the lines written per operation
+     */
+    private byte[] lines;
+
+    /**
+     * This method creates the text area, the stream and the lines.
+     */
+    @Setup
+    public void setUp() {
+        textArea = new JTextArea();
+        outputStream = new GuiOutputStream(textArea);
+        StringBuilder text = new StringBuilder();
+        for (int line = 0; line < LINES_PER_OPERATION; line++) {
+            text.append("row ").append(line).append(" | name-").append(line)
+                    .append(" | 1234.50 | 2017-01-01 00:00:00\n");
+        }
+        lines = text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * This method waits for the text area to catch up and clears it, so the
+     * next iteration does not measure a growing document.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     * @throws InvocationTargetException if clearing the text area fails
+     */
+    @TearDown(Level.Iteration)
+    public void drain() throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                textArea.setText("");
+            }
+        });
+    }
+
+    /**
+     * This method writes a block of lines in one call.
+     *
+     * @throws IOException if the stream fails
+     */
+    @Benchmark
+    public void writeBlock() throws IOException {
+        outputStream.write(lines, 0, lines.length);
+    }
+
+    /**
+     * This method writes the same lines one byte at a time.
+     *
+     * @throws IOException if the stream fails
+     */
+    @Benchmark
+    public void writeBytes() throws IOException {
+        for (byte b : lines) {
+            outputStream.write(b);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.benchmarks;
+
+import com.daniel.simplesql.data.AnyQueryDataAccess;
+import com.daniel.simplesql.data.ConnectionPoolManager;
+import com.daniel.simplesql.model.ColumnarTableModel;
+import com.daniel.simplesql.model.ConnectionProperties;
+import com.daniel.simplesql.model.QueryOptions;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures reading query results into memory: a whole run
+ * through AnyQueryDataAccess, which includes borrowing a pooled connection,
+ * and the columnar model filling from an open result set on its own. The
+ * largest row count is above AnyQueryDataAccess.LAZY_ROW_THRESHOLD, so its
+ * runs measure the large result path: the first rows are read once and the
+ * open result is handed to a cursor, which stores them in a spilling model.
+ *
+ * @author Bryan Daniel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultMaterializationBenchmark {
+
+    /**
+     * The number of rows of the table, where the largest count makes a whole
+     * run hand its result to a cursor
+     */
+    @Param({"1000", "10000", "100000"})
+    public int rowCount;
+
+    /**
+     * The connection properties of the benchmark database
+     */
+    private ConnectionProperties properties;
+
+    /**
+     * The options of the runs
+     */
+    private final QueryOptions options = new QueryOptions();
+
+    /**
+     * The query reading the rows
+     */
+    private String query;
+
+    /**
+     * This method creates the benchmark table.
+     *
+     * @throws SQLException if the table cannot be created
+     */
+    @Setup
+    public void setUp() throws SQLException {
+        properties = BenchmarkDatabase.createProperties("materialize" + rowCount);
+        BenchmarkDatabase.createTable(properties, rowCount);
+        query = "SELECT * FROM " + BenchmarkDatabase.TABLE_NAME;
+    }
+
+    /**
+     * This method closes the benchmark database.
+     */
+    @TearDown
+    public void tearDown() {
+        BenchmarkDatabase.close(properties);
+    }
+
+    /**
+     * This method runs the query through the data access class. A result
+     * browsed through a cursor is closed so its connection is released.
+     *
+     * @return the results, so the work is not optimized away
+     * @throws IOException if a cursor cannot be closed
+     */
+    @Benchmark
+    public List<Object> executeStatement() throws IOException {
+        List<Object> results = new AnyQueryDataAccess().executeStatement(query, properties, options);
+        for (Object result : results) {
+            if (result instanceof Closeable) {
+                ((Closeable) result).close();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * This method fills a columnar model from every row of the result set.
+     *
+     * @return the model, so the work is not optimized away
+     * @throws SQLException if the rows cannot be read
+     */
+    @Benchmark
+    public ColumnarTableModel appendRows() throws SQLException {
+        Connection connection = ConnectionPoolManager.getInstance().getPool(properties)
+                .borrowConnection();
+        try (Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(query)) {
+            ColumnarTableModel model = new ColumnarTableModel(resultSet.getMetaData());
+            while (resultSet.next()) {
+                model.appendRow(resultSet);
+            }
+            model.trimToSize();
+            return model;
+        } finally {
+            connection.close();
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.daniel.simplesql;
 
+import com.daniel.simplesql.logic.HeadlessRunner;
 import com.daniel.simplesql.ui.ConnectionSetupWindow;
 import com.daniel.simplesql.ui.WindowAssembler;
 import com.daniel.simplesql.ui.WindowAssemblyManufacturer;
@@ -29,12 +30,25 @@ public class Main {
 
     /**
      * The main method kicks off the program by opening the connection setup
-     * window.
+     * window, or runs a script without a user interface when the arguments
+     * select headless mode.
      *
-     * @param args no arguments required
+     * @param args no arguments required; see HeadlessRunner for headless mode
      */
     public static void main(String[] args) {
-        
+
+        if (HeadlessRunner.isHeadless(args)) {
+            System.setProperty("java.awt.headless", "true");
+            System.exit(new HeadlessRunner().run(args));
+        }
+        openSetupWindow();
+    }
+
+    /**
+     * This method opens the connection setup window on the event dispatch
+     * thread.
+     */
+    private static void openSetupWindow() {
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
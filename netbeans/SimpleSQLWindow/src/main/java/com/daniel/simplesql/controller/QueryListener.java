@@ -15,20 +15,67 @@
  */
 package com.daniel.simplesql.controller;
 
+import com.daniel.simplesql.data.ConnectionPoolManager;
+import com.daniel.simplesql.data.ExportFormat;
+import com.daniel.simplesql.data.QueryHistory;
+import com.daniel.simplesql.data.QuerySession;
+import com.daniel.simplesql.data.ResultCache;
+import com.daniel.simplesql.logic.BackgroundExecutor;
+import com.daniel.simplesql.logic.ExportWorker;
 import com.daniel.simplesql.logic.QueryWorker;
 import com.daniel.simplesql.model.ConnectionProperties;
+import com.daniel.simplesql.model.FetchMode;
+import com.daniel.simplesql.model.QueryOptions;
 import com.daniel.simplesql.ui.ConnectionSetupWindow;
+import com.daniel.simplesql.ui.DisplayManager;
+import com.daniel.simplesql.ui.ExportProgressDialog;
+import com.daniel.simplesql.ui.QueryHistoryDialog;
+import static com.daniel.simplesql.ui.QueryWindow.BATCH_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.BEGIN_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.CANCEL_QUERY_COMMAND;
 import static com.daniel.simplesql.ui.QueryWindow.CHANGE_CONNECTION_COMMAND;
 import static com.daniel.simplesql.ui.QueryWindow.CLEAR_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.COMMIT_COMMAND;
 import static com.daniel.simplesql.ui.QueryWindow.EXIT_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.EXPORT_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.HISTORY_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.PARALLEL_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.RESULT_CACHE_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.ROLLBACK_COMMAND;
 import static com.daniel.simplesql.ui.QueryWindow.RUN_QUERY_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.RUN_SCRIPT_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.SESSION_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.SESSION_MENU_TITLE;
+import static com.daniel.simplesql.ui.QueryWindow.SET_FETCH_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.SET_MEMORY_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.SET_TIMEOUT_COMMAND;
 import com.daniel.simplesql.ui.WindowAssembler;
 import com.daniel.simplesql.ui.WindowAssemblyManufacturer;
+import com.daniel.simplesql.util.TableUtil;
+import java.awt.GridLayout;
+import java.awt.Window;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.AbstractButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
 import javax.swing.JTabbedPane;
 import javax.swing.JTextArea;
+import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
+import javax.swing.filechooser.FileFilter;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
 /**
  * This ActinListener handles the events of the QueryWindow object.
@@ -37,6 +84,11 @@ import javax.swing.SwingUtilities;
  */
 public class QueryListener implements ActionListener {
 
+    /**
+     * The choice in the fetch dialog for using the mode of the connection
+     */
+    private static final String CONNECTION_DEFAULT = "Connection default";
+
     /**
      * The input area for queries
      */
@@ -52,19 +104,42 @@ public class QueryListener implements ActionListener {
      */
     private final JTabbedPane tabbedPane;
 
+    /**
+     * The display echoing the messages of query runs
+     */
+    private final DisplayManager displayManager;
+
+    /**
+     * The options applied to queries run from the window
+     */
+    private final QueryOptions options = new QueryOptions();
+
+    /**
+     * The worker for the most recent query run
+     */
+    private QueryWorker currentWorker;
+
+    /**
+     * The persistent session whose connection runs the window's queries, or
+     * null if each run borrows a pooled connection
+     */
+    private QuerySession session;
+
     /**
      * This constructor sets the values for the text area, the connection
-     * properties, and the tabbed pane.
+     * properties, the tabbed pane, and the display.
      *
      * @param queryTextArea the text area for query input
      * @param properties the database connection properties
      * @param tabbedPane the tabbed pane
+     * @param displayManager the display echoing the messages of query runs
      */
     public QueryListener(JTextArea queryTextArea, ConnectionProperties properties,
-            JTabbedPane tabbedPane) {
+            JTabbedPane tabbedPane, DisplayManager displayManager) {
         this.queryTextArea = queryTextArea;
         this.properties = properties;
         this.tabbedPane = tabbedPane;
+        this.displayManager = displayManager;
     }
 
     /**
@@ -80,27 +155,447 @@ public class QueryListener implements ActionListener {
 
         switch (command) {
             case EXIT_COMMAND:
+                if (!confirmEndSession()) {
+                    break;
+                }
+                saveUnrunQuery();
                 System.exit(0);
                 break;
             case CHANGE_CONNECTION_COMMAND:
+                if (!confirmEndSession()) {
+                    break;
+                }
+                saveUnrunQuery();
+                if (currentWorker != null && !currentWorker.isDone()) {
+                    currentWorker.discardResults();
+                }
+                closeSession();
                 WindowAssemblyManufacturer factory = WindowAssemblyManufacturer.getInstance();
                 WindowAssembler assembler = factory.employWindowAssemblerForConnectionSetup();
                 ConnectionSetupWindow setupWindow = (ConnectionSetupWindow) assembler.assembleWindow();
                 setupWindow.setLocationRelativeTo(null);
                 setupWindow.setVisible(true);
+                TableUtil.clearResultTabs(tabbedPane);
                 SwingUtilities.windowForComponent(queryTextArea).dispose();
+                ConnectionPoolManager.getInstance().closePool(properties);
                 break;
             case CLEAR_COMMAND:
-                tabbedPane.removeAll();
+                TableUtil.clearResultTabs(tabbedPane);
                 tabbedPane.repaint();
                 break;
             case RUN_QUERY_COMMAND:
-                new QueryWorker(queryTextArea.getText(), properties, tabbedPane)
-                        .execute();
+                startWorker(new QueryWorker(queryTextArea.getText(), properties,
+                        options, tabbedPane));
+                break;
+            case RUN_SCRIPT_COMMAND:
+                runScriptFile();
+                break;
+            case HISTORY_COMMAND:
+                new QueryHistoryDialog(SwingUtilities.windowForComponent(queryTextArea),
+                        queryTextArea).setVisible(true);
+                break;
+            case CANCEL_QUERY_COMMAND:
+                if (currentWorker != null && !currentWorker.isDone()) {
+                    currentWorker.cancelQuery();
+                }
+                break;
+            case SET_TIMEOUT_COMMAND:
+                String timeout = JOptionPane.showInputDialog(
+                        SwingUtilities.windowForComponent(queryTextArea),
+                        "Query timeout in seconds (0 for no limit):", options.getQueryTimeout());
+                if (timeout != null) {
+                    try {
+                        options.setQueryTimeout(Integer.parseInt(timeout.trim()));
+                    } catch (NumberFormatException ex) {
+                        JOptionPane.showMessageDialog(SwingUtilities.windowForComponent(queryTextArea),
+                                "The timeout must be a whole number of seconds.");
+                    }
+                }
+                break;
+            case EXPORT_COMMAND:
+                exportResults();
+                break;
+            case SET_FETCH_COMMAND:
+                showFetchOptions();
+                break;
+            case RESULT_CACHE_COMMAND:
+                showResultCacheOptions();
+                break;
+            case BATCH_COMMAND:
+                showBatchOptions();
+                break;
+            case PARALLEL_COMMAND:
+                showParallelOptions();
+                break;
+            case SESSION_COMMAND:
+                toggleSession((AbstractButton) e.getSource());
+                break;
+            case BEGIN_COMMAND:
+            case COMMIT_COMMAND:
+            case ROLLBACK_COMMAND:
+                runTransactionCommand(command);
+                break;
+            case SET_MEMORY_COMMAND:
+                String limit = JOptionPane.showInputDialog(
+                        SwingUtilities.windowForComponent(queryTextArea),
+                        "Heap memory per run in MB before rows spill to disk (0 for a quarter of the heap):",
+                        options.getResultMemoryLimit());
+                if (limit != null) {
+                    try {
+                        options.setResultMemoryLimit(Integer.parseInt(limit.trim()));
+                    } catch (NumberFormatException ex) {
+                        JOptionPane.showMessageDialog(SwingUtilities.windowForComponent(queryTextArea),
+                                "The memory limit must be a whole number of megabytes.");
+                    }
+                }
                 break;
             default:
                 break;
         }
     }
 
+    /**
+     * This method stops the worker currently running, clears the results and
+     * starts the given worker.
+     *
+     * @param worker the worker to start
+     */
+    private void startWorker(QueryWorker worker) {
+        if (currentWorker != null && !currentWorker.isDone()) {
+            currentWorker.discardResults();
+        }
+        TableUtil.clearResultTabs(tabbedPane);
+        currentWorker = worker;
+        currentWorker.setDisplayManager(displayManager);
+        currentWorker.setSession(session);
+        BackgroundExecutor.getInstance().execute(currentWorker);
+    }
+
+    /**
+     * This method starts or ends the persistent session as the session menu
+     * item is checked or unchecked. Ending a session with an open transaction
+     * is confirmed first, and the item is checked again if it is declined.
+     *
+     * @param sessionItem the session menu item
+     */
+    private void toggleSession(AbstractButton sessionItem) {
+        if (sessionItem.isSelected()) {
+            if (session == null) {
+                session = new QuerySession(properties);
+                displayManager.displayResultLine("Persistent session started. Temporary tables,"
+                        + " variables and transactions now carry over between runs.");
+            }
+        } else if (confirmEndSession()) {
+            closeSession();
+            displayManager.displayResultLine("Persistent session ended.");
+        } else {
+            sessionItem.setSelected(true);
+        }
+    }
+
+    /**
+     * This method begins, commits or rolls back a transaction on the
+     * persistent session. The session waits for a running query before
+     * acting, so the command runs on a background thread and reports its
+     * outcome on the display.
+     *
+     * @param command the transaction command
+     */
+    private void runTransactionCommand(final String command) {
+
+        if (session == null) {
+            JOptionPane.showMessageDialog(SwingUtilities.windowForComponent(queryTextArea),
+                    "Transactions need a persistent session. Check " + SESSION_COMMAND
+                    + " in the " + SESSION_MENU_TITLE + " menu first.");
+            return;
+        }
+        final QuerySession commandSession = session;
+        BackgroundExecutor.getInstance().submit(new Runnable() {
+            @Override
+            public void run() {
+                String message;
+                try {
+                    switch (command) {
+                        case BEGIN_COMMAND:
+                            commandSession.begin();
+                            message = "Transaction begun.";
+                            break;
+                        case COMMIT_COMMAND:
+                            commandSession.commit();
+                            // results cached before the commit may no longer be current
+                            ResultCache.getInstance().invalidate(properties);
+                            message = "Transaction committed.";
+                            break;
+                        default:
+                            commandSession.rollback();
+                            message = "Transaction rolled back.";
+                            break;
+                    }
+                } catch (SQLException ex) {
+                    Logger.getLogger(QueryListener.class.getName()).log(Level.INFO,
+                            "Exception occurred running the transaction command " + command + ".", ex);
+                    message = ex.getMessage();
+                }
+                displayManager.displayResultLine(message);
+            }
+        });
+    }
+
+    /**
+     * This method asks whether to go on when ending the session would roll
+     * back an open transaction.
+     *
+     * @return true if there is no open transaction or the user agrees
+     */
+    private boolean confirmEndSession() {
+        return session == null || !session.isInTransaction()
+                || JOptionPane.showConfirmDialog(SwingUtilities.windowForComponent(queryTextArea),
+                        "A transaction is open and will be rolled back. Continue?", SESSION_MENU_TITLE,
+                        JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION;
+    }
+
+    /**
+     * This method closes the persistent session, if any, on a background
+     * thread, since closing waits for a running query to finish.
+     */
+    private void closeSession() {
+        final QuerySession closingSession = session;
+        session = null;
+        if (closingSession != null) {
+            BackgroundExecutor.getInstance().submit(new Runnable() {
+                @Override
+                public void run() {
+                    closingSession.close();
+                }
+            });
+        }
+    }
+
+    /**
+     * This method records the text of the input area in the query history
+     * before the window closes, so that a query typed but not run is not
+     * lost.
+     */
+    private void saveUnrunQuery() {
+        QueryHistory.getInstance().recordUnrun(queryTextArea.getText(),
+                properties.getProperty(ConnectionProperties.DATABASE_NAME));
+    }
+
+    /**
+     * This method shows a dialog for choosing a SQL script file and runs the
+     * statements of the file one at a time.
+     */
+    private void runScriptFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Run Script File");
+        chooser.setFileFilter(new FileNameExtensionFilter("SQL scripts (*.sql)", "sql"));
+        if (chooser.showOpenDialog(SwingUtilities.windowForComponent(queryTextArea))
+                != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        startWorker(new QueryWorker(chooser.getSelectedFile().toPath(), properties,
+                options, tabbedPane));
+    }
+
+    /**
+     * This method asks for a file and format and exports the result of the
+     * query in the input area to it, showing the progress in a dialog.
+     */
+    private void exportResults() {
+
+        Window window = SwingUtilities.windowForComponent(queryTextArea);
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export Query Results");
+        chooser.setAcceptAllFileFilterUsed(false);
+        Map<FileFilter, ExportFormat> formats = new HashMap<>();
+        for (ExportFormat format : ExportFormat.values()) {
+            FileFilter filter = new FileNameExtensionFilter(format + " (*." + format.getExtension()
+                    + ")", format.getExtension(), "gz");
+            formats.put(filter, format);
+            chooser.addChoosableFileFilter(filter);
+        }
+        chooser.setFileFilter(chooser.getChoosableFileFilters()[0]);
+        JCheckBox gzipBox = new JCheckBox("Compress with gzip");
+        chooser.setAccessory(gzipBox);
+        if (chooser.showSaveDialog(window) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        ExportFormat format = formats.get(chooser.getFileFilter());
+        boolean gzip = gzipBox.isSelected();
+        String fileName = chooser.getSelectedFile().getName();
+        String extension = "." + format.getExtension() + (gzip ? ".gz" : "");
+        if (!fileName.toLowerCase().endsWith(extension)) {
+            fileName += extension;
+        }
+        Path file = chooser.getSelectedFile().toPath().resolveSibling(fileName);
+        if (Files.exists(file) && JOptionPane.showConfirmDialog(window,
+                fileName + " already exists. Replace it?", "Export Query Results",
+                JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        ExportProgressDialog progressDialog = new ExportProgressDialog(window, fileName);
+        final ExportWorker exportWorker = new ExportWorker(queryTextArea.getText(), properties,
+                options, file, format, gzip, progressDialog);
+        progressDialog.setCancelListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                exportWorker.cancelExport();
+            }
+        });
+        progressDialog.setVisible(true);
+        BackgroundExecutor.getInstance().execute(exportWorker);
+    }
+
+    /**
+     * This method shows the result cache statistics with a dialog for
+     * enabling the cache for later runs and setting its time to live and
+     * size, and stores the choice in the query options.
+     */
+    private void showResultCacheOptions() {
+
+        ResultCache resultCache = ResultCache.getInstance();
+        JCheckBox enabledBox = new JCheckBox("Answer repeated SELECT statements from the cache",
+                options.isResultCacheEnabled());
+        JTextField ttlField = new JTextField(String.valueOf(options.getResultCacheTtl()), 8);
+        JTextField sizeField = new JTextField(String.valueOf(
+                resultCache.getMaxBytes() / (1024 * 1024)), 8);
+        JCheckBox clearBox = new JCheckBox("Clear the cache");
+
+        JPanel settingsPanel = new JPanel(new GridLayout(2, 2, 5, 5));
+        settingsPanel.add(new JLabel("Time to live in seconds:"));
+        settingsPanel.add(ttlField);
+        settingsPanel.add(new JLabel("Cache size in MB:"));
+        settingsPanel.add(sizeField);
+        JTextArea statistics = new JTextArea(resultCache.getStatistics());
+        statistics.setEditable(false);
+        statistics.setOpaque(false);
+        Object[] message = {statistics, enabledBox, settingsPanel, clearBox};
+
+        int choice = JOptionPane.showConfirmDialog(SwingUtilities.windowForComponent(queryTextArea),
+                message, "Result Cache", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
+            return;
+        }
+        try {
+            int ttl = Integer.parseInt(ttlField.getText().trim());
+            long size = Long.parseLong(sizeField.getText().trim());
+            options.setResultCacheTtl(ttl);
+            resultCache.setMaxBytes(size * 1024 * 1024);
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(SwingUtilities.windowForComponent(queryTextArea),
+                    "The time to live and cache size must be whole numbers.");
+            return;
+        }
+        options.setResultCacheEnabled(enabledBox.isSelected());
+        if (clearBox.isSelected()) {
+            resultCache.clear();
+        }
+    }
+
+    /**
+     * This method shows a dialog for turning parallel execution on or off and
+     * setting the number of statements run at the same time, and stores the
+     * choice in the query options.
+     */
+    private void showParallelOptions() {
+
+        JCheckBox parallelBox = new JCheckBox("Run independent SELECT statements in parallel",
+                options.isParallelMode());
+        JTextField parallelismField = new JTextField(String.valueOf(options.getParallelism()), 8);
+        JPanel settingsPanel = new JPanel(new GridLayout(1, 2, 5, 5));
+        settingsPanel.add(new JLabel("Statements at a time:"));
+        settingsPanel.add(parallelismField);
+        Object[] message = {parallelBox, settingsPanel};
+
+        int choice = JOptionPane.showConfirmDialog(SwingUtilities.windowForComponent(queryTextArea),
+                message, "Parallel Execution", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
+            return;
+        }
+        try {
+            options.setParallelism(Integer.parseInt(parallelismField.getText().trim()));
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(SwingUtilities.windowForComponent(queryTextArea),
+                    "The number of statements must be a whole number.");
+            return;
+        }
+        options.setParallelMode(parallelBox.isSelected());
+    }
+
+    /**
+     * This method shows a dialog for turning batch execution on or off and
+     * setting its batch size and commit interval, and stores the choice in
+     * the query options.
+     */
+    private void showBatchOptions() {
+
+        JCheckBox batchBox = new JCheckBox("Run scripts in batches", options.isBatchMode());
+        JTextField sizeField = new JTextField(String.valueOf(options.getBatchSize()), 8);
+        JTextField commitField = new JTextField(String.valueOf(options.getCommitInterval()), 8);
+        JPanel settingsPanel = new JPanel(new GridLayout(2, 2, 5, 5));
+        settingsPanel.add(new JLabel("Statements per batch:"));
+        settingsPanel.add(sizeField);
+        settingsPanel.add(new JLabel("Commit every N rows (0 for autocommit):"));
+        settingsPanel.add(commitField);
+        Object[] message = {batchBox, settingsPanel};
+
+        int choice = JOptionPane.showConfirmDialog(SwingUtilities.windowForComponent(queryTextArea),
+                message, "Batch Execution", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
+            return;
+        }
+        try {
+            int batchSize = Integer.parseInt(sizeField.getText().trim());
+            int commitInterval = Integer.parseInt(commitField.getText().trim());
+            options.setBatchSize(batchSize);
+            options.setCommitInterval(commitInterval);
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(SwingUtilities.windowForComponent(queryTextArea),
+                    "The batch size and commit interval must be whole numbers.");
+            return;
+        }
+        options.setBatchMode(batchBox.isSelected());
+    }
+
+    /**
+     * This method shows a dialog for choosing the fetch mode and fetch size of
+     * later runs and stores the choice in the query options.
+     */
+    private void showFetchOptions() {
+
+        JComboBox<Object> modeBox = new JComboBox<>();
+        modeBox.addItem(CONNECTION_DEFAULT);
+        for (FetchMode mode : FetchMode.values()) {
+            modeBox.addItem(mode);
+        }
+        modeBox.setSelectedItem(options.getFetchMode() == null
+                ? CONNECTION_DEFAULT : options.getFetchMode());
+        JTextField sizeField = new JTextField(options.getFetchSize() == 0
+                ? "" : String.valueOf(options.getFetchSize()), 8);
+
+        JPanel fetchPanel = new JPanel(new GridLayout(2, 2, 5, 5));
+        fetchPanel.add(new JLabel("Fetch mode:"));
+        fetchPanel.add(modeBox);
+        fetchPanel.add(new JLabel("Cursor fetch size:"));
+        fetchPanel.add(sizeField);
+
+        int choice = JOptionPane.showConfirmDialog(SwingUtilities.windowForComponent(queryTextArea),
+                fetchPanel, "Row Fetching", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
+            return;
+        }
+        try {
+            String size = sizeField.getText().trim();
+            options.setFetchSize(size.isEmpty() ? 0 : Integer.parseInt(size));
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(SwingUtilities.windowForComponent(queryTextArea),
+                    "The fetch size must be a whole number of rows.");
+            return;
+        }
+        Object mode = modeBox.getSelectedItem();
+        options.setFetchMode(mode instanceof FetchMode ? (FetchMode) mode : null);
+    }
+
 }
@@ -15,6 +15,7 @@
  */
 package com.daniel.simplesql.controller;
 
+import com.daniel.simplesql.logic.BackgroundExecutor;
 import com.daniel.simplesql.logic.TestQueryRunner;
 import com.daniel.simplesql.logic.ConnectionTestWorker;
 import com.daniel.simplesql.model.ConnectionProperties;
@@ -24,11 +25,10 @@ import static com.daniel.simplesql.ui.ConnectionSetupWindow.TEST_COMMAND;
 import com.daniel.simplesql.ui.QueryWindow;
 import com.daniel.simplesql.ui.WindowAssembler;
 import com.daniel.simplesql.ui.WindowAssemblyManufacturer;
+import com.daniel.simplesql.util.DatabaseUtil;
+import java.awt.Component;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -37,6 +37,7 @@ import javax.swing.JLabel;
 import javax.swing.JPasswordField;
 import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 /**
  * This ActinListener handles the events of the ConnectionSetupWindow object.
@@ -45,6 +46,12 @@ import javax.swing.SwingUtilities;
  */
 public class SetupListener implements ActionListener {
 
+    /**
+     * The time in milliseconds allowed for checking the connection once it is
+     * open, added to the connect timeout to give up on an attempt
+     */
+    private static final int CHECK_ALLOWANCE = 5000;
+
     /**
      * The combo box holding the driver selection
      */
@@ -75,6 +82,22 @@ public class SetupListener implements ActionListener {
      */
     private final JLabel resultLabel;
 
+    /**
+     * The number identifying the current connection attempt, which is only
+     * read and changed on the event dispatch thread
+     */
+    private int connectAttempt;
+
+    /**
+     * The running connection attempt, or null if none is running
+     */
+    private Future<?> pendingConnect;
+
+    /**
+     * The timer that gives up on the running connection attempt
+     */
+    private Timer connectTimer;
+
     /**
      * This constructor sets all the values of the instance variables.
      *
@@ -130,7 +153,8 @@ public class SetupListener implements ActionListener {
                 try {
                     properties = new ConnectionProperties(driverString, host, databaseName,
                             port, username, password);
-                    new ConnectionTestWorker(properties, resultLabel).execute();
+                    BackgroundExecutor.getInstance().execute(
+                            new ConnectionTestWorker(properties, resultLabel));
                 } catch (NullPointerException | IllegalArgumentException ex1) {
                     resultLabel.setText("You must provide all connection information!");
                     resultLabel.repaint();
@@ -148,27 +172,9 @@ public class SetupListener implements ActionListener {
                 try {
                     properties = new ConnectionProperties(driverString,
                             host, databaseName, port, username, password);
-                    ExecutorService executor = Executors.newFixedThreadPool(1);
-                    Future<Boolean> future
-                            = executor.submit(new TestQueryRunner(properties));
-                    if (future.get()) {
-                        resultLabel.setText("Connection good.");
-                        resultLabel.repaint();
-                        WindowAssemblyManufacturer factory = WindowAssemblyManufacturer.getInstance();
-                        WindowAssembler assembler = factory.employWindowAssemblerForQueries(properties);
-                        QueryWindow queryWindow = (QueryWindow) assembler.assembleWindow();
-                        queryWindow.setLocationRelativeTo(null);
-                        queryWindow.setAlwaysOnTop(true);
-                        queryWindow.setVisible(true);
-                        SwingUtilities.windowForComponent(resultLabel).dispose();
-                    } else {
-                        resultLabel.setText("Connection failed!");
-                        resultLabel.repaint();
-                    }
-                } catch (InterruptedException | ExecutionException ex2) {
-                    Logger.getLogger(SetupListener.class.getName()).log(Level.SEVERE, null, ex2);
-                } catch (NullPointerException | IllegalArgumentException ex3) {
-                    Logger.getLogger(SetupListener.class.getName()).log(Level.SEVERE, null, ex3);
+                    connect(properties, (Component) e.getSource());
+                } catch (NullPointerException | IllegalArgumentException ex) {
+                    Logger.getLogger(SetupListener.class.getName()).log(Level.SEVERE, null, ex);
                     resultLabel.setText("You must provide all connection information!");
                     resultLabel.repaint();
                 }
@@ -181,4 +187,99 @@ public class SetupListener implements ActionListener {
         }
     }
 
+    /**
+     * This method starts a connection attempt on a background thread and
+     * returns at once. The attempt borrows a connection from the pool for the
+     * properties, which opens or checks it; the validated connection is returned
+     * to the pool, where the query window's first query finds it, so
+     * connecting costs a single handshake. The outcome is handled on the event
+     * dispatch thread, and an attempt that outlasts the connect timeout is
+     * abandoned.
+     *
+     * @param properties the connection properties
+     * @param connectButton the button that started the attempt
+     */
+    private void connect(final ConnectionProperties properties, final Component connectButton) {
+
+        if (pendingConnect != null) {
+            return;
+        }
+        final int attempt = ++connectAttempt;
+        connectButton.setEnabled(false);
+        resultLabel.setText("Connecting...");
+        resultLabel.repaint();
+
+        pendingConnect = BackgroundExecutor.getInstance().submit(new Runnable() {
+            @Override
+            public void run() {
+                boolean connected = false;
+                try {
+                    connected = new TestQueryRunner(properties).call();
+                } catch (Exception ex) {
+                    Logger.getLogger(SetupListener.class.getName()).log(Level.INFO,
+                            "The connection attempt failed.", ex);
+                }
+                final boolean succeeded = connected;
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        connectFinished(attempt, succeeded, properties, connectButton);
+                    }
+                });
+            }
+        });
+
+        int timeout = 1000 * DatabaseUtil.getConnectTimeout(properties) + CHECK_ALLOWANCE;
+        connectTimer = new Timer(timeout, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (attempt == connectAttempt && pendingConnect != null) {
+                    // a result arriving after this is for an abandoned attempt
+                    connectAttempt++;
+                    pendingConnect.cancel(true);
+                    pendingConnect = null;
+                    connectButton.setEnabled(true);
+                    resultLabel.setText("Connection timed out!");
+                    resultLabel.repaint();
+                }
+            }
+        });
+        connectTimer.setRepeats(false);
+        connectTimer.start();
+    }
+
+    /**
+     * This method handles the outcome of a connection attempt, opening the
+     * query window if the connection is good. Outcomes of abandoned attempts
+     * are ignored. This is executed on the event dispatch thread.
+     *
+     * @param attempt the number of the attempt
+     * @param succeeded indicates the test query passed
+     * @param properties the connection properties
+     * @param connectButton the button that started the attempt
+     */
+    private void connectFinished(int attempt, boolean succeeded, ConnectionProperties properties,
+            Component connectButton) {
+
+        if (attempt != connectAttempt) {
+            return;
+        }
+        connectTimer.stop();
+        pendingConnect = null;
+        if (succeeded) {
+            resultLabel.setText("Connection good.");
+            resultLabel.repaint();
+            WindowAssemblyManufacturer factory = WindowAssemblyManufacturer.getInstance();
+            WindowAssembler assembler = factory.employWindowAssemblerForQueries(properties);
+            QueryWindow queryWindow = (QueryWindow) assembler.assembleWindow();
+            queryWindow.setLocationRelativeTo(null);
+            queryWindow.setAlwaysOnTop(true);
+            queryWindow.setVisible(true);
+            SwingUtilities.windowForComponent(resultLabel).dispose();
+        } else {
+            connectButton.setEnabled(true);
+            resultLabel.setText("Connection failed!");
+            resultLabel.repaint();
+        }
+    }
 }
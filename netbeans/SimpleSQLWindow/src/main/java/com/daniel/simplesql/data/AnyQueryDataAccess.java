@@ -15,19 +15,41 @@
  */
 package com.daniel.simplesql.data;
 
+import com.daniel.simplesql.model.ColumnarTableModel;
 import com.daniel.simplesql.model.ConnectionProperties;
+import com.daniel.simplesql.model.FetchMode;
+import com.daniel.simplesql.model.QueryOptions;
+import com.daniel.simplesql.monitor.FlightEvents;
+import com.daniel.simplesql.monitor.QueryMetrics;
+import com.daniel.simplesql.monitor.QueryTimings;
 import com.daniel.simplesql.util.DatabaseUtil;
+import com.daniel.simplesql.util.SqlUtil;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Vector;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
 
 /**
  * This data-access class provides the functionality for taking any statement
@@ -37,6 +59,101 @@ import javax.swing.table.DefaultTableModel;
  */
 public class AnyQueryDataAccess {
 
+    /**
+     * The number of rows of a single SELECT statement read into memory before
+     * the result is browsed through a CursorTableModel instead
+     */
+    public static final int LAZY_ROW_THRESHOLD = 10000;
+
+    /**
+     * The number of rows in the first block delivered for a result
+     */
+    public static final int FIRST_BLOCK_ROWS = 100;
+
+    /**
+     * The largest number of rows delivered in one block
+     */
+    public static final int MAX_BLOCK_ROWS = 5000;
+
+    /**
+     * The message reported when a run is cancelled
+     */
+    public static final String CANCELLED_MESSAGE = "Query cancelled.";
+
+    /**
+     * The statement currently executing, kept so it can be cancelled
+     */
+    private volatile Statement runningStatement;
+
+    /**
+     * Indicates cancellation of the current run has been requested
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Indicates a statement of the current run has failed
+     */
+    private volatile boolean failed;
+
+    /**
+     * The runs of the statements executing in parallel, kept so they can be
+     * cancelled
+     */
+    private final List<AnyQueryDataAccess> parallelRuns = new CopyOnWriteArrayList<>();
+
+    /**
+     * The session whose connection runs the statements, or null to borrow
+     * pooled connections
+     */
+    private volatile QuerySession session;
+
+    /**
+     * The executor running the statements of a parallel run, or null to
+     * create a pool for each parallel run
+     */
+    private volatile Executor statementExecutor;
+
+    /**
+     * The memory budget shared by the results of the run, or null to give
+     * each lazily browsed result a budget of its own
+     */
+    private volatile ResultMemoryBudget resultBudget;
+
+    /**
+     * This method sets the session whose connection runs the statements, so
+     * that session state carries over between runs. Statements of a session
+     * run are never run in parallel, answered from the result cache or
+     * browsed lazily, since each of those would use other connections.
+     *
+     * @param session the session, or null to borrow pooled connections
+     */
+    public void setSession(QuerySession session) {
+        this.session = session;
+    }
+
+    /**
+     * This method sets the executor running the statements of a parallel run.
+     * No more statements than the parallelism of the query options run at
+     * once, whatever the number of threads the executor offers.
+     *
+     * @param statementExecutor the executor, or null to create a pool for
+     * each parallel run
+     */
+    public void setStatementExecutor(Executor statementExecutor) {
+        this.statementExecutor = statementExecutor;
+    }
+
+    /**
+     * This method sets the memory budget shared by the results of the run, so
+     * that the rows of lazily browsed results count against the same limit
+     * as the rest of the run.
+     *
+     * @param resultBudget the budget, or null for a budget per result
+     */
+    public void setResultBudget(ResultMemoryBudget resultBudget) {
+        this.resultBudget = resultBudget;
+    }
+
     /**
      * This method uses the input string and the connection properties to access
      * a database and retrieve results for the query or queries in the string.
@@ -46,68 +163,751 @@ public class AnyQueryDataAccess {
      * @return the list of results
      */
     public ArrayList<Object> executeStatement(String queryString, ConnectionProperties properties) {
+        return executeStatement(queryString, properties, new QueryOptions());
+    }
+
+    /**
+     * This method uses the input string and the connection properties to access
+     * a database and retrieve results for the query or queries in the string,
+     * applying the given query options.
+     *
+     * @param queryString the query string
+     * @param properties the database connection properties
+     * @param options the query options
+     * @return the list of results
+     */
+    public ArrayList<Object> executeStatement(String queryString, ConnectionProperties properties,
+            QueryOptions options) {
+        ResultCollector collector = new ResultCollector();
+        executeStatement(queryString, properties, options, collector);
+        return collector.getResults();
+    }
+
+    /**
+     * This method uses the input string and the connection properties to access
+     * a database and retrieve results for the query or queries in the string,
+     * delivering each result to the handler in blocks of rows as it is read.
+     *
+     * @param queryString the query string
+     * @param properties the database connection properties
+     * @param options the query options
+     * @param handler the handler receiving the results
+     */
+    public void executeStatement(String queryString, ConnectionProperties properties,
+            QueryOptions options, ResultHandler handler) {
+
+        failed = false;
+        QuerySession runSession = session;
+        if (options.isParallelMode() && runSession == null) {
+            List<String> statements = SqlUtil.splitStatements(queryString);
+            if (statements.size() > 1 && areIndependent(statements)) {
+                executeParallel(statements, properties, options, handler);
+                return;
+            }
+        }
+
+        long startTime = System.nanoTime();
+        QueryMetrics metrics = QueryMetrics.getInstance();
+        // a single large SELECT is browsed lazily, so only enough is read to detect it
+        boolean lazyCandidate = runSession == null && SqlUtil.isSingleSelect(queryString);
+        ResultCache resultCache = ResultCache.getInstance();
+        boolean cacheable = lazyCandidate && options.isResultCacheEnabled()
+                && SqlUtil.isCacheable(queryString);
+        if (cacheable) {
+            ColumnarTableModel cached = resultCache.get(properties, queryString,
+                    options.getResultCacheTtl() * 1000L);
+            if (cached != null) {
+                Object resultEvent = FlightEvents.beginResult();
+                QueryTimings timings = new QueryTimings(0, 0);
+                timings.setCached(true);
+                timings.addRows(cached.getRowCount(), cached.estimateMemoryUsage());
+                handler.resultStarted(cached.createEmptyCopy());
+                handler.rowsRead(cached);
+                metrics.recordResult(timings);
+                FlightEvents.commitResult(resultEvent, queryString, timings);
+                handler.resultTimed(timings);
+                handler.resultFinished();
+                metrics.recordQuery(System.nanoTime() - startTime, false);
+                return;
+            }
+        }
 
         Connection connection = null;
         Statement query = null;
         ResultSet resultSet = null;
-        ArrayList<Object> allResults = new ArrayList<>();
-
-        StringBuilder connectionString = new StringBuilder();
-        connectionString.append(properties.getProperty(ConnectionProperties.DRIVER_STRING));
-        connectionString.append(properties.getProperty(ConnectionProperties.HOST));
-        connectionString.append(":");
-        connectionString.append(properties.getProperty(ConnectionProperties.PORT));
-        connectionString.append("/");
-        connectionString.append(properties.getProperty(ConnectionProperties.DATABASE_NAME));
-        connectionString.append("?allowMultiQueries=true");
+
         try {
-            connection = DriverManager.getConnection(connectionString.toString(),
-                    properties.getProperty(ConnectionProperties.USERNAME),
-                    properties.getProperty(ConnectionProperties.PASSWORD));
-            query = connection.createStatement();
+            connection = borrowConnection(runSession, properties);
+            long connectNanos = System.nanoTime() - startTime;
+            metrics.recordConnect(connectNanos);
+            if (options.isBatchMode()) {
+                executeBatch(connection, SqlUtil.splitStatements(queryString).iterator(),
+                        options, handler);
+                return;
+            }
+            QueryOptions statementOptions = options;
+            if (lazyCandidate && options.getFetchMode() == null
+                    && properties.getFetchMode() == FetchMode.BUFFERED) {
+                // a buffered result would be read whole before the first row
+                statementOptions = new QueryOptions(options);
+                statementOptions.setFetchMode(FetchMode.STREAMING);
+            }
+            query = DatabaseUtil.createStatement(connection, queryString, properties,
+                    statementOptions);
+            query.setQueryTimeout(options.getQueryTimeout());
+            runningStatement = query;
+            if (cancelled) {
+                handler.message(CANCELLED_MESSAGE);
+                return;
+            }
 
             // true indicates the first result is a result set
-            boolean moreResults = query.execute(queryString);
+            Object resultEvent = FlightEvents.beginResult();
+            long executeStart = System.nanoTime();
+            boolean moreResults = query instanceof PreparedStatement
+                    ? ((PreparedStatement) query).execute() : query.execute(queryString);
             int updateCount = query.getUpdateCount();
+            long executeNanos = System.nanoTime() - executeStart;
+            boolean handedOver = false;
             while (updateCount != -1 || moreResults) {
 
                 if (moreResults) {
+                    QueryTimings timings = new QueryTimings(connectNanos, executeNanos);
+                    connectNanos = 0;
                     resultSet = query.getResultSet();
-                    ResultSetMetaData metaData = resultSet.getMetaData();
-
-                    // names of columns
-                    Vector<String> columnNames = new Vector<>();
-                    int columnCount = metaData.getColumnCount();
-                    for (int column = 1; column <= columnCount; column++) {
-                        columnNames.add(metaData.getColumnName(column));
-                    }
-                    
-                    // data of the table
-                    Vector<Vector<Object>> data = new Vector<>();
-                    while (resultSet.next()) {
-                        Vector<Object> vector = new Vector<Object>();
-                        for (int columnIndex = 1; columnIndex <= columnCount; columnIndex++) {
-                            vector.add(resultSet.getObject(columnIndex));
+                    ColumnarTableModel model = new ColumnarTableModel(resultSet.getMetaData());
+                    handler.resultStarted(model);
+                    // a copy of the first rows is kept for the cache or a cursor
+                    ColumnarTableModel firstRows = lazyCandidate ? model.createEmptyCopy() : null;
+                    int rowCount = readRows(resultSet, model, handler, firstRows, timings,
+                            lazyCandidate ? LAZY_ROW_THRESHOLD + 1 : Integer.MAX_VALUE);
+                    if (lazyCandidate && rowCount > LAZY_ROW_THRESHOLD && !cancelled) {
+                        // the open result continues in the cursor, which owns the connection
+                        ConnectionPoolManager.getInstance().getPool(properties)
+                                .detachConnection(connection);
+                        runningStatement = null;
+                        handedOver = true;
+                        try {
+                            handler.resultReplaced(new CursorTableModel(connection, query,
+                                    resultSet, firstRows, resultBudget != null ? resultBudget
+                                    : new ResultMemoryBudget(options.getResultHeapBudget())));
+                        } catch (IOException ex) {
+                            Logger.getLogger(AnyQueryDataAccess.class.getName()).log(Level.INFO,
+                                    "The result could not be browsed lazily.", ex);
+                            handler.message(String.format("Only the first %,d rows are shown;"
+                                    + " the rest of the result could not be stored: %s",
+                                    rowCount, ex.getMessage()));
                         }
-                        data.add(vector);
+                        resultSet = null;
+                        query = null;
+                        connection = null;
+                    } else if (cacheable && !cancelled) {
+                        firstRows.trimToSize();
+                        resultCache.put(properties, queryString, firstRows);
                     }
-                    allResults.add(new DefaultTableModel(data, columnNames));
+                    metrics.recordResult(timings);
+                    FlightEvents.commitResult(resultEvent, queryString, timings);
+                    handler.resultTimed(timings);
+                    handler.resultFinished();
+                }
+                if (handedOver) {
+                    break;
                 }
                 if (updateCount != -1) {
-                    allResults.add("Total records updated: " + updateCount);
+                    handler.message("Total records updated: " + updateCount);
                 }
+                if (cancelled) {
+                    handler.message(CANCELLED_MESSAGE);
+                    break;
+                }
+                resultEvent = FlightEvents.beginResult();
+                executeStart = System.nanoTime();
                 moreResults = query.getMoreResults();
                 updateCount = query.getUpdateCount();
+                executeNanos = System.nanoTime() - executeStart;
             }
         } catch (SQLException e) {
             Logger.getLogger(AnyQueryDataAccess.class.getName()).log(Level.INFO,
                     "Connection exception occurred during AnyQueryDataAccess.executeStatement.", e);
-            allResults.add(e.getMessage());
+            handler.message(cancelled ? CANCELLED_MESSAGE : e.getMessage());
+            failed = true;
         } finally {
+            runningStatement = null;
             DatabaseUtil.closeResultSet(resultSet);
             DatabaseUtil.closeStatement(query);
             DatabaseUtil.closeConnection(connection);
+            resultCache.invalidate(properties, queryString);
+            metrics.recordQuery(System.nanoTime() - startTime, failed);
+        }
+    }
+
+    /**
+     * This method runs the statements of a script file one at a time on one
+     * connection, reading each statement from the file only when the one
+     * before it has finished. Result sets are delivered to the handler as
+     * usual, while the rows changed are added up and reported once at the end
+     * instead of for every statement. The script stops at the first statement
+     * that fails. In batch mode the statements are run in batches instead.
+     *
+     * @param script the reader of the script
+     * @param properties the database connection properties
+     * @param options the query options
+     * @param handler the handler receiving the results
+     */
+    public void executeScript(SqlScriptReader script, ConnectionProperties properties,
+            QueryOptions options, ResultHandler handler) {
+
+        failed = false;
+        long startTime = System.nanoTime();
+        long rowsChanged = 0;
+        Connection connection = null;
+        Statement query = null;
+        try {
+            connection = borrowConnection(session, properties);
+            QueryMetrics.getInstance().recordConnect(System.nanoTime() - startTime);
+            if (options.isBatchMode()) {
+                executeBatch(connection, script, options, handler);
+                return;
+            }
+            query = DatabaseUtil.createStatement(connection, properties, options);
+            query.setQueryTimeout(options.getQueryTimeout());
+            runningStatement = query;
+            while (!cancelled && script.hasNext()) {
+                rowsChanged += executeScriptStatement(query, script.next(), handler);
+            }
+            double seconds = Math.max(0.001, (System.nanoTime() - startTime) / 1e9);
+            handler.message(String.format("%sScript executed %,d statements, %,d rows changed in"
+                    + " %.1f s (%,.0f statements/s).", cancelled ? CANCELLED_MESSAGE + " " : "",
+                    script.getStatementCount(), rowsChanged, seconds,
+                    script.getStatementCount() / seconds));
+        } catch (SQLException e) {
+            Logger.getLogger(AnyQueryDataAccess.class.getName()).log(Level.INFO,
+                    "Connection exception occurred during AnyQueryDataAccess.executeScript.", e);
+            handler.message(cancelled ? CANCELLED_MESSAGE : String.format("Statement %,d at line"
+                    + " %,d failed: %s %,d rows changed before it.", script.getStatementCount(),
+                    script.getStatementLine(), e.getMessage(), rowsChanged));
+            failed = true;
+        } catch (UncheckedIOException e) {
+            Logger.getLogger(AnyQueryDataAccess.class.getName()).log(Level.INFO,
+                    "Exception occurred reading a script in AnyQueryDataAccess.executeScript.", e);
+            handler.message("The script could not be read: " + e.getCause().getMessage());
+            failed = true;
+        } finally {
+            runningStatement = null;
+            DatabaseUtil.closeStatement(query);
+            DatabaseUtil.closeConnection(connection);
+            QueryMetrics.getInstance().recordQuery(System.nanoTime() - startTime, failed);
+            // the statements are no longer at hand, so any cached result may be stale
+            ResultCache.getInstance().invalidate(properties);
+        }
+    }
+
+    /**
+     * This method borrows the connection for a run from the session, if there
+     * is one, or from the pool.
+     *
+     * @param runSession the session of the run, or null
+     * @param properties the database connection properties
+     * @return the borrowed connection
+     * @throws SQLException if no connection can be obtained
+     */
+    private Connection borrowConnection(QuerySession runSession, ConnectionProperties properties)
+            throws SQLException {
+        if (runSession != null) {
+            return runSession.borrowConnection();
+        }
+        return ConnectionPoolManager.getInstance().getPool(properties).borrowConnection();
+    }
+
+    /**
+     * This method rolls back the transaction of a failed or cancelled batch,
+     * logging a failure to do so rather than letting it hide the original
+     * problem.
+     *
+     * @param connection the connection
+     */
+    private void rollbackQuietly(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException ex) {
+            Logger.getLogger(AnyQueryDataAccess.class.getName()).log(Level.INFO,
+                    "The batch could not be rolled back.", ex);
+        }
+    }
+
+    /**
+     * This method returns a connection to committing every statement after a
+     * batch committed in chunks, so that a session connection is left as it
+     * was found.
+     *
+     * @param connection the connection
+     */
+    private void restoreAutoCommit(Connection connection) {
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException ex) {
+            Logger.getLogger(AnyQueryDataAccess.class.getName()).log(Level.INFO,
+                    "The connection could not be returned to auto-commit.", ex);
+        }
+    }
+
+    /**
+     * This method determines whether every statement can run on a connection
+     * of its own.
+     *
+     * @param statements the statements
+     * @return true if all statements are independent of their session
+     */
+    private boolean areIndependent(List<String> statements) {
+        for (String statement : statements) {
+            if (!SqlUtil.isIndependent(statement)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method runs independent statements concurrently, each on its own
+     * pooled connection, and delivers their results to the handler in script
+     * order. The results of a statement are held until the results of the
+     * statements before it have been delivered.
+     *
+     * @param statements the statements
+     * @param properties the database connection properties
+     * @param options the query options
+     * @param handler the handler receiving the results
+     */
+    private void executeParallel(List<String> statements, final ConnectionProperties properties,
+            QueryOptions options, ResultHandler handler) {
+
+        final QueryOptions statementOptions = new QueryOptions(options);
+        statementOptions.setParallelMode(false);
+        int threadCount = Math.min(options.getParallelism(), statements.size());
+        Executor executor = statementExecutor;
+        ExecutorService ownExecutor = null;
+        if (executor == null) {
+            ownExecutor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+                private final AtomicInteger threadNumber = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "parallel-query-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor = ownExecutor;
+        }
+        // bounds the statements running at once when the executor does not
+        final Semaphore permits = new Semaphore(threadCount);
+
+        List<Future<ArrayList<Object>>> futures = new ArrayList<>();
+        for (final String statement : statements) {
+            final AnyQueryDataAccess run = new AnyQueryDataAccess();
+            run.setResultBudget(resultBudget);
+            parallelRuns.add(run);
+            FutureTask<ArrayList<Object>> future = new FutureTask<>(new Callable<ArrayList<Object>>() {
+                @Override
+                public ArrayList<Object> call() {
+                    permits.acquireUninterruptibly();
+                    try {
+                        if (cancelled) {
+                            return new ArrayList<>();
+                        }
+                        return run.executeStatement(statement, properties, statementOptions);
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+            executor.execute(future);
+            futures.add(future);
+        }
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+        if (cancelled) {
+            // a cancel arriving while the runs were submitted may have missed some of them
+            cancel();
+        }
+
+        try {
+            for (Future<ArrayList<Object>> future : futures) {
+                ArrayList<Object> results;
+                try {
+                    results = future.get();
+                } catch (ExecutionException ex) {
+                    Logger.getLogger(AnyQueryDataAccess.class.getName()).log(Level.INFO,
+                            "Exception occurred during AnyQueryDataAccess.executeParallel.", ex);
+                    handler.message(ex.getCause().toString());
+                    failed = true;
+                    continue;
+                }
+                if (cancelled) {
+                    closeResults(results);
+                } else {
+                    deliverResults(results, handler);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Logger.getLogger(AnyQueryDataAccess.class.getName()).log(Level.INFO,
+                    "Interrupted while waiting for parallel statements.", ex);
+            cancel();
+            Thread.currentThread().interrupt();
+        } finally {
+            for (AnyQueryDataAccess run : parallelRuns) {
+                failed |= run.hasFailed();
+            }
+            parallelRuns.clear();
+        }
+        if (cancelled) {
+            handler.message(CANCELLED_MESSAGE);
+        }
+    }
+
+    /**
+     * This method hands the collected results of one statement to the
+     * handler.
+     *
+     * @param results the results of the statement
+     * @param handler the handler receiving the results
+     */
+    private void deliverResults(List<Object> results, ResultHandler handler) {
+        for (Object result : results) {
+            if (result instanceof ColumnarTableModel) {
+                ColumnarTableModel model = (ColumnarTableModel) result;
+                handler.resultStarted(model.createEmptyCopy());
+                if (model.getRowCount() > 0) {
+                    handler.rowsRead(model);
+                }
+                handler.resultFinished();
+            } else if (result instanceof TableModel) {
+                TableModel model = (TableModel) result;
+                String[] columnNames = new String[model.getColumnCount()];
+                String[] columnClassNames = new String[columnNames.length];
+                for (int column = 0; column < columnNames.length; column++) {
+                    columnNames[column] = model.getColumnName(column);
+                    columnClassNames[column] = Object.class.getName();
+                }
+                handler.resultStarted(new ColumnarTableModel(columnNames, columnClassNames));
+                handler.resultReplaced(model);
+                handler.resultFinished();
+            } else {
+                handler.message(String.valueOf(result));
+            }
+        }
+    }
+
+    /**
+     * This method closes the results of a statement that will not be
+     * delivered, releasing the connection held by a cursor-backed model.
+     *
+     * @param results the results of the statement
+     */
+    private void closeResults(List<Object> results) {
+        for (Object result : results) {
+            if (result instanceof Closeable) {
+                try {
+                    ((Closeable) result).close();
+                } catch (IOException ex) {
+                    Logger.getLogger(AnyQueryDataAccess.class.getName()).log(Level.INFO,
+                            "Exception occurred closing an undelivered result.", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method runs statements in batch mode on the given connection.
+     * Consecutive statements that change data are sent together with
+     * addBatch and executeBatch in chunks of the batch size, and with a
+     * commit interval set, the transaction is committed each time that many
+     * rows have been changed. Statements that read data end the current chunk
+     * and are run on their own so that their results are shown. A summary
+     * with the throughput of the run is reported at the end.
+     *
+     * @param connection the connection
+     * @param statements the statements to run
+     * @param options the query options
+     * @param handler the handler receiving the results
+     * @throws SQLException if the connection cannot be prepared for the batch
+     */
+    private void executeBatch(Connection connection, Iterator<String> statements,
+            QueryOptions options, ResultHandler handler) throws SQLException {
+
+        long startTime = System.nanoTime();
+        // inside an open session transaction the batch is committed with it
+        boolean inTransaction = !connection.getAutoCommit();
+        boolean manualCommit = options.getCommitInterval() > 0 && !inTransaction;
+        String rowsOutcome = inTransaction
+                ? "%,d rows changed (uncommitted, in the open transaction)." : "%,d rows committed.";
+        if (manualCommit) {
+            connection.setAutoCommit(false);
+        }
+        Statement batch = connection.createStatement();
+        batch.setQueryTimeout(options.getQueryTimeout());
+        runningStatement = batch;
+
+        long statementCount = 0;
+        long chunkCount = 0;
+        long rowsChanged = 0;
+        long rowsCommitted = 0;
+        int pending = 0;
+        try {
+            while (!cancelled && statements.hasNext()) {
+                String statement = statements.next();
+                if (SqlUtil.isReadOnly(statement)) {
+                    if (pending > 0) {
+                        rowsChanged += sumUpdateCounts(batch.executeBatch());
+                        chunkCount++;
+                        pending = 0;
+                    }
+                    executeScriptStatement(batch, statement, handler);
+                    statementCount++;
+                    continue;
+                }
+                batch.addBatch(statement);
+                statementCount++;
+                if (++pending == options.getBatchSize()) {
+                    rowsChanged += sumUpdateCounts(batch.executeBatch());
+                    chunkCount++;
+                    pending = 0;
+                    if (manualCommit && rowsChanged - rowsCommitted >= options.getCommitInterval()) {
+                        connection.commit();
+                        rowsCommitted = rowsChanged;
+                    }
+                }
+            }
+            if (pending > 0 && !cancelled) {
+                rowsChanged += sumUpdateCounts(batch.executeBatch());
+                chunkCount++;
+            }
+            if (cancelled) {
+                if (manualCommit) {
+                    rollbackQuietly(connection);
+                }
+                handler.message(CANCELLED_MESSAGE + " " + String.format(rowsOutcome,
+                        manualCommit ? rowsCommitted : rowsChanged));
+                return;
+            }
+            if (manualCommit) {
+                connection.commit();
+            }
+        } catch (SQLException ex) {
+            Logger.getLogger(AnyQueryDataAccess.class.getName()).log(Level.INFO,
+                    "Connection exception occurred during AnyQueryDataAccess.executeBatch.", ex);
+            // the statements of the failed chunk that ran before the failure
+            int chunkRun = 0;
+            long chunkRows = 0;
+            if (ex instanceof BatchUpdateException
+                    && ((BatchUpdateException) ex).getUpdateCounts() != null) {
+                int[] updateCounts = ((BatchUpdateException) ex).getUpdateCounts();
+                while (chunkRun < updateCounts.length
+                        && updateCounts[chunkRun] != Statement.EXECUTE_FAILED) {
+                    chunkRun++;
+                }
+                chunkRows = sumUpdateCounts(updateCounts);
+            }
+            if (manualCommit) {
+                rollbackQuietly(connection);
+            } else {
+                rowsChanged += chunkRows;
+            }
+            failed = true;
+            handler.message(String.format("%s The batch stopped at statement %,d; ",
+                    cancelled ? CANCELLED_MESSAGE : ex.getMessage(),
+                    statementCount - pending + chunkRun + 1)
+                    + String.format(rowsOutcome, manualCommit ? rowsCommitted : rowsChanged));
+            return;
+        } catch (UncheckedIOException ex) {
+            // the rest of a script file could not be read
+            if (manualCommit) {
+                rollbackQuietly(connection);
+            }
+            throw ex;
+        } finally {
+            runningStatement = null;
+            DatabaseUtil.closeStatement(batch);
+            if (manualCommit) {
+                restoreAutoCommit(connection);
+            }
+        }
+
+        double seconds = Math.max(0.001, (System.nanoTime() - startTime) / 1e9);
+        handler.message(String.format("Batch executed %,d statements in %,d chunks, %,d rows"
+                + " changed in %.1f s (%,.0f statements/s, %,.0f rows/s).", statementCount,
+                chunkCount, rowsChanged, seconds, statementCount / seconds, rowsChanged / seconds));
+    }
+
+    /**
+     * This method runs one statement of a script and delivers its result sets
+     * to the handler.
+     *
+     * @param query the statement object to run it with
+     * @param statement the statement text
+     * @param handler the handler receiving the results
+     * @return the number of rows the statement changed
+     * @throws SQLException if the statement fails
+     */
+    private long executeScriptStatement(Statement query, String statement, ResultHandler handler)
+            throws SQLException {
+        long rowsChanged = 0;
+        Object resultEvent = FlightEvents.beginResult();
+        long executeStart = System.nanoTime();
+        boolean moreResults = query.execute(statement);
+        int updateCount = query.getUpdateCount();
+        long executeNanos = System.nanoTime() - executeStart;
+        while ((moreResults || updateCount != -1) && !cancelled) {
+            if (moreResults) {
+                ResultSet resultSet = query.getResultSet();
+                try {
+                    QueryTimings timings = new QueryTimings(0, executeNanos);
+                    ColumnarTableModel model = new ColumnarTableModel(resultSet.getMetaData());
+                    handler.resultStarted(model);
+                    readRows(resultSet, model, handler, null, timings, Integer.MAX_VALUE);
+                    QueryMetrics.getInstance().recordResult(timings);
+                    FlightEvents.commitResult(resultEvent, statement, timings);
+                    handler.resultTimed(timings);
+                    handler.resultFinished();
+                } finally {
+                    DatabaseUtil.closeResultSet(resultSet);
+                }
+            } else {
+                rowsChanged += updateCount;
+            }
+            resultEvent = FlightEvents.beginResult();
+            executeStart = System.nanoTime();
+            moreResults = query.getMoreResults();
+            updateCount = query.getUpdateCount();
+            executeNanos = System.nanoTime() - executeStart;
+        }
+        return rowsChanged;
+    }
+
+    /**
+     * This method adds up the update counts returned by executeBatch. A
+     * statement that succeeded without reporting its count is counted as one
+     * row.
+     *
+     * @param updateCounts the update counts
+     * @return the number of rows changed
+     */
+    private long sumUpdateCounts(int[] updateCounts) {
+        long rows = 0;
+        for (int updateCount : updateCounts) {
+            if (updateCount > 0) {
+                rows += updateCount;
+            } else if (updateCount == Statement.SUCCESS_NO_INFO) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * This method cancels the statement currently executing, if any. The
+     * driver stops the statement on the server, and no further results of the
+     * run are read. This may block while the driver contacts the server, so it
+     * should not be called on the event dispatch thread.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (AnyQueryDataAccess run : parallelRuns) {
+            run.cancel();
+        }
+        Statement statement = runningStatement;
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException ex) {
+                Logger.getLogger(AnyQueryDataAccess.class.getName()).log(Level.INFO,
+                        "Connection exception occurred during AnyQueryDataAccess.cancel.", ex);
+            }
+        }
+    }
+
+    /**
+     * This method indicates whether cancellation of the current or last run
+     * was requested.
+     *
+     * @return true if the run was cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * This method indicates whether a statement of the current or last run
+     * failed.
+     *
+     * @return true if the run failed
+     */
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    /**
+     * This method reads the remaining rows of the result set, up to a limit,
+     * and delivers them to the handler in blocks, stopping early if the run
+     * is cancelled. The first block is small so the first rows appear
+     * quickly; later blocks grow to reduce the number of deliveries. A result
+     * set stopped at the limit is left positioned on the last row read.
+     *
+     * @param resultSet the result set
+     * @param layout a model describing the columns of the result
+     * @param handler the handler receiving the rows
+     * @param copy a model that also receives every row, or null
+     * @param timings the timings receiving the fetch time and rows read
+     * @param rowLimit the largest number of rows read
+     * @return the number of rows read
+     * @throws SQLException if the rows cannot be read
+     */
+    private int readRows(ResultSet resultSet, ColumnarTableModel layout, ResultHandler handler,
+            ColumnarTableModel copy, QueryTimings timings, int rowLimit) throws SQLException {
+
+        long fetchStart = System.nanoTime();
+        boolean awaitingFirstRow = timings.getFirstRowNanos() < 0;
+        int rowCount = 0;
+        int blockLimit = FIRST_BLOCK_ROWS;
+        ColumnarTableModel block = layout.createEmptyCopy();
+        while (!cancelled && rowCount + block.getRowCount() < rowLimit && resultSet.next()) {
+            if (awaitingFirstRow) {
+                timings.setFirstRowNanos(System.nanoTime() - fetchStart);
+                awaitingFirstRow = false;
+            }
+            block.appendRow(resultSet);
+            if (block.getRowCount() == blockLimit) {
+                rowCount += deliverRows(block, handler, copy, timings);
+                block = layout.createEmptyCopy();
+                blockLimit = Math.min(blockLimit * 2, MAX_BLOCK_ROWS);
+            }
+        }
+        rowCount += deliverRows(block, handler, copy, timings);
+        timings.addFetchNanos(System.nanoTime() - fetchStart);
+        return rowCount;
+    }
+
+    /**
+     * This method hands a block of rows to the handler.
+     *
+     * @param block the block of rows
+     * @param handler the handler receiving the rows
+     * @param copy a model that also receives the rows, or null
+     * @param timings the timings receiving the rows delivered
+     * @return the number of rows delivered
+     */
+    private int deliverRows(ColumnarTableModel block, ResultHandler handler,
+            ColumnarTableModel copy, QueryTimings timings) {
+        int rows = block.getRowCount();
+        if (rows > 0) {
+            block.trimToSize();
+            timings.addRows(rows, block.estimateMemoryUsage());
+            if (copy != null) {
+                copy.appendRows(block);
+            }
+            handler.rowsRead(block);
         }
-        return allResults;
+        return rows;
     }
 }
@@ -0,0 +1,533 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+import com.daniel.simplesql.model.ColumnarTableModel;
+import com.daniel.simplesql.model.ResultColumn;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+/**
+ * This class converts blocks of result rows to and from a compact binary row
+ * format. Each row starts with a bitmap of its null columns, followed by the
+ * non-null values: integers as zigzag variable-length numbers, floating-point
+ * values in their fixed IEEE form, and text as UTF-8 preceded by its length.
+ * Values of other types carry a one-byte tag naming their type.
+ *
+ * @author Bryan Daniel
+ */
+final class BinaryRowFormat {
+
+    /**
+     * The kind for integer columns
+     */
+    private static final byte KIND_INT = 0;
+
+    /**
+     * The kind for short integer columns
+     */
+    private static final byte KIND_SHORT = 1;
+
+    /**
+     * The kind for byte columns
+     */
+    private static final byte KIND_BYTE = 2;
+
+    /**
+     * The kind for long integer columns
+     */
+    private static final byte KIND_LONG = 3;
+
+    /**
+     * The kind for double columns
+     */
+    private static final byte KIND_DOUBLE = 4;
+
+    /**
+     * The kind for float columns
+     */
+    private static final byte KIND_FLOAT = 5;
+
+    /**
+     * The kind for text columns
+     */
+    private static final byte KIND_STRING = 6;
+
+    /**
+     * The kind for columns of any other type
+     */
+    private static final byte KIND_OBJECT = 7;
+
+    /**
+     * The tag for values written as text
+     */
+    private static final byte TAG_TEXT = 0;
+
+    /**
+     * The tag for decimal values
+     */
+    private static final byte TAG_BIG_DECIMAL = 1;
+
+    /**
+     * The tag for big integer values
+     */
+    private static final byte TAG_BIG_INTEGER = 2;
+
+    /**
+     * The tag for date values
+     */
+    private static final byte TAG_DATE = 3;
+
+    /**
+     * The tag for time values
+     */
+    private static final byte TAG_TIME = 4;
+
+    /**
+     * The tag for timestamp values
+     */
+    private static final byte TAG_TIMESTAMP = 5;
+
+    /**
+     * The tag for binary values
+     */
+    private static final byte TAG_BYTES = 6;
+
+    /**
+     * The tag for boolean values
+     */
+    private static final byte TAG_BOOLEAN = 7;
+
+    /**
+     * The tag for integer values
+     */
+    private static final byte TAG_INTEGER = 8;
+
+    /**
+     * The tag for long integer values
+     */
+    private static final byte TAG_LONG = 9;
+
+    /**
+     * The tag for double values
+     */
+    private static final byte TAG_DOUBLE = 10;
+
+    /**
+     * The tag for float values
+     */
+    private static final byte TAG_FLOAT = 11;
+
+    /**
+     * Private constructor - not called
+     */
+    private BinaryRowFormat() {
+    }
+
+    /**
+     * This method returns the kind of each column of the given model.
+     *
+     * @param layout a model describing the columns
+     * @return the column kinds
+     */
+    static byte[] columnKinds(ColumnarTableModel layout) {
+        byte[] kinds = new byte[layout.getColumnCount()];
+        for (int column = 0; column < kinds.length; column++) {
+            ResultColumn storage = layout.getColumn(column);
+            Class<?> valueClass = storage.getValueClass();
+            if (storage instanceof ResultColumn.IntColumn) {
+                kinds[column] = valueClass == Short.class ? KIND_SHORT
+                        : valueClass == Byte.class ? KIND_BYTE : KIND_INT;
+            } else if (storage instanceof ResultColumn.LongColumn) {
+                kinds[column] = KIND_LONG;
+            } else if (storage instanceof ResultColumn.DoubleColumn) {
+                kinds[column] = valueClass == Float.class ? KIND_FLOAT : KIND_DOUBLE;
+            } else if (storage instanceof ResultColumn.StringColumn) {
+                kinds[column] = KIND_STRING;
+            } else {
+                kinds[column] = KIND_OBJECT;
+            }
+        }
+        return kinds;
+    }
+
+    /**
+     * This method encodes all rows of the given model.
+     *
+     * @param rows the rows to encode
+     * @param kinds the column kinds
+     * @return the encoded rows
+     */
+    static byte[] encode(ColumnarTableModel rows, byte[] kinds) {
+
+        Encoder encoder = new Encoder(rows.getRowCount() * (kinds.length * 4 + 4));
+        int bitmapBytes = (kinds.length + 7) / 8;
+        for (int row = 0; row < rows.getRowCount(); row++) {
+            int bitmapStart = encoder.skip(bitmapBytes);
+            for (int column = 0; column < kinds.length; column++) {
+                ResultColumn storage = rows.getColumn(column);
+                if (storage.isNull(row)) {
+                    encoder.setBit(bitmapStart, column);
+                    continue;
+                }
+                switch (kinds[column]) {
+                    case KIND_INT:
+                    case KIND_SHORT:
+                    case KIND_BYTE:
+                        encoder.writeVarLong(((ResultColumn.IntColumn) storage).getInt(row));
+                        break;
+                    case KIND_LONG:
+                        encoder.writeVarLong(((ResultColumn.LongColumn) storage).getLong(row));
+                        break;
+                    case KIND_DOUBLE:
+                        encoder.writeLong(Double.doubleToRawLongBits(
+                                ((ResultColumn.DoubleColumn) storage).getDouble(row)));
+                        break;
+                    case KIND_FLOAT:
+                        encoder.writeInt(Float.floatToRawIntBits(
+                                (float) ((ResultColumn.DoubleColumn) storage).getDouble(row)));
+                        break;
+                    case KIND_STRING:
+                        encoder.writeText((String) storage.get(row));
+                        break;
+                    default:
+                        writeObject(encoder, storage.get(row));
+                        break;
+                }
+            }
+        }
+        return encoder.toByteArray();
+    }
+
+    /**
+     * This method decodes the given number of rows starting at the current
+     * position of the buffer.
+     *
+     * @param buffer the buffer holding the encoded rows
+     * @param rowCount the number of rows to decode
+     * @param kinds the column kinds
+     * @return the decoded rows
+     */
+    static Object[][] decode(ByteBuffer buffer, int rowCount, byte[] kinds) {
+
+        int bitmapBytes = (kinds.length + 7) / 8;
+        byte[] bitmap = new byte[bitmapBytes];
+        Object[][] rows = new Object[rowCount][];
+        for (int row = 0; row < rowCount; row++) {
+            buffer.get(bitmap);
+            Object[] values = new Object[kinds.length];
+            for (int column = 0; column < kinds.length; column++) {
+                if ((bitmap[column >> 3] & (1 << (column & 7))) != 0) {
+                    continue;
+                }
+                switch (kinds[column]) {
+                    case KIND_INT:
+                        values[column] = (int) readVarLong(buffer);
+                        break;
+                    case KIND_SHORT:
+                        values[column] = (short) readVarLong(buffer);
+                        break;
+                    case KIND_BYTE:
+                        values[column] = (byte) readVarLong(buffer);
+                        break;
+                    case KIND_LONG:
+                        values[column] = readVarLong(buffer);
+                        break;
+                    case KIND_DOUBLE:
+                        values[column] = Double.longBitsToDouble(buffer.getLong());
+                        break;
+                    case KIND_FLOAT:
+                        values[column] = Float.intBitsToFloat(buffer.getInt());
+                        break;
+                    case KIND_STRING:
+                        values[column] = readText(buffer);
+                        break;
+                    default:
+                        values[column] = readObject(buffer);
+                        break;
+                }
+            }
+            rows[row] = values;
+        }
+        return rows;
+    }
+
+    /**
+     * This method writes a value of an object column with its type tag.
+     * Values of types without a tag are written as their text.
+     *
+     * @param encoder the encoder
+     * @param value the value
+     */
+    private static void writeObject(Encoder encoder, Object value) {
+        if (value instanceof BigDecimal) {
+            encoder.writeByte(TAG_BIG_DECIMAL);
+            encoder.writeText(((BigDecimal) value).toString());
+        } else if (value instanceof BigInteger) {
+            encoder.writeByte(TAG_BIG_INTEGER);
+            encoder.writeText(value.toString());
+        } else if (value instanceof Timestamp) {
+            encoder.writeByte(TAG_TIMESTAMP);
+            encoder.writeVarLong(((Timestamp) value).getTime());
+            encoder.writeVarLong(((Timestamp) value).getNanos());
+        } else if (value instanceof Date) {
+            encoder.writeByte(TAG_DATE);
+            encoder.writeVarLong(((Date) value).getTime());
+        } else if (value instanceof Time) {
+            encoder.writeByte(TAG_TIME);
+            encoder.writeVarLong(((Time) value).getTime());
+        } else if (value instanceof byte[]) {
+            encoder.writeByte(TAG_BYTES);
+            encoder.writeBytes((byte[]) value);
+        } else if (value instanceof Boolean) {
+            encoder.writeByte(TAG_BOOLEAN);
+            encoder.writeByte((byte) (((Boolean) value) ? 1 : 0));
+        } else if (value instanceof Integer) {
+            encoder.writeByte(TAG_INTEGER);
+            encoder.writeVarLong((Integer) value);
+        } else if (value instanceof Long) {
+            encoder.writeByte(TAG_LONG);
+            encoder.writeVarLong((Long) value);
+        } else if (value instanceof Double) {
+            encoder.writeByte(TAG_DOUBLE);
+            encoder.writeLong(Double.doubleToRawLongBits((Double) value));
+        } else if (value instanceof Float) {
+            encoder.writeByte(TAG_FLOAT);
+            encoder.writeInt(Float.floatToRawIntBits((Float) value));
+        } else {
+            encoder.writeByte(TAG_TEXT);
+            encoder.writeText(value.toString());
+        }
+    }
+
+    /**
+     * This method reads a value of an object column.
+     *
+     * @param buffer the buffer positioned on the value tag
+     * @return the value
+     */
+    private static Object readObject(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case TAG_BIG_DECIMAL:
+                return new BigDecimal(readText(buffer));
+            case TAG_BIG_INTEGER:
+                return new BigInteger(readText(buffer));
+            case TAG_TIMESTAMP:
+                Timestamp timestamp = new Timestamp(readVarLong(buffer));
+                timestamp.setNanos((int) readVarLong(buffer));
+                return timestamp;
+            case TAG_DATE:
+                return new Date(readVarLong(buffer));
+            case TAG_TIME:
+                return new Time(readVarLong(buffer));
+            case TAG_BYTES:
+                byte[] bytes = new byte[(int) readVarLong(buffer)];
+                buffer.get(bytes);
+                return bytes;
+            case TAG_BOOLEAN:
+                return buffer.get() != 0;
+            case TAG_INTEGER:
+                return (int) readVarLong(buffer);
+            case TAG_LONG:
+                return readVarLong(buffer);
+            case TAG_DOUBLE:
+                return Double.longBitsToDouble(buffer.getLong());
+            case TAG_FLOAT:
+                return Float.intBitsToFloat(buffer.getInt());
+            default:
+                return readText(buffer);
+        }
+    }
+
+    /**
+     * This method reads a zigzag variable-length number.
+     *
+     * @param buffer the buffer positioned on the number
+     * @return the number
+     */
+    private static long readVarLong(ByteBuffer buffer) {
+        long encoded = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = buffer.get();
+            encoded |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while (current < 0);
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    /**
+     * This method reads text written with its length.
+     *
+     * @param buffer the buffer positioned on the text length
+     * @return the text
+     */
+    private static String readText(ByteBuffer buffer) {
+        byte[] bytes = new byte[(int) readVarLong(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * This class writes values to a growing byte array.
+     *
+     * @author Bryan Daniel
+     */
+    private static class Encoder {
+
+        /**
+         * The encoded bytes
+         */
+        private byte[] bytes;
+
+        /**
+         * The number of bytes written
+         */
+        private int length;
+
+        /**
+         * This constructor sets the initial capacity.
+         *
+         * @param capacity the initial capacity
+         */
+        private Encoder(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        /**
+         * This method reserves the given number of zero bytes.
+         *
+         * @param count the number of bytes
+         * @return the position of the first reserved byte
+         */
+        private int skip(int count) {
+            ensureCapacity(count);
+            int start = length;
+            Arrays.fill(bytes, start, start + count, (byte) 0);
+            length += count;
+            return start;
+        }
+
+        /**
+         * This method sets a bit in a bitmap written earlier.
+         *
+         * @param bitmapStart the position of the bitmap
+         * @param bit the bit index
+         */
+        private void setBit(int bitmapStart, int bit) {
+            bytes[bitmapStart + (bit >> 3)] |= 1 << (bit & 7);
+        }
+
+        /**
+         * This method writes one byte.
+         *
+         * @param value the byte
+         */
+        private void writeByte(byte value) {
+            ensureCapacity(1);
+            bytes[length++] = value;
+        }
+
+        /**
+         * This method writes a 32-bit value in big-endian order.
+         *
+         * @param value the value
+         */
+        private void writeInt(int value) {
+            ensureCapacity(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        /**
+         * This method writes a 64-bit value in big-endian order.
+         *
+         * @param value the value
+         */
+        private void writeLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        /**
+         * This method writes a zigzag variable-length number, which takes one
+         * byte for values near zero.
+         *
+         * @param value the value
+         */
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            long encoded = (value << 1) ^ (value >> 63);
+            while ((encoded & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((encoded & 0x7F) | 0x80);
+                encoded >>>= 7;
+            }
+            bytes[length++] = (byte) encoded;
+        }
+
+        /**
+         * This method writes text as UTF-8 preceded by its length.
+         *
+         * @param text the text
+         */
+        private void writeText(String text) {
+            writeBytes(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * This method writes bytes preceded by their length.
+         *
+         * @param value the bytes
+         */
+        private void writeBytes(byte[] value) {
+            writeVarLong(value.length);
+            ensureCapacity(value.length);
+            System.arraycopy(value, 0, bytes, length, value.length);
+            length += value.length;
+        }
+
+        /**
+         * This method makes room for the given number of bytes.
+         *
+         * @param count the number of bytes
+         */
+        private void ensureCapacity(int count) {
+            if (length + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(length + count, bytes.length * 2));
+            }
+        }
+
+        /**
+         * This method returns the bytes written.
+         *
+         * @return the encoded bytes
+         */
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+}
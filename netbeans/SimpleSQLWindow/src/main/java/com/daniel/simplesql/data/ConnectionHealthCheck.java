@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+import com.daniel.simplesql.model.ConnectionProperties;
+import com.daniel.simplesql.util.DatabaseUtil;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class checks whether connections still reach the server as cheaply as
+ * the driver allows. It uses Connection.isValid, which the MySQL driver
+ * answers with a protocol-level ping, falls back to the driver's own ping
+ * method for drivers without it, and only runs a test query for drivers
+ * offering neither. It also holds the intervals that decide how long a
+ * connection is trusted without a check and how often idle connections are
+ * pinged to keep them open.
+ *
+ * @author Bryan Daniel
+ */
+public class ConnectionHealthCheck {
+
+    /**
+     * The default time in seconds a connection that was shown to work is
+     * trusted without another check
+     */
+    public static final int DEFAULT_HEALTH_CHECK_INTERVAL = 5;
+
+    /**
+     * The default time in seconds after which an idle connection is pinged
+     */
+    public static final int DEFAULT_KEEP_ALIVE_INTERVAL = 60;
+
+    /**
+     * The time in seconds allowed for a check
+     */
+    private static final int CHECK_TIMEOUT = 5;
+
+    /**
+     * The time in milliseconds a connection that was shown to work is trusted
+     * without another check
+     */
+    private final long knownGoodMillis;
+
+    /**
+     * The time in milliseconds after which an idle connection is pinged, or
+     * zero if idle connections are not pinged
+     */
+    private final long keepAliveMillis;
+
+    /**
+     * Indicates the driver has not yet been found to lack Connection.isValid
+     */
+    private volatile boolean isValidSupported = true;
+
+    /**
+     * The driver's ping method, or null if it has none or none was looked up
+     */
+    private volatile Method pingMethod;
+
+    /**
+     * Indicates the driver has been found to lack a ping method
+     */
+    private volatile boolean pingUnsupported;
+
+    /**
+     * This constructor reads the optional check intervals from the connection
+     * properties.
+     *
+     * @param properties the connection properties
+     */
+    public ConnectionHealthCheck(ConnectionProperties properties) {
+        this.knownGoodMillis = 1000L * Math.max(0, properties.getIntProperty(
+                ConnectionProperties.HEALTH_CHECK_INTERVAL, DEFAULT_HEALTH_CHECK_INTERVAL));
+        this.keepAliveMillis = 1000L * Math.max(0, properties.getIntProperty(
+                ConnectionProperties.KEEP_ALIVE_INTERVAL, DEFAULT_KEEP_ALIVE_INTERVAL));
+    }
+
+    /**
+     * This method checks whether the connection still reaches the server.
+     *
+     * @param connection the connection
+     * @return true if the connection is usable
+     */
+    public boolean isHealthy(Connection connection) {
+        try {
+            if (isValidSupported) {
+                try {
+                    return connection.isValid(CHECK_TIMEOUT);
+                } catch (AbstractMethodError | SQLFeatureNotSupportedException ex) {
+                    isValidSupported = false;
+                }
+            }
+            Method ping = findPingMethod(connection);
+            if (ping != null) {
+                ping.invoke(connection);
+                return true;
+            }
+            return testQuerySucceeds(connection);
+        } catch (SQLException | IllegalAccessException | InvocationTargetException ex) {
+            Logger.getLogger(ConnectionHealthCheck.class.getName()).log(Level.INFO,
+                    "Connection health check failed.", ex);
+            return false;
+        }
+    }
+
+    /**
+     * This method returns the time a connection that was shown to work is
+     * trusted without another check.
+     *
+     * @return the time in milliseconds
+     */
+    public long getKnownGoodMillis() {
+        return knownGoodMillis;
+    }
+
+    /**
+     * This method returns the time after which an idle connection is pinged.
+     *
+     * @return the time in milliseconds, or zero if idle connections are not
+     * pinged
+     */
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    /**
+     * This method looks up the driver's public no-argument ping method, as
+     * offered by the MySQL driver, remembering the outcome.
+     *
+     * @param connection the connection
+     * @return the ping method, or null if the driver has none
+     */
+    private Method findPingMethod(Connection connection) {
+        if (pingMethod == null && !pingUnsupported) {
+            try {
+                pingMethod = connection.getClass().getMethod("ping");
+            } catch (NoSuchMethodException ex) {
+                pingUnsupported = true;
+            }
+        }
+        return pingMethod;
+    }
+
+    /**
+     * This method runs a minimal query as the check of last resort.
+     *
+     * @param connection the connection
+     * @return true if the query returned a row
+     * @throws SQLException if the query fails
+     */
+    private boolean testQuerySucceeds(Connection connection) throws SQLException {
+        Statement query = null;
+        ResultSet resultSet = null;
+        try {
+            query = connection.createStatement();
+            query.setQueryTimeout(CHECK_TIMEOUT);
+            resultSet = query.executeQuery("SELECT 1");
+            return resultSet.next();
+        } finally {
+            DatabaseUtil.closeResultSet(resultSet);
+            DatabaseUtil.closeStatement(query);
+        }
+    }
+}
@@ -0,0 +1,562 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+import com.daniel.simplesql.model.ConnectionProperties;
+import com.daniel.simplesql.util.DatabaseUtil;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class keeps a bounded set of open connections for one set of connection
+ * properties so that queries do not pay for a new handshake on every
+ * execution. Connections are checked when borrowed, unless they were shown
+ * to work within the health check interval, pinged while idle so they stay
+ * open, evicted when idle for too long, and reported when held longer than the
+ * leak threshold.
+ *
+ * @author Bryan Daniel
+ */
+public class ConnectionPool {
+
+    /**
+     * The default minimum number of idle connections kept open
+     */
+    public static final int DEFAULT_MIN_SIZE = 1;
+
+    /**
+     * The default maximum number of open connections
+     */
+    public static final int DEFAULT_MAX_SIZE = 8;
+
+    /**
+     * The default idle time in seconds before a connection is evicted
+     */
+    public static final int DEFAULT_IDLE_TIMEOUT = 300;
+
+    /**
+     * The default time in seconds a connection may be borrowed before it is
+     * reported as a possible leak
+     */
+    public static final int DEFAULT_LEAK_THRESHOLD = 900;
+
+    /**
+     * The default number of connections opened ahead of the first queries
+     */
+    public static final int DEFAULT_WARM_SIZE = 2;
+
+    /**
+     * The time in milliseconds a borrower waits for a free connection
+     */
+    private static final long BORROW_TIMEOUT_MILLIS = 30000;
+
+    /**
+     * The connection properties served by this pool
+     */
+    private final ConnectionProperties properties;
+
+    /**
+     * The JDBC connection string
+     */
+    private final String connectionString;
+
+    /**
+     * The minimum number of idle connections kept open
+     */
+    private final int minSize;
+
+    /**
+     * The maximum number of open connections
+     */
+    private final int maxSize;
+
+    /**
+     * The idle time in milliseconds before a connection is evicted
+     */
+    private final long idleTimeoutMillis;
+
+    /**
+     * The borrow time in milliseconds before a connection is reported
+     */
+    private final long leakThresholdMillis;
+
+    /**
+     * The checks deciding whether connections still reach the server
+     */
+    private final ConnectionHealthCheck healthCheck;
+
+    /**
+     * The idle connections, most recently returned first
+     */
+    private final Deque<PooledConnection> idleConnections = new ArrayDeque<>();
+
+    /**
+     * The connections currently held by borrowers
+     */
+    private final Set<PooledConnection> borrowedConnections = new HashSet<>();
+
+    /**
+     * The number of connections being opened outside the lock
+     */
+    private int pendingCount;
+
+    /**
+     * Indicates the pool has been shut down
+     */
+    private boolean shutdown;
+
+    /**
+     * This constructor sets the connection properties and reads the optional
+     * pool settings from them.
+     *
+     * @param properties the connection properties
+     */
+    public ConnectionPool(ConnectionProperties properties) {
+        this.properties = properties;
+        this.connectionString = DatabaseUtil.buildConnectionString(properties);
+        this.maxSize = Math.max(1, properties.getIntProperty(
+                ConnectionProperties.POOL_MAX_SIZE, DEFAULT_MAX_SIZE));
+        this.minSize = Math.min(maxSize, Math.max(0, properties.getIntProperty(
+                ConnectionProperties.POOL_MIN_SIZE, DEFAULT_MIN_SIZE)));
+        this.idleTimeoutMillis = 1000L * properties.getIntProperty(
+                ConnectionProperties.POOL_IDLE_TIMEOUT, DEFAULT_IDLE_TIMEOUT);
+        this.leakThresholdMillis = 1000L * properties.getIntProperty(
+                ConnectionProperties.POOL_LEAK_THRESHOLD, DEFAULT_LEAK_THRESHOLD);
+        this.healthCheck = new ConnectionHealthCheck(properties);
+    }
+
+    /**
+     * This method borrows a validated connection from the pool, opening a new
+     * one if none is idle and the pool is below its maximum size. Closing the
+     * returned connection returns it to the pool.
+     *
+     * @return the borrowed connection
+     * @throws SQLException if no valid connection can be obtained
+     */
+    public Connection borrowConnection() throws SQLException {
+
+        long deadline = System.currentTimeMillis() + BORROW_TIMEOUT_MILLIS;
+        while (true) {
+            PooledConnection candidate = null;
+            boolean openNew = false;
+            synchronized (this) {
+                while (candidate == null && !openNew) {
+                    if (shutdown) {
+                        throw new SQLException("The connection pool has been shut down.");
+                    }
+                    if (!idleConnections.isEmpty()) {
+                        candidate = idleConnections.pollFirst();
+                    } else if (totalCount() < maxSize) {
+                        openNew = true;
+                    } else {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            throw new SQLException("Timed out waiting for a pooled connection.");
+                        }
+                        try {
+                            wait(remaining);
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                            throw new SQLException("Interrupted waiting for a pooled connection.", ex);
+                        }
+                    }
+                }
+                // counted as pending while it is opened or validated outside the lock
+                pendingCount++;
+            }
+
+            boolean usable = false;
+            try {
+                if (openNew) {
+                    candidate = openConnection();
+                    usable = true;
+                } else {
+                    usable = candidate.verifiedWithin(healthCheck.getKnownGoodMillis())
+                            || isValid(candidate);
+                }
+            } finally {
+                synchronized (this) {
+                    pendingCount--;
+                    if (usable) {
+                        borrowedConnections.add(candidate);
+                    }
+                    notifyAll();
+                }
+            }
+            if (usable) {
+                return candidate.borrow();
+            }
+            DatabaseUtil.closeConnection(candidate.getPhysicalConnection());
+        }
+    }
+
+    /**
+     * This method prepares the pool for the first queries. It loads the
+     * driver's metadata and result classes through one pooled connection and
+     * then opens connections until the given number are open, without
+     * exceeding the maximum size. The new connections are queued behind the
+     * existing idle ones so the most recently used connection is still
+     * borrowed first. It is meant to be run on a background thread.
+     *
+     * @param count the number of connections to have open
+     * @return the number of connections opened
+     */
+    public int prewarm(int count) {
+
+        Connection connection = null;
+        try {
+            connection = borrowConnection();
+            warmMetadata(connection);
+        } catch (SQLException ex) {
+            Logger.getLogger(ConnectionPool.class.getName()).log(Level.INFO,
+                    "Connection warm-up failed.", ex);
+            return 0;
+        } finally {
+            DatabaseUtil.closeConnection(connection);
+        }
+
+        int target = Math.min(count, maxSize);
+        int opened = 0;
+        while (true) {
+            synchronized (this) {
+                if (shutdown || totalCount() >= target) {
+                    return opened;
+                }
+                pendingCount++;
+            }
+            PooledConnection warmed = null;
+            boolean kept = false;
+            try {
+                warmed = openConnection();
+            } catch (SQLException ex) {
+                Logger.getLogger(ConnectionPool.class.getName()).log(Level.INFO,
+                        "Connection warm-up failed.", ex);
+            } finally {
+                synchronized (this) {
+                    pendingCount--;
+                    if (warmed != null && !shutdown) {
+                        idleConnections.addLast(warmed);
+                        kept = true;
+                    }
+                    notifyAll();
+                }
+            }
+            if (!kept) {
+                if (warmed != null) {
+                    DatabaseUtil.closeConnection(warmed.getPhysicalConnection());
+                }
+                return opened;
+            }
+            opened++;
+        }
+    }
+
+    /**
+     * This method opens a connection with the pool's settings that is not
+     * managed by the pool. It is meant for long-lived uses, such as an open
+     * cursor, that would otherwise hold a pooled connection indefinitely. The
+     * caller is responsible for closing it.
+     *
+     * @return the dedicated connection
+     * @throws SQLException if the connection cannot be opened
+     */
+    public Connection openDedicatedConnection() throws SQLException {
+        return DriverManager.getConnection(connectionString,
+                properties.getProperty(ConnectionProperties.USERNAME),
+                properties.getProperty(ConnectionProperties.PASSWORD));
+    }
+
+    /**
+     * This method takes a borrowed connection out of the pool, so that it
+     * can serve a long-lived use, such as an open result being browsed,
+     * without counting against the pool. The pool opens another connection
+     * when it needs one. Closing the connection then closes it instead of
+     * returning it.
+     *
+     * @param connection the connection borrowed from this pool
+     * @throws SQLException if the connection is not borrowed from this pool
+     */
+    public void detachConnection(Connection connection) throws SQLException {
+        synchronized (this) {
+            Iterator<PooledConnection> iterator = borrowedConnections.iterator();
+            while (iterator.hasNext()) {
+                PooledConnection candidate = iterator.next();
+                if (candidate.isProxy(connection)) {
+                    iterator.remove();
+                    candidate.markDetached();
+                    notifyAll();
+                    return;
+                }
+            }
+        }
+        throw new SQLException("The connection is not borrowed from this pool.");
+    }
+
+    /**
+     * This method returns a connection to the idle set, resetting its
+     * transaction state. Connections that cannot be reset are discarded.
+     *
+     * @param connection the returned connection
+     */
+    void returnConnection(PooledConnection connection) {
+
+        synchronized (this) {
+            if (!borrowedConnections.remove(connection)) {
+                return;
+            }
+            // counted as pending while it is reset so the pool cannot overshoot
+            pendingCount++;
+        }
+        Connection physical = connection.getPhysicalConnection();
+        boolean reusable = false;
+        try {
+            if (!physical.isClosed()) {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                reusable = true;
+            }
+        } catch (SQLException ex) {
+            Logger.getLogger(ConnectionPool.class.getName()).log(Level.INFO,
+                    "Discarding a connection that could not be reset.", ex);
+        }
+        connection.markReturned();
+        synchronized (this) {
+            pendingCount--;
+            if (reusable && !shutdown) {
+                idleConnections.addFirst(connection);
+            }
+            notifyAll();
+        }
+        if (!reusable || isShutdown()) {
+            DatabaseUtil.closeConnection(physical);
+        }
+    }
+
+    /**
+     * This method closes idle connections that have exceeded the idle timeout
+     * while keeping at least the minimum number of connections open.
+     */
+    public void evictIdleConnections() {
+
+        List<PooledConnection> evicted = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+            while (iterator.hasNext() && totalCount() - evicted.size() > minSize) {
+                PooledConnection connection = iterator.next();
+                if (now - connection.getLastReturnedMillis() > idleTimeoutMillis) {
+                    iterator.remove();
+                    evicted.add(connection);
+                }
+            }
+        }
+        for (PooledConnection connection : evicted) {
+            DatabaseUtil.closeConnection(connection.getPhysicalConnection());
+        }
+    }
+
+    /**
+     * This method pings the idle connections that have not been shown to work
+     * within the keep-alive interval, so that the server and any firewall in
+     * between do not drop them, and closes those that no longer respond. A
+     * ping does not count as use, so eviction of idle connections is
+     * unaffected.
+     */
+    public void keepAlive() {
+
+        long keepAliveMillis = healthCheck.getKeepAliveMillis();
+        if (keepAliveMillis <= 0) {
+            return;
+        }
+        List<PooledConnection> stale = new ArrayList<>();
+        synchronized (this) {
+            Iterator<PooledConnection> iterator = idleConnections.iterator();
+            while (iterator.hasNext()) {
+                PooledConnection connection = iterator.next();
+                if (!connection.verifiedWithin(keepAliveMillis)) {
+                    iterator.remove();
+                    stale.add(connection);
+                    // counted as pending while it is pinged outside the lock
+                    pendingCount++;
+                }
+            }
+        }
+        for (PooledConnection connection : stale) {
+            boolean alive = isValid(connection);
+            boolean kept = false;
+            synchronized (this) {
+                pendingCount--;
+                if (alive && !shutdown) {
+                    idleConnections.addLast(connection);
+                    kept = true;
+                }
+                notifyAll();
+            }
+            if (!kept) {
+                DatabaseUtil.closeConnection(connection.getPhysicalConnection());
+            }
+        }
+    }
+
+    /**
+     * This method logs a warning with the borrower's stack trace for every
+     * connection held longer than the leak threshold.
+     */
+    public void detectLeaks() {
+
+        List<PooledConnection> suspects = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (PooledConnection connection : borrowedConnections) {
+                if (now - connection.getBorrowedMillis() > leakThresholdMillis) {
+                    suspects.add(connection);
+                }
+            }
+        }
+        for (PooledConnection connection : suspects) {
+            Throwable trace = connection.takeLeakTrace();
+            if (trace != null) {
+                Logger.getLogger(ConnectionPool.class.getName()).log(Level.WARNING,
+                        "A pooled connection has been borrowed for more than "
+                        + leakThresholdMillis / 1000 + " seconds and may have leaked.", trace);
+            }
+        }
+    }
+
+    /**
+     * This method closes all idle connections and prevents further borrowing.
+     * Borrowed connections are closed when they are returned.
+     */
+    public void shutdown() {
+
+        List<PooledConnection> idle;
+        synchronized (this) {
+            shutdown = true;
+            idle = new ArrayList<>(idleConnections);
+            idleConnections.clear();
+            notifyAll();
+        }
+        for (PooledConnection connection : idle) {
+            DatabaseUtil.closeConnection(connection.getPhysicalConnection());
+        }
+    }
+
+    /**
+     * This method indicates whether the pool has been shut down.
+     *
+     * @return true if the pool has been shut down
+     */
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * This method returns the number of idle connections.
+     *
+     * @return the idle connection count
+     */
+    public synchronized int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    /**
+     * This method returns the number of borrowed connections.
+     *
+     * @return the borrowed connection count
+     */
+    public synchronized int getBorrowedCount() {
+        return borrowedConnections.size();
+    }
+
+    /**
+     * This method opens a new physical connection.
+     *
+     * @return the new pooled connection
+     * @throws SQLException if the connection cannot be opened
+     */
+    private PooledConnection openConnection() throws SQLException {
+        return new PooledConnection(this, openDedicatedConnection());
+    }
+
+    /**
+     * This method checks that a pooled connection still reaches the server,
+     * recording the time if it does.
+     *
+     * @param connection the connection to check
+     * @return true if the connection is usable
+     */
+    private boolean isValid(PooledConnection connection) {
+        if (healthCheck.isHealthy(connection.getPhysicalConnection())) {
+            connection.markVerified();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * This method reads the database metadata and the type information result
+     * so that the driver builds its metadata caches and loads its result set
+     * classes before the first query needs them.
+     *
+     * @param connection the connection
+     */
+    private void warmMetadata(Connection connection) {
+
+        ResultSet typeInfo = null;
+        try {
+            DatabaseMetaData metaData = connection.getMetaData();
+            metaData.getDatabaseProductVersion();
+            metaData.getIdentifierQuoteString();
+            typeInfo = metaData.getTypeInfo();
+            int columnCount = typeInfo.getMetaData().getColumnCount();
+            while (typeInfo.next()) {
+                for (int column = 1; column <= columnCount; column++) {
+                    typeInfo.getObject(column);
+                }
+            }
+        } catch (SQLException ex) {
+            Logger.getLogger(ConnectionPool.class.getName()).log(Level.INFO,
+                    "Reading the database metadata failed.", ex);
+        } finally {
+            DatabaseUtil.closeResultSet(typeInfo);
+        }
+    }
+
+    /**
+     * This method returns the number of open or opening connections. The
+     * caller must hold the pool lock.
+     *
+     * @return the total connection count
+     */
+    private int totalCount() {
+        return idleConnections.size() + borrowedConnections.size() + pendingCount;
+    }
+}
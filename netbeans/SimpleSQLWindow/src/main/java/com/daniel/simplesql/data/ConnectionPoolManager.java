@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+import com.daniel.simplesql.model.ConnectionProperties;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class keeps one ConnectionPool per set of connection properties and
+ * runs the periodic maintenance of those pools. The class implements the
+ * Singleton design pattern so that every data-access object shares the same
+ * pools.
+ *
+ * @author Bryan Daniel
+ */
+public class ConnectionPoolManager {
+
+    /**
+     * The interval in seconds between pool maintenance runs
+     */
+    private static final long MAINTENANCE_INTERVAL = 30;
+
+    /**
+     * The single ConnectionPoolManager object
+     */
+    private static ConnectionPoolManager manager = null;
+
+    /**
+     * The pools keyed by a copy of their connection properties
+     */
+    private final Map<ConnectionProperties, ConnectionPool> pools = new HashMap<>();
+
+    /**
+     * The daemon thread running pool maintenance
+     */
+    private final ScheduledExecutorService maintenanceExecutor;
+
+    /**
+     * Private constructor - not called publicly
+     */
+    private ConnectionPoolManager() {
+        maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "connection-pool-maintenance");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        maintenanceExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                for (ConnectionPool pool : getPools()) {
+                    // an exception escaping here would cancel all later maintenance runs
+                    try {
+                        pool.evictIdleConnections();
+                        pool.keepAlive();
+                        pool.detectLeaks();
+                    } catch (RuntimeException ex) {
+                        Logger.getLogger(ConnectionPoolManager.class.getName()).log(Level.SEVERE,
+                                "Exception occurred during connection pool maintenance.", ex);
+                    }
+                }
+            }
+        }, MAINTENANCE_INTERVAL, MAINTENANCE_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * This method returns the single ConnectionPoolManager. If the instance
+     * has not been created previously, it is created here.
+     *
+     * @return the ConnectionPoolManager object
+     */
+    public synchronized static ConnectionPoolManager getInstance() {
+        if (manager == null) {
+            manager = new ConnectionPoolManager();
+        }
+        return manager;
+    }
+
+    /**
+     * This method returns the pool for the given connection properties,
+     * creating it on first use.
+     *
+     * @param properties the database connection properties
+     * @return the connection pool
+     */
+    public synchronized ConnectionPool getPool(ConnectionProperties properties) {
+        ConnectionPool pool = pools.get(properties);
+        if (pool == null) {
+            ConnectionProperties key = (ConnectionProperties) properties.clone();
+            pool = new ConnectionPool(key);
+            pools.put(key, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * This method shuts down and removes the pool for the given connection
+     * properties, if one exists.
+     *
+     * @param properties the database connection properties
+     */
+    public void closePool(ConnectionProperties properties) {
+        ConnectionPool pool;
+        synchronized (this) {
+            pool = pools.remove(properties);
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * This method returns a snapshot of the current pools.
+     *
+     * @return the list of pools
+     */
+    private synchronized List<ConnectionPool> getPools() {
+        return new ArrayList<>(pools.values());
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+import com.daniel.simplesql.model.ColumnarTableModel;
+import com.daniel.simplesql.util.DatabaseUtil;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * This table model presents the result of a large SELECT statement without
+ * reading all of its rows. It takes over the open result set of the run that
+ * executed the statement, on a connection dedicated to it, and reads the
+ * result forward in fixed-size blocks as the table scrolls towards the last
+ * row read. The rows read are kept in a SpillingTableModel, so earlier
+ * blocks stay available without running the statement again.
+ * <p>
+ * The row count grows as blocks arrive. If reading fails, no further rows are
+ * read and the failure is available from getFailure.
+ *
+ * @author Bryan Daniel
+ */
+public class CursorTableModel extends AbstractTableModel implements Closeable {
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = -2306427419523574128L;
+
+    /**
+     * The number of rows read in one block
+     */
+    public static final int BLOCK_SIZE = 500;
+
+    /**
+     * The model holding the rows read so far
+     */
+    private final transient SpillingTableModel rows;
+
+    /**
+     * A model describing the columns of the result
+     */
+    private final ColumnarTableModel layout;
+
+    /**
+     * The connection dedicated to the open result set
+     */
+    private final transient Connection connection;
+
+    /**
+     * The statement that produced the result set
+     */
+    private final transient Statement statement;
+
+    /**
+     * The result set read forward as rows are needed
+     */
+    private final transient ResultSet resultSet;
+
+    /**
+     * The thread reading blocks in the background, one at a time
+     */
+    private final transient ExecutorService fetchExecutor;
+
+    /**
+     * Indicates a block is being read, used on the event dispatch thread
+     */
+    private boolean fetching;
+
+    /**
+     * Indicates the result set and the connection have been closed
+     */
+    private boolean released;
+
+    /**
+     * Indicates the last row of the result has been read
+     */
+    private volatile boolean complete;
+
+    /**
+     * The message of the exception that stopped reading, or null
+     */
+    private volatile String failure;
+
+    /**
+     * Indicates the model has been closed
+     */
+    private volatile boolean closed;
+
+    /**
+     * This constructor takes over an open result whose first rows have been
+     * read, keeping those rows and reading the rest of the result forward as
+     * the table needs it. The model owns the connection, the statement and
+     * the result set from then on and closes them when it is closed, or at
+     * once if it cannot be created.
+     *
+     * @param connection the connection dedicated to the result
+     * @param statement the statement that produced the result set
+     * @param resultSet the result set, positioned after the rows read
+     * @param firstRows the rows already read from the start of the result
+     * @param budget the memory budget of the run, beyond which the rows read
+     * are written to disk
+     * @throws IOException if the rows already read cannot be stored
+     */
+    public CursorTableModel(Connection connection, Statement statement, ResultSet resultSet,
+            ColumnarTableModel firstRows, ResultMemoryBudget budget) throws IOException {
+
+        this.connection = connection;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.layout = firstRows.createEmptyCopy();
+        rows = new SpillingTableModel(firstRows, budget);
+        try {
+            rows.storeRows(firstRows);
+        } catch (IOException ex) {
+            release();
+            rows.close();
+            throw ex;
+        }
+        rows.showStoredRows();
+
+        fetchExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "cursor-table-fetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * This method returns the number of rows read so far.
+     *
+     * @return the row count
+     */
+    @Override
+    public int getRowCount() {
+        return rows.getRowCount();
+    }
+
+    /**
+     * This method returns the number of columns in the result.
+     *
+     * @return the column count
+     */
+    @Override
+    public int getColumnCount() {
+        return layout.getColumnCount();
+    }
+
+    /**
+     * This method returns the name of the given column.
+     *
+     * @param column the column index
+     * @return the column name
+     */
+    @Override
+    public String getColumnName(int column) {
+        return layout.getColumnName(column);
+    }
+
+    /**
+     * This method returns the class of the values in the given column.
+     *
+     * @param column the column index
+     * @return the value class
+     */
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return layout.getColumnClass(column);
+    }
+
+    /**
+     * This method returns the value of the given cell. When the table asks
+     * for a row of the last block read, the next block is read in the
+     * background. This is executed on the event dispatch thread.
+     *
+     * @param rowIndex the row index
+     * @param columnIndex the column index
+     * @return the cell value
+     */
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        if (rowIndex >= rows.getRowCount() - BLOCK_SIZE) {
+            requestNextBlock();
+        }
+        return rows.getValueAt(rowIndex, columnIndex);
+    }
+
+    /**
+     * This method indicates whether every row of the result has been read.
+     *
+     * @return true if the last row has been read
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * This method returns the message of the exception that stopped reading
+     * the result, if any.
+     *
+     * @return the failure message, or null if reading has not failed
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * This method stops reading and releases the result set, the dedicated
+     * connection and the rows read. The release happens on the fetch thread
+     * after any block being read, because closing a partly read streaming
+     * result can take a while.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            fetchExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    release();
+                    rows.close();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // the model has already been closed
+        }
+        fetchExecutor.shutdown();
+    }
+
+    /**
+     * This method schedules the next block to be read unless one is being
+     * read or reading has ended. This is executed on the event dispatch
+     * thread.
+     */
+    private void requestNextBlock() {
+        if (fetching || complete || closed || failure != null) {
+            return;
+        }
+        fetching = true;
+        try {
+            fetchExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    fetchNextBlock();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // the model has been closed
+        }
+    }
+
+    /**
+     * This method reads the next block of rows and shows it to the table. If
+     * reading fails, the failure is recorded and the table is notified so it
+     * can be reported. This is not executed on the event dispatch thread.
+     */
+    private void fetchNextBlock() {
+
+        if (closed) {
+            return;
+        }
+        try {
+            readBlock();
+        } catch (SQLException | IOException ex) {
+            Logger.getLogger(CursorTableModel.class.getName()).log(Level.INFO,
+                    "Exception occurred during CursorTableModel.fetchNextBlock.", ex);
+            failure = ex.getMessage();
+        }
+        if (complete || failure != null) {
+            release();
+        }
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                fetching = false;
+                int firstRow = rows.getRowCount();
+                rows.showStoredRows();
+                int lastRow = rows.getRowCount() - 1;
+                if (lastRow >= firstRow) {
+                    fireTableRowsInserted(firstRow, lastRow);
+                } else {
+                    // no rows arrived, but the completion or failure is news
+                    fireTableDataChanged();
+                }
+            }
+        });
+    }
+
+    /**
+     * This method reads up to one block of rows from the result set into the
+     * stored rows, noting when the last row has been read.
+     *
+     * @throws SQLException if the rows cannot be read
+     * @throws IOException if the rows cannot be written to the spill file
+     */
+    private void readBlock() throws SQLException, IOException {
+        ColumnarTableModel block = layout.createEmptyCopy();
+        while (block.getRowCount() < BLOCK_SIZE) {
+            if (!resultSet.next()) {
+                complete = true;
+                break;
+            }
+            block.appendRow(resultSet);
+        }
+        block.trimToSize();
+        rows.storeRows(block);
+    }
+
+    /**
+     * This method closes the result set, the statement and the dedicated
+     * connection. A streaming result that was not read to the end is
+     * cancelled first so the driver does not read the remaining rows.
+     */
+    private void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        if (!complete && statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException ex) {
+                Logger.getLogger(CursorTableModel.class.getName()).log(Level.INFO,
+                        "Connection exception occurred during CursorTableModel.release.", ex);
+            }
+        }
+        DatabaseUtil.closeResultSet(resultSet);
+        DatabaseUtil.closeStatement(statement);
+        DatabaseUtil.closeConnection(connection);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * This formatter writes rows as delimited text with a header line. In CSV
+ * mode, values holding the delimiter, a quote or a line break are quoted and
+ * quotes are doubled. In TSV mode, tabs, line breaks and backslashes are
+ * escaped with a backslash. Null values are written as empty fields.
+ *
+ * @author Bryan Daniel
+ */
+public class DelimitedRowFormatter implements RowFormatter {
+
+    /**
+     * The character separating fields
+     */
+    private final char delimiter;
+
+    /**
+     * Indicates values are escaped with backslashes rather than quoted
+     */
+    private final boolean backslashEscapes;
+
+    /**
+     * The number of columns of the result
+     */
+    private int columnCount;
+
+    /**
+     * This constructor sets the delimiter and the escaping style.
+     *
+     * @param delimiter the character separating fields
+     * @param backslashEscapes true to escape with backslashes, false to quote
+     */
+    public DelimitedRowFormatter(char delimiter, boolean backslashEscapes) {
+        this.delimiter = delimiter;
+        this.backslashEscapes = backslashEscapes;
+    }
+
+    /**
+     * This method writes the header line of column names.
+     *
+     * @param columnNames the column names
+     * @param columnTypes the java.sql.Types code of each column
+     * @param out the buffer receiving the text
+     */
+    @Override
+    public void writeHeader(String[] columnNames, int[] columnTypes, StringBuilder out) {
+        columnCount = columnNames.length;
+        for (int column = 0; column < columnCount; column++) {
+            if (column > 0) {
+                out.append(delimiter);
+            }
+            appendField(columnNames[column], out);
+        }
+        out.append('\n');
+    }
+
+    /**
+     * This method writes the current row of the result set as one line.
+     *
+     * @param resultSet the result set positioned on a row
+     * @param out the buffer receiving the text
+     * @throws SQLException if the row cannot be read
+     */
+    @Override
+    public void writeRow(ResultSet resultSet, StringBuilder out) throws SQLException {
+        for (int column = 0; column < columnCount; column++) {
+            if (column > 0) {
+                out.append(delimiter);
+            }
+            String value = resultSet.getString(column + 1);
+            if (value != null) {
+                appendField(value, out);
+            }
+        }
+        out.append('\n');
+    }
+
+    /**
+     * This method appends one field, quoting or escaping it as needed.
+     *
+     * @param value the field value
+     * @param out the buffer receiving the text
+     */
+    private void appendField(String value, StringBuilder out) {
+        if (backslashEscapes) {
+            for (int index = 0; index < value.length(); index++) {
+                char current = value.charAt(index);
+                switch (current) {
+                    case '\t':
+                        out.append("\\t");
+                        break;
+                    case '\n':
+                        out.append("\\n");
+                        break;
+                    case '\r':
+                        out.append("\\r");
+                        break;
+                    case '\\':
+                        out.append("\\\\");
+                        break;
+                    default:
+                        out.append(current);
+                        break;
+                }
+            }
+            return;
+        }
+        if (!needsQuotes(value)) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int index = 0; index < value.length(); index++) {
+            char current = value.charAt(index);
+            if (current == '"') {
+                out.append('"');
+            }
+            out.append(current);
+        }
+        out.append('"');
+    }
+
+    /**
+     * This method determines whether a CSV field must be quoted.
+     *
+     * @param value the field value
+     * @return true if the value holds the delimiter, a quote or a line break
+     */
+    private boolean needsQuotes(String value) {
+        for (int index = 0; index < value.length(); index++) {
+            char current = value.charAt(index);
+            if (current == delimiter || current == '"' || current == '\n' || current == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+import com.daniel.simplesql.model.ConnectionProperties;
+import com.daniel.simplesql.model.FetchMode;
+import com.daniel.simplesql.model.QueryOptions;
+import com.daniel.simplesql.util.DatabaseUtil;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This data-access class runs a query and writes the rows of its first result
+ * set straight to a file as they are read, or runs a script and writes each of
+ * its result sets to a file of its own. Rows are never collected in
+ * memory: the statement streams them from the server and each row is
+ * formatted into a small buffer that is encoded and written to the file
+ * channel whenever it fills.
+ *
+ * @author Bryan Daniel
+ */
+public class ExportDataAccess {
+
+    /**
+     * The number of characters formatted before they are written to the file
+     */
+    public static final int WRITE_BUFFER_CHARS = 64 * 1024;
+
+    /**
+     * The size of the buffer holding encoded bytes
+     */
+    public static final int BYTE_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * The time in milliseconds between progress reports
+     */
+    public static final long PROGRESS_INTERVAL_MILLIS = 250;
+
+    /**
+     * The statement currently executing, kept so it can be cancelled
+     */
+    private volatile Statement runningStatement;
+
+    /**
+     * Indicates cancellation of the export has been requested
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * This method runs the query and writes the rows of its first result set
+     * to the file in the given format. The file is deleted if the export
+     * fails or is cancelled.
+     *
+     * @param queryString the query string
+     * @param properties the database connection properties
+     * @param options the query options
+     * @param file the file to write
+     * @param format the export format
+     * @param gzip true to compress the file with gzip
+     * @param listener the listener receiving progress reports
+     * @return a message describing the outcome of the export
+     */
+    public String exportQuery(String queryString, ConnectionProperties properties,
+            QueryOptions options, Path file, ExportFormat format, boolean gzip,
+            ExportListener listener) {
+
+        long startTime = System.nanoTime();
+        Connection connection = null;
+        Statement query = null;
+        ResultSet resultSet = null;
+
+        try {
+            connection = ConnectionPoolManager.getInstance().getPool(properties)
+                    .borrowConnection();
+
+            // the export never needs the whole result in memory, so buffering is not used
+            QueryOptions exportOptions = new QueryOptions(options);
+            if (exportOptions.getFetchMode() == null
+                    && properties.getFetchMode() == FetchMode.BUFFERED) {
+                exportOptions.setFetchMode(FetchMode.STREAMING);
+            }
+            query = DatabaseUtil.createStatement(connection, queryString, properties,
+                    exportOptions);
+            query.setQueryTimeout(options.getQueryTimeout());
+            runningStatement = query;
+            if (cancelled) {
+                return AnyQueryDataAccess.CANCELLED_MESSAGE;
+            }
+
+            boolean isResultSet = query instanceof PreparedStatement
+                    ? ((PreparedStatement) query).execute() : query.execute(queryString);
+            while (!isResultSet && query.getUpdateCount() != -1) {
+                isResultSet = query.getMoreResults();
+            }
+            if (!isResultSet) {
+                return "The query returned no rows to export.";
+            }
+            resultSet = query.getResultSet();
+
+            long rows = writeFile(resultSet, file, format, gzip, listener);
+            if (cancelled) {
+                return "Export cancelled after " + String.format("%,d", rows) + " rows.";
+            }
+            listener.exportProgress(rows, Files.size(file));
+
+            double seconds = Math.max(0.001, (System.nanoTime() - startTime) / 1e9);
+            return String.format("Exported %,d rows to %s in %.1f s (%,.0f rows/s).",
+                    rows, file.getFileName(), seconds, rows / seconds);
+        } catch (SQLException | IOException e) {
+            Logger.getLogger(ExportDataAccess.class.getName()).log(Level.INFO,
+                    "Exception occurred during ExportDataAccess.exportQuery.", e);
+            if (cancelled) {
+                return AnyQueryDataAccess.CANCELLED_MESSAGE;
+            }
+            return "The export failed: " + (e.getMessage() != null ? e.getMessage() : e);
+        } finally {
+            runningStatement = null;
+            DatabaseUtil.closeResultSet(resultSet);
+            DatabaseUtil.closeStatement(query);
+            DatabaseUtil.closeConnection(connection);
+        }
+    }
+
+    /**
+     * This method runs the statements of a script file one at a time and
+     * writes the rows of every result set to a file of its own in the given
+     * directory, named result-1, result-2 and so on with the extension of the
+     * format. Rows are streamed to the files as they are read, and no table
+     * model is created, so the script can be run without a user interface.
+     *
+     * @param script the reader of the script
+     * @param properties the database connection properties
+     * @param options the query options
+     * @param directory the directory receiving the result files
+     * @param format the export format
+     * @param gzip true to compress the files with gzip
+     * @param listener the listener receiving progress reports
+     * @return a message describing the outcome of the run
+     * @throws SQLException if a statement fails
+     * @throws IOException if the script cannot be read or a file cannot be
+     * written
+     */
+    public String exportScript(SqlScriptReader script, ConnectionProperties properties,
+            QueryOptions options, Path directory, ExportFormat format, boolean gzip,
+            ExportListener listener) throws SQLException, IOException {
+
+        long startTime = System.nanoTime();
+        long resultCount = 0;
+        long rowsWritten = 0;
+        long rowsChanged = 0;
+        Connection connection = null;
+        Statement query = null;
+        ResultSet resultSet = null;
+
+        try {
+            connection = ConnectionPoolManager.getInstance().getPool(properties)
+                    .borrowConnection();
+            QueryOptions exportOptions = new QueryOptions(options);
+            if (exportOptions.getFetchMode() == null
+                    && properties.getFetchMode() == FetchMode.BUFFERED) {
+                exportOptions.setFetchMode(FetchMode.STREAMING);
+            }
+            String extension = "." + format.getExtension() + (gzip ? ".gz" : "");
+
+            while (!cancelled && script.hasNext()) {
+                String statement = script.next();
+                query = DatabaseUtil.createStatement(connection, statement, properties,
+                        exportOptions);
+                query.setQueryTimeout(options.getQueryTimeout());
+                runningStatement = query;
+                boolean isResultSet = query instanceof PreparedStatement
+                        ? ((PreparedStatement) query).execute() : query.execute(statement);
+                int updateCount = query.getUpdateCount();
+                while ((isResultSet || updateCount != -1) && !cancelled) {
+                    if (isResultSet) {
+                        resultSet = query.getResultSet();
+                        Path file = directory.resolve("result-" + ++resultCount + extension);
+                        rowsWritten += writeFile(resultSet, file, format, gzip, listener);
+                        DatabaseUtil.closeResultSet(resultSet);
+                        resultSet = null;
+                    } else {
+                        rowsChanged += updateCount;
+                    }
+                    isResultSet = query.getMoreResults();
+                    updateCount = query.getUpdateCount();
+                }
+                runningStatement = null;
+                DatabaseUtil.closeStatement(query);
+                query = null;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            runningStatement = null;
+            DatabaseUtil.closeResultSet(resultSet);
+            DatabaseUtil.closeStatement(query);
+            DatabaseUtil.closeConnection(connection);
+        }
+
+        double seconds = Math.max(0.001, (System.nanoTime() - startTime) / 1e9);
+        return String.format("%sExecuted %,d statements in %.1f s: %,d rows written to %,d"
+                + " files, %,d rows changed.", cancelled ? AnyQueryDataAccess.CANCELLED_MESSAGE
+                + " " : "", script.getStatementCount(), seconds, rowsWritten, resultCount,
+                rowsChanged);
+    }
+
+    /**
+     * This method cancels the export. The statement is stopped on the server
+     * and no further rows are written. This may block while the driver
+     * contacts the server, so it should not be called on the event dispatch
+     * thread.
+     */
+    public void cancel() {
+        cancelled = true;
+        Statement statement = runningStatement;
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException ex) {
+                Logger.getLogger(ExportDataAccess.class.getName()).log(Level.INFO,
+                        "Connection exception occurred during ExportDataAccess.cancel.", ex);
+            }
+        }
+    }
+
+    /**
+     * This method determines whether cancellation of the export was
+     * requested.
+     *
+     * @return true if the export was cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * This method writes the rows of the result set to a new file, compressed
+     * with gzip if requested. The file is deleted if writing fails or the
+     * export is cancelled.
+     *
+     * @param resultSet the result set
+     * @param file the file to write
+     * @param format the export format
+     * @param gzip true to compress the file with gzip
+     * @param listener the listener receiving progress reports
+     * @return the number of rows written
+     * @throws SQLException if the rows cannot be read
+     * @throws IOException if the file cannot be written
+     */
+    private long writeFile(ResultSet resultSet, Path file, ExportFormat format, boolean gzip,
+            ExportListener listener) throws SQLException, IOException {
+
+        FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        WritableByteChannel output = fileChannel;
+        boolean complete = false;
+        try {
+            if (gzip) {
+                OutputStream compressed = new GZIPOutputStream(
+                        Channels.newOutputStream(fileChannel), BYTE_BUFFER_SIZE);
+                output = Channels.newChannel(compressed);
+            }
+            long rows = writeRows(resultSet, format.createFormatter(), output, fileChannel,
+                    listener);
+            output.close();
+            complete = !cancelled;
+            return rows;
+        } finally {
+            closeChannel(output);
+            closeChannel(fileChannel);
+            if (!complete) {
+                deleteFile(file);
+            }
+        }
+    }
+
+    /**
+     * This method formats the rows of the result set and writes them to the
+     * output channel, reporting progress as it goes.
+     *
+     * @param resultSet the result set
+     * @param formatter the row formatter
+     * @param output the channel receiving the encoded text
+     * @param fileChannel the channel of the file, used for the size written
+     * @param listener the listener receiving progress reports
+     * @return the number of rows written
+     * @throws SQLException if the rows cannot be read
+     * @throws IOException if the file cannot be written
+     */
+    private long writeRows(ResultSet resultSet, RowFormatter formatter,
+            WritableByteChannel output, FileChannel fileChannel, ExportListener listener)
+            throws SQLException, IOException {
+
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        String[] columnNames = new String[metaData.getColumnCount()];
+        int[] columnTypes = new int[columnNames.length];
+        for (int column = 0; column < columnNames.length; column++) {
+            columnNames[column] = metaData.getColumnLabel(column + 1);
+            columnTypes[column] = metaData.getColumnType(column + 1);
+        }
+
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        ByteBuffer bytes = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE);
+        StringBuilder text = new StringBuilder(WRITE_BUFFER_CHARS + 1024);
+        formatter.writeHeader(columnNames, columnTypes, text);
+
+        long rows = 0;
+        long nextReport = System.currentTimeMillis() + PROGRESS_INTERVAL_MILLIS;
+        while (!cancelled && resultSet.next()) {
+            formatter.writeRow(resultSet, text);
+            rows++;
+            if (text.length() >= WRITE_BUFFER_CHARS) {
+                writeText(text, encoder, bytes, output);
+                long now = System.currentTimeMillis();
+                if (now >= nextReport) {
+                    listener.exportProgress(rows, fileChannel.position());
+                    nextReport = now + PROGRESS_INTERVAL_MILLIS;
+                }
+            }
+        }
+        writeText(text, encoder, bytes, output);
+        return rows;
+    }
+
+    /**
+     * This method encodes the buffered text as UTF-8, writes it to the output
+     * channel and empties the text buffer.
+     *
+     * @param text the buffered text
+     * @param encoder the UTF-8 encoder
+     * @param bytes the buffer holding encoded bytes
+     * @param output the channel receiving the bytes
+     * @throws IOException if the bytes cannot be written
+     */
+    private void writeText(StringBuilder text, CharsetEncoder encoder, ByteBuffer bytes,
+            WritableByteChannel output) throws IOException {
+
+        CharBuffer chars = CharBuffer.wrap(text);
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, true);
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                output.write(bytes);
+            }
+            bytes.clear();
+            if (result.isUnderflow()) {
+                break;
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+        }
+        encoder.reset();
+        text.setLength(0);
+    }
+
+    /**
+     * This method closes a channel, logging any exception.
+     *
+     * @param channel the channel, or null
+     */
+    private void closeChannel(WritableByteChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                Logger.getLogger(ExportDataAccess.class.getName()).log(Level.INFO,
+                        "Exception occurred closing the export file.", ex);
+            }
+        }
+    }
+
+    /**
+     * This method deletes a partly written export file, logging any
+     * exception.
+     *
+     * @param file the file
+     */
+    private void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            Logger.getLogger(ExportDataAccess.class.getName()).log(Level.INFO,
+                    "Exception occurred deleting a partial export file.", ex);
+        }
+    }
+}
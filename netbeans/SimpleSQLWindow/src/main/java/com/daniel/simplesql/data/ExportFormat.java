@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+/**
+ * This enumeration lists the file formats query results can be exported to.
+ *
+ * @author Bryan Daniel
+ */
+public enum ExportFormat {
+
+    /**
+     * Comma-separated values with quoted fields
+     */
+    CSV("CSV", "csv"),
+
+    /**
+     * Tab-separated values with backslash escapes
+     */
+    TSV("TSV", "tsv"),
+
+    /**
+     * One JSON object per line
+     */
+    JSON_LINES("JSON Lines", "jsonl");
+
+    /**
+     * The name shown for the format
+     */
+    private final String displayName;
+
+    /**
+     * The file name extension of the format
+     */
+    private final String extension;
+
+    /**
+     * This constructor sets the display name and extension of the format.
+     *
+     * @param displayName the display name
+     * @param extension the file name extension
+     */
+    private ExportFormat(String displayName, String extension) {
+        this.displayName = displayName;
+        this.extension = extension;
+    }
+
+    /**
+     * This method creates a formatter writing rows in this format.
+     *
+     * @return the row formatter
+     */
+    public RowFormatter createFormatter() {
+        switch (this) {
+            case TSV:
+                return new DelimitedRowFormatter('\t', true);
+            case JSON_LINES:
+                return new JsonLinesRowFormatter();
+            default:
+                return new DelimitedRowFormatter(',', false);
+        }
+    }
+
+    /**
+     * This method returns the file name extension of the format.
+     *
+     * @return the extension without a dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * This method returns the name shown for the format.
+     *
+     * @return the display name
+     */
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
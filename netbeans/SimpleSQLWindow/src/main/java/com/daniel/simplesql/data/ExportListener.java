@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+/**
+ * This interface receives progress reports while query results are exported.
+ * Reports are made on the thread running the export, a few times a second.
+ *
+ * @author Bryan Daniel
+ */
+public interface ExportListener {
+
+    /**
+     * This method is called with the progress of the export so far.
+     *
+     * @param rows the number of rows written
+     * @param bytes the number of bytes written to the file
+     */
+    public void exportProgress(long rows, long bytes);
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * This formatter writes each row as a JSON object on its own line, keyed by
+ * column name. Numeric and boolean columns are written as JSON numbers and
+ * booleans; all other values are written as strings.
+ *
+ * @author Bryan Daniel
+ */
+public class JsonLinesRowFormatter implements RowFormatter {
+
+    /**
+     * The quoted column names followed by a colon
+     */
+    private String[] keys;
+
+    /**
+     * The java.sql.Types code of each column
+     */
+    private int[] columnTypes;
+
+    /**
+     * This method prepares the keys of each object. JSON Lines has no
+     * header, so nothing is written.
+     *
+     * @param columnNames the column names
+     * @param columnTypes the java.sql.Types code of each column
+     * @param out the buffer receiving the text
+     */
+    @Override
+    public void writeHeader(String[] columnNames, int[] columnTypes, StringBuilder out) {
+        this.columnTypes = columnTypes;
+        keys = new String[columnNames.length];
+        StringBuilder key = new StringBuilder();
+        for (int column = 0; column < keys.length; column++) {
+            key.setLength(0);
+            appendString(columnNames[column], key);
+            keys[column] = key.append(':').toString();
+        }
+    }
+
+    /**
+     * This method writes the current row of the result set as one JSON
+     * object.
+     *
+     * @param resultSet the result set positioned on a row
+     * @param out the buffer receiving the text
+     * @throws SQLException if the row cannot be read
+     */
+    @Override
+    public void writeRow(ResultSet resultSet, StringBuilder out) throws SQLException {
+        out.append('{');
+        for (int column = 0; column < keys.length; column++) {
+            if (column > 0) {
+                out.append(',');
+            }
+            out.append(keys[column]);
+            switch (columnTypes[column]) {
+                case Types.BIT:
+                case Types.BOOLEAN:
+                    boolean flag = resultSet.getBoolean(column + 1);
+                    out.append(resultSet.wasNull() ? "null" : String.valueOf(flag));
+                    break;
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    String number = resultSet.getString(column + 1);
+                    if (number == null) {
+                        out.append("null");
+                    } else if (isJsonNumber(number)) {
+                        out.append(number);
+                    } else {
+                        // NaN and infinities have no JSON number form
+                        appendString(number, out);
+                    }
+                    break;
+                default:
+                    String value = resultSet.getString(column + 1);
+                    if (value == null) {
+                        out.append("null");
+                    } else {
+                        appendString(value, out);
+                    }
+                    break;
+            }
+        }
+        out.append("}\n");
+    }
+
+    /**
+     * This method determines whether the text of a numeric value is a valid
+     * JSON number.
+     *
+     * @param number the text of the value
+     * @return true if the text can be written unquoted
+     */
+    private static boolean isJsonNumber(String number) {
+        for (int index = 0; index < number.length(); index++) {
+            char current = number.charAt(index);
+            if (!(current >= '0' && current <= '9') && current != '-' && current != '+'
+                    && current != '.' && current != 'e' && current != 'E') {
+                return false;
+            }
+        }
+        return !number.isEmpty() && number.charAt(number.length() - 1) != '.';
+    }
+
+    /**
+     * This method appends a quoted JSON string.
+     *
+     * @param value the string
+     * @param out the buffer receiving the text
+     */
+    private static void appendString(String value, StringBuilder out) {
+        out.append('"');
+        for (int index = 0; index < value.length(); index++) {
+            char current = value.charAt(index);
+            switch (current) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (current < 0x20) {
+                        out.append(String.format("\\u%04x", (int) current));
+                    } else {
+                        out.append(current);
+                    }
+                    break;
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * This class wraps a physical connection owned by a ConnectionPool. The proxy
+ * handed to callers returns the physical connection to the pool when closed
+ * instead of closing it, so existing code that closes connections through
+ * DatabaseUtil works unchanged.
+ *
+ * @author Bryan Daniel
+ */
+class PooledConnection {
+
+    /**
+     * The pool that owns the physical connection
+     */
+    private final ConnectionPool pool;
+
+    /**
+     * The physical database connection
+     */
+    private final Connection physicalConnection;
+
+    /**
+     * The time the physical connection was opened
+     */
+    private final long createdMillis;
+
+    /**
+     * The time the connection was last returned to the pool
+     */
+    private long lastReturnedMillis;
+
+    /**
+     * The time the connection was last known to reach the server
+     */
+    private long lastVerifiedMillis;
+
+    /**
+     * The time the connection was last borrowed from the pool
+     */
+    private long borrowedMillis;
+
+    /**
+     * The stack trace of the most recent borrower, kept for leak reports
+     */
+    private Throwable borrowTrace;
+
+    /**
+     * Indicates a leak has already been reported for the current borrow
+     */
+    private boolean leakReported;
+
+    /**
+     * The proxy handed out for the current borrow
+     */
+    private Connection proxy;
+
+    /**
+     * Indicates the connection has left the pool and is closed with its
+     * proxy
+     */
+    private boolean detached;
+
+    /**
+     * This constructor sets the owning pool and the physical connection.
+     *
+     * @param pool the owning pool
+     * @param physicalConnection the physical connection
+     */
+    PooledConnection(ConnectionPool pool, Connection physicalConnection) {
+        this.pool = pool;
+        this.physicalConnection = physicalConnection;
+        this.createdMillis = System.currentTimeMillis();
+        this.lastReturnedMillis = createdMillis;
+        this.lastVerifiedMillis = createdMillis;
+    }
+
+    /**
+     * This method marks the connection as borrowed and creates a new proxy for
+     * the borrower. A fresh proxy per borrow ensures a stale reference from an
+     * earlier borrower cannot use or return the connection again.
+     *
+     * @return the proxy connection for the borrower
+     */
+    synchronized Connection borrow() {
+        borrowedMillis = System.currentTimeMillis();
+        borrowTrace = new Throwable("Connection borrowed here");
+        leakReported = false;
+        proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ProxyHandler());
+        return proxy;
+    }
+
+    /**
+     * This method marks the connection as idle in the pool.
+     */
+    synchronized void markReturned() {
+        proxy = null;
+        borrowTrace = null;
+        lastReturnedMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * This method records that the connection has just been shown to reach
+     * the server.
+     */
+    synchronized void markVerified() {
+        lastVerifiedMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * This method indicates whether the connection was shown to reach the
+     * server within the given time.
+     *
+     * @param millis the time in milliseconds
+     * @return true if the connection was verified within the time
+     */
+    synchronized boolean verifiedWithin(long millis) {
+        return System.currentTimeMillis() - lastVerifiedMillis < millis;
+    }
+
+    /**
+     * This method determines whether the given connection is the proxy of
+     * the current borrow.
+     *
+     * @param connection the connection
+     * @return true if it is the current proxy
+     */
+    synchronized boolean isProxy(Connection connection) {
+        return proxy != null && proxy == connection;
+    }
+
+    /**
+     * This method marks the connection as no longer owned by the pool, so
+     * closing the current proxy closes the physical connection.
+     */
+    synchronized void markDetached() {
+        detached = true;
+        borrowTrace = null;
+    }
+
+    /**
+     * This method indicates whether the connection has left the pool.
+     *
+     * @return true if the connection is detached
+     */
+    synchronized boolean isDetached() {
+        return detached;
+    }
+
+    /**
+     * This method returns the physical connection.
+     *
+     * @return the physical connection
+     */
+    Connection getPhysicalConnection() {
+        return physicalConnection;
+    }
+
+    /**
+     * This method returns the time the physical connection was opened.
+     *
+     * @return the creation time in milliseconds
+     */
+    long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    /**
+     * This method returns the time the connection was last returned.
+     *
+     * @return the last return time in milliseconds
+     */
+    synchronized long getLastReturnedMillis() {
+        return lastReturnedMillis;
+    }
+
+    /**
+     * This method returns the time the connection was last borrowed.
+     *
+     * @return the last borrow time in milliseconds
+     */
+    synchronized long getBorrowedMillis() {
+        return borrowedMillis;
+    }
+
+    /**
+     * This method returns the stack trace of the current borrower and marks
+     * the leak as reported so it is only logged once per borrow.
+     *
+     * @return the borrow trace, or null if a leak was already reported
+     */
+    synchronized Throwable takeLeakTrace() {
+        if (leakReported || proxy == null) {
+            return null;
+        }
+        leakReported = true;
+        return borrowTrace;
+    }
+
+    /**
+     * This handler serves a single borrow of the physical connection.
+     *
+     * @author Bryan Daniel
+     */
+    private class ProxyHandler implements InvocationHandler {
+
+        /**
+         * Indicates the borrower has closed this proxy
+         */
+        private boolean closed;
+
+        /**
+         * This method delegates calls to the physical connection, except for
+         * close and isClosed which manage the return to the pool.
+         *
+         * @param proxy the proxy instance
+         * @param method the invoked method
+         * @param args the method arguments
+         * @return the result of the invocation
+         * @throws Throwable if the invocation fails
+         */
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        if (isDetached()) {
+                            physicalConnection.close();
+                        } else {
+                            pool.returnConnection(PooledConnection.this);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physicalConnection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + physicalConnection + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("The connection has been returned to the pool.");
+            }
+            try {
+                return method.invoke(physicalConnection, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,429 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+import com.daniel.simplesql.model.HistoryEntry;
+import com.daniel.simplesql.model.QueryStatus;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class keeps every query run from the query window in an append-only
+ * log file, one line per query, so that no query is lost when the window is
+ * closed. The log is read only when the history is first searched, and an
+ * inverted index from each word to the queries containing it is built then
+ * and kept up to date, so searching many thousands of queries takes no
+ * longer than typing. The class implements the Singleton design pattern so
+ * that every query window shares the same history.
+ *
+ * @author Bryan Daniel
+ */
+public class QueryHistory {
+
+    /**
+     * The name of the directory in the user's home directory holding the log
+     */
+    public static final String HISTORY_DIRECTORY = ".simplesqlwindow";
+
+    /**
+     * The name of the log file
+     */
+    public static final String HISTORY_FILE = "history.log";
+
+    /**
+     * The separator between the fields of a line of the log
+     */
+    private static final char FIELD_SEPARATOR = '\t';
+
+    /**
+     * The number of fields in a line of the log
+     */
+    private static final int FIELD_COUNT = 6;
+
+    /**
+     * The single QueryHistory object
+     */
+    private static QueryHistory history = null;
+
+    /**
+     * The log file
+     */
+    private final Path historyFile;
+
+    /**
+     * The recorded queries, oldest first, once the log has been read
+     */
+    private final List<HistoryEntry> entries = new ArrayList<>();
+
+    /**
+     * The numbers of the entries containing each word, in ascending order
+     */
+    private final TreeMap<String, PostingList> index = new TreeMap<>();
+
+    /**
+     * Indicates the log has been read into memory
+     */
+    private boolean loaded;
+
+    /**
+     * The query recorded last in this session
+     */
+    private String lastQuery;
+
+    /**
+     * Private constructor - not called publicly
+     *
+     * @param historyFile the log file
+     */
+    private QueryHistory(Path historyFile) {
+        this.historyFile = historyFile;
+    }
+
+    /**
+     * This method returns the single QueryHistory. If the instance has not
+     * been created previously, it is created here; the log is not read until
+     * the history is searched.
+     *
+     * @return the QueryHistory object
+     */
+    public synchronized static QueryHistory getInstance() {
+        if (history == null) {
+            history = new QueryHistory(Paths.get(System.getProperty("user.home"),
+                    HISTORY_DIRECTORY, HISTORY_FILE));
+        }
+        return history;
+    }
+
+    /**
+     * This method records a query that was run. Blank queries are ignored.
+     * A failure to write the log is logged and otherwise ignored.
+     *
+     * @param query the query text
+     * @param database the name of the database the query ran against
+     * @param elapsedMillis the time taken to run the query in milliseconds
+     * @param rows the number of rows read
+     * @param status the outcome of the query
+     */
+    public synchronized void record(String query, String database, long elapsedMillis,
+            long rows, QueryStatus status) {
+        if (query == null || query.trim().isEmpty()) {
+            return;
+        }
+        HistoryEntry entry = new HistoryEntry(System.currentTimeMillis(), elapsedMillis, rows,
+                status, database == null ? "" : database, query);
+        try {
+            Files.createDirectories(historyFile.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(historyFile,
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(formatLine(entry));
+                writer.newLine();
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(QueryHistory.class.getName()).log(Level.INFO,
+                    "Exception occurred writing the query history.", ex);
+        }
+        lastQuery = query;
+        if (loaded) {
+            addEntry(entry);
+        }
+    }
+
+    /**
+     * This method records a query that was typed but not run, unless it is
+     * the query recorded last in this session.
+     *
+     * @param query the query text
+     * @param database the name of the database the query would run against
+     */
+    public synchronized void recordUnrun(String query, String database) {
+        if (query != null && !query.equals(lastQuery)) {
+            record(query, database, 0, 0, QueryStatus.NOT_RUN);
+        }
+    }
+
+    /**
+     * This method returns the most recent queries containing every word of
+     * the search text, newest first. Each word matches the words of a query
+     * that begin with it, ignoring case, so the search can be run as the text
+     * is typed. Blank search text matches every query. The log is read the
+     * first time this is called.
+     *
+     * @param searchText the search text
+     * @param limit the largest number of queries returned
+     * @return the matching queries
+     */
+    public synchronized List<HistoryEntry> search(String searchText, int limit) {
+        load();
+        BitSet matches = null;
+        for (String term : tokenize(searchText)) {
+            BitSet termMatches = new BitSet(entries.size());
+            String termEnd = term + Character.MAX_VALUE;
+            for (PostingList postings : index.subMap(term, termEnd).values()) {
+                postings.addTo(termMatches);
+            }
+            if (matches == null) {
+                matches = termMatches;
+            } else {
+                matches.and(termMatches);
+            }
+            if (matches.isEmpty()) {
+                break;
+            }
+        }
+        List<HistoryEntry> results = new ArrayList<>();
+        int number = matches == null ? entries.size() - 1 : matches.length() - 1;
+        while (number >= 0 && results.size() < limit) {
+            results.add(entries.get(number));
+            number = matches == null ? number - 1 : matches.previousSetBit(number - 1);
+        }
+        return results;
+    }
+
+    /**
+     * This method returns the number of recorded queries. The log is read the
+     * first time this is called.
+     *
+     * @return the number of queries
+     */
+    public synchronized int size() {
+        load();
+        return entries.size();
+    }
+
+    /**
+     * This method reads the log into memory and indexes it, if that has not
+     * been done yet. Lines that cannot be parsed are skipped.
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try (BufferedReader reader = Files.newBufferedReader(historyFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                HistoryEntry entry = parseLine(line);
+                if (entry != null) {
+                    addEntry(entry);
+                }
+            }
+        } catch (NoSuchFileException ex) {
+            // nothing has been recorded yet
+        } catch (IOException ex) {
+            Logger.getLogger(QueryHistory.class.getName()).log(Level.INFO,
+                    "Exception occurred reading the query history.", ex);
+        }
+    }
+
+    /**
+     * This method adds an entry to the list and its words to the index.
+     *
+     * @param entry the entry
+     */
+    private void addEntry(HistoryEntry entry) {
+        int number = entries.size();
+        entries.add(entry);
+        for (String word : tokenize(entry.getQuery())) {
+            PostingList postings = index.get(word);
+            if (postings == null) {
+                postings = new PostingList();
+                index.put(word, postings);
+            }
+            postings.add(number);
+        }
+    }
+
+    /**
+     * This method splits text into its distinct lower-case words, which are
+     * the runs of letters, digits and underscores.
+     *
+     * @param text the text
+     * @return the words
+     */
+    private static Set<String> tokenize(String text) {
+        Set<String> words = new HashSet<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int index = 0; index <= text.length(); index++) {
+            boolean wordChar = index < text.length()
+                    && (Character.isLetterOrDigit(text.charAt(index)) || text.charAt(index) == '_');
+            if (wordChar && start == -1) {
+                start = index;
+            } else if (!wordChar && start != -1) {
+                words.add(text.substring(start, index).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * This method formats an entry as a line of the log. Backslashes, tabs
+     * and line breaks in the text fields are escaped so that each entry takes
+     * exactly one line.
+     *
+     * @param entry the entry
+     * @return the line
+     */
+    private static String formatLine(HistoryEntry entry) {
+        return new StringBuilder()
+                .append(entry.getTime()).append(FIELD_SEPARATOR)
+                .append(entry.getElapsedMillis()).append(FIELD_SEPARATOR)
+                .append(entry.getRows()).append(FIELD_SEPARATOR)
+                .append(entry.getStatus().name()).append(FIELD_SEPARATOR)
+                .append(escape(entry.getDatabase())).append(FIELD_SEPARATOR)
+                .append(escape(entry.getQuery()))
+                .toString();
+    }
+
+    /**
+     * This method parses a line of the log.
+     *
+     * @param line the line
+     * @return the entry, or null if the line is not a valid entry
+     */
+    private static HistoryEntry parseLine(String line) {
+        String[] fields = line.split(String.valueOf(FIELD_SEPARATOR), FIELD_COUNT);
+        if (fields.length != FIELD_COUNT) {
+            return null;
+        }
+        try {
+            return new HistoryEntry(Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                    Long.parseLong(fields[2]), QueryStatus.valueOf(fields[3]),
+                    unescape(fields[4]), unescape(fields[5]));
+        } catch (IllegalArgumentException ex) {
+            Logger.getLogger(QueryHistory.class.getName()).log(Level.FINE,
+                    "Skipped an invalid line of the query history.", ex);
+            return null;
+        }
+    }
+
+    /**
+     * This method escapes the backslashes, tabs and line breaks of a field.
+     *
+     * @param text the field text
+     * @return the escaped text
+     */
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 16);
+        for (int index = 0; index < text.length(); index++) {
+            char c = text.charAt(index);
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                default:
+                    escaped.append(c);
+                    break;
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * This method reverses escape.
+     *
+     * @param text the escaped text
+     * @return the field text
+     */
+    private static String unescape(String text) {
+        if (text.indexOf('\\') == -1) {
+            return text;
+        }
+        StringBuilder unescaped = new StringBuilder(text.length());
+        for (int index = 0; index < text.length(); index++) {
+            char c = text.charAt(index);
+            if (c != '\\' || index + 1 == text.length()) {
+                unescaped.append(c);
+                continue;
+            }
+            char next = text.charAt(++index);
+            unescaped.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+        }
+        return unescaped.toString();
+    }
+
+    /**
+     * This class holds the numbers of the entries containing a word in
+     * ascending order.
+     *
+     * @author Bryan Daniel
+     */
+    private static class PostingList {
+
+        /**
+         * The entry numbers
+         */
+        private int[] numbers = new int[4];
+
+        /**
+         * The number of entry numbers held
+         */
+        private int size;
+
+        /**
+         * This method adds an entry number, which is never below the last one
+         * added.
+         *
+         * @param number the entry number
+         */
+        private void add(int number) {
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+            }
+            numbers[size++] = number;
+        }
+
+        /**
+         * This method sets the bits of the entry numbers held.
+         *
+         * @param bits the bits to set
+         */
+        private void addTo(BitSet bits) {
+            for (int index = 0; index < size; index++) {
+                bits.set(numbers[index]);
+            }
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+import com.daniel.simplesql.model.ConnectionProperties;
+import com.daniel.simplesql.util.DatabaseUtil;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * This class keeps one long-lived connection for a query window so that
+ * session state, such as temporary tables, user variables and an open
+ * transaction, survives from one run to the next. Runs use the connection one
+ * at a time; a run borrowing it while another holds it waits for the other to
+ * finish. Closing a borrowed connection gives it back to the session instead
+ * of closing it. Transactions are begun, committed and rolled back explicitly
+ * through the session.
+ *
+ * @author Bryan Daniel
+ */
+public class QuerySession {
+
+    /**
+     * The database connection properties
+     */
+    private final ConnectionProperties properties;
+
+    /**
+     * The permit held by the current user of the connection
+     */
+    private final Semaphore inUse = new Semaphore(1);
+
+    /**
+     * The session connection, or null until it is first needed
+     */
+    private Connection connection;
+
+    /**
+     * Indicates a transaction begun through the session is open
+     */
+    private volatile boolean inTransaction;
+
+    /**
+     * Indicates the session has been closed
+     */
+    private volatile boolean closed;
+
+    /**
+     * This constructor sets the connection properties of the session. The
+     * connection is opened when it is first borrowed.
+     *
+     * @param properties the database connection properties
+     */
+    public QuerySession(ConnectionProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * This method borrows the session connection, waiting while another run
+     * holds it and opening it if it is not open. If the connection was lost
+     * while a transaction was open, the loss is reported once and the next
+     * borrow opens a new connection. Closing the returned connection gives it
+     * back to the session.
+     *
+     * @return the borrowed connection
+     * @throws SQLException if the connection cannot be obtained
+     */
+    public Connection borrowConnection() throws SQLException {
+        acquire();
+        try {
+            Connection sessionConnection = getOpenConnection();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new ProxyHandler(sessionConnection));
+        } catch (SQLException | RuntimeException ex) {
+            inUse.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * This method begins a transaction on the session connection. Statements
+     * run afterwards are not committed until the transaction is committed.
+     *
+     * @throws SQLException if a transaction is already open or the connection
+     * fails
+     */
+    public void begin() throws SQLException {
+        acquire();
+        try {
+            if (inTransaction) {
+                throw new SQLException("A transaction is already open.");
+            }
+            getOpenConnection().setAutoCommit(false);
+            inTransaction = true;
+        } finally {
+            inUse.release();
+        }
+    }
+
+    /**
+     * This method commits the open transaction and returns the connection to
+     * committing every statement.
+     *
+     * @throws SQLException if no transaction is open or the commit fails
+     */
+    public void commit() throws SQLException {
+        endTransaction(true);
+    }
+
+    /**
+     * This method rolls back the open transaction and returns the connection
+     * to committing every statement.
+     *
+     * @throws SQLException if no transaction is open or the rollback fails
+     */
+    public void rollback() throws SQLException {
+        endTransaction(false);
+    }
+
+    /**
+     * This method indicates whether a transaction begun through the session
+     * is open.
+     *
+     * @return true if a transaction is open
+     */
+    public boolean isInTransaction() {
+        return inTransaction;
+    }
+
+    /**
+     * This method closes the session, rolling back an open transaction. It
+     * waits for a run holding the connection to finish, so a running query
+     * should be cancelled first, and it should not be called on the event
+     * dispatch thread.
+     */
+    public void close() {
+        closed = true;
+        inUse.acquireUninterruptibly();
+        try {
+            if (connection != null && inTransaction) {
+                try {
+                    connection.rollback();
+                } catch (SQLException ex) {
+                    // the connection is closed below either way
+                }
+            }
+            DatabaseUtil.closeConnection(connection);
+            connection = null;
+            inTransaction = false;
+        } finally {
+            inUse.release();
+        }
+    }
+
+    /**
+     * This method commits or rolls back the open transaction.
+     *
+     * @param commit true to commit, false to roll back
+     * @throws SQLException if no transaction is open or the connection fails
+     */
+    private void endTransaction(boolean commit) throws SQLException {
+        acquire();
+        try {
+            if (!inTransaction) {
+                throw new SQLException("No transaction is open.");
+            }
+            Connection sessionConnection = getOpenConnection();
+            // the transaction is over even if ending it fails
+            inTransaction = false;
+            try {
+                if (commit) {
+                    sessionConnection.commit();
+                } else {
+                    sessionConnection.rollback();
+                }
+            } finally {
+                sessionConnection.setAutoCommit(true);
+            }
+        } finally {
+            inUse.release();
+        }
+    }
+
+    /**
+     * This method waits for the permit to use the connection.
+     *
+     * @throws SQLException if the session is closed or the wait is
+     * interrupted
+     */
+    private void acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("The session has been closed.");
+        }
+        try {
+            inUse.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for the session connection.", ex);
+        }
+        if (closed) {
+            inUse.release();
+            throw new SQLException("The session has been closed.");
+        }
+    }
+
+    /**
+     * This method returns the session connection, opening it if necessary.
+     * The caller must hold the permit.
+     *
+     * @return the open connection
+     * @throws SQLException if the connection cannot be opened, or was lost
+     * with a transaction open
+     */
+    private Connection getOpenConnection() throws SQLException {
+        if (connection != null && connection.isClosed()) {
+            connection = null;
+            if (inTransaction) {
+                inTransaction = false;
+                throw new SQLException("The session connection was lost and its open"
+                        + " transaction was rolled back.");
+            }
+        }
+        if (connection == null) {
+            connection = ConnectionPoolManager.getInstance().getPool(properties)
+                    .openDedicatedConnection();
+        }
+        return connection;
+    }
+
+    /**
+     * This handler serves a single borrow of the session connection.
+     *
+     * @author Bryan Daniel
+     */
+    private class ProxyHandler implements InvocationHandler {
+
+        /**
+         * The session connection
+         */
+        private final Connection sessionConnection;
+
+        /**
+         * Indicates the borrower has given the connection back
+         */
+        private boolean closed;
+
+        /**
+         * This constructor sets the session connection served by the proxy.
+         *
+         * @param sessionConnection the session connection
+         */
+        private ProxyHandler(Connection sessionConnection) {
+            this.sessionConnection = sessionConnection;
+        }
+
+        /**
+         * This method delegates calls to the session connection, except for
+         * close and isClosed which manage the return to the session.
+         *
+         * @param proxy the proxy instance
+         * @param method the invoked method
+         * @param args the method arguments
+         * @return the result of the invocation
+         * @throws Throwable if the invocation fails
+         */
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        inUse.release();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || sessionConnection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Session[" + sessionConnection + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("The connection has been returned to the session.");
+            }
+            try {
+                return method.invoke(sessionConnection, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+import com.daniel.simplesql.model.ColumnarTableModel;
+import com.daniel.simplesql.model.ConnectionProperties;
+import com.daniel.simplesql.util.SqlUtil;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class keeps the results of recent SELECT statements so that running
+ * the same statement again can be answered without contacting the server.
+ * Entries are keyed by the normalized statement text and the connection
+ * properties, expire after a time to live, and are evicted least recently
+ * used first once the cache passes its size limit. Running a statement that
+ * changes data through the application removes the entries that read the
+ * tables it names. The class implements the Singleton design pattern so that
+ * every query window shares the same cache.
+ *
+ * @author Bryan Daniel
+ */
+public class ResultCache {
+
+    /**
+     * The default limit on the estimated size of the cached results in bytes
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * The largest number of cached results
+     */
+    public static final int MAX_ENTRIES = 200;
+
+    /**
+     * The single ResultCache object
+     */
+    private static ResultCache cache = null;
+
+    /**
+     * The cached results in least-recently-used order
+     */
+    private final LinkedHashMap<CacheKey, CacheEntry> entries
+            = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The limit on the estimated size of the cached results in bytes
+     */
+    private long maxBytes = DEFAULT_MAX_BYTES;
+
+    /**
+     * The estimated size of the cached results in bytes
+     */
+    private long totalBytes;
+
+    /**
+     * The number of lookups answered from the cache
+     */
+    private long hits;
+
+    /**
+     * The number of lookups that found no usable result
+     */
+    private long misses;
+
+    /**
+     * The number of results removed to respect the size limit
+     */
+    private long evictions;
+
+    /**
+     * The number of results removed because their tables were changed
+     */
+    private long invalidations;
+
+    /**
+     * Private constructor - not called publicly
+     */
+    private ResultCache() {
+    }
+
+    /**
+     * This method returns the single ResultCache. If the instance has not
+     * been created previously, it is created here.
+     *
+     * @return the ResultCache object
+     */
+    public synchronized static ResultCache getInstance() {
+        if (cache == null) {
+            cache = new ResultCache();
+        }
+        return cache;
+    }
+
+    /**
+     * This method returns the cached result of the statement, or null if
+     * there is none younger than the time to live. The returned model is
+     * shared and must not be modified.
+     *
+     * @param properties the database connection properties
+     * @param statement the SELECT statement
+     * @param timeToLive the age in milliseconds after which a result is stale
+     * @return the cached result, or null
+     */
+    public synchronized ColumnarTableModel get(ConnectionProperties properties, String statement,
+            long timeToLive) {
+        CacheKey key = new CacheKey(properties, SqlUtil.normalize(statement));
+        CacheEntry entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.created > timeToLive) {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.result;
+    }
+
+    /**
+     * This method caches the complete result of a SELECT statement, evicting
+     * the least recently used results if the cache grows past its limit.
+     * Results larger than a quarter of the limit are not cached.
+     *
+     * @param properties the database connection properties
+     * @param statement the SELECT statement
+     * @param result the complete result, which must not be modified afterwards
+     */
+    public synchronized void put(ConnectionProperties properties, String statement,
+            ColumnarTableModel result) {
+        long bytes = result.estimateMemoryUsage();
+        if (bytes > maxBytes / 4) {
+            return;
+        }
+        CacheKey key = new CacheKey((ConnectionProperties) properties.clone(),
+                SqlUtil.normalize(statement));
+        remove(key);
+        entries.put(key, new CacheEntry(result, SqlUtil.referencedTables(statement), bytes));
+        totalBytes += bytes;
+        evictToLimit();
+    }
+
+    /**
+     * This method removes the cached results made stale by the statements in
+     * the query string. For each statement that changes data or schema, the
+     * results reading any table it names are removed; if no table can be
+     * found in such a statement, every result for the connection is removed.
+     *
+     * @param properties the database connection properties
+     * @param queryString the statements being run
+     */
+    public synchronized void invalidate(ConnectionProperties properties, String queryString) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        for (String statement : SqlUtil.splitStatements(queryString)) {
+            if (SqlUtil.isReadOnly(statement)) {
+                continue;
+            }
+            Set<String> tables = SqlUtil.referencedTables(statement);
+            Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<CacheKey, CacheEntry> entry = iterator.next();
+                if (entry.getKey().properties.equals(properties) && (tables.isEmpty()
+                        || !Collections.disjoint(tables, entry.getValue().tables))) {
+                    totalBytes -= entry.getValue().bytes;
+                    iterator.remove();
+                    invalidations++;
+                }
+            }
+        }
+    }
+
+    /**
+     * This method removes every cached result for the connection.
+     *
+     * @param properties the database connection properties
+     */
+    public synchronized void invalidate(ConnectionProperties properties) {
+        Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<CacheKey, CacheEntry> entry = iterator.next();
+            if (entry.getKey().properties.equals(properties)) {
+                totalBytes -= entry.getValue().bytes;
+                iterator.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * This method removes every cached result.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * This method sets the limit on the estimated size of the cached results,
+     * evicting results if the cache is now over the limit.
+     *
+     * @param maxBytes the limit in bytes
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        evictToLimit();
+    }
+
+    /**
+     * This method returns the limit on the estimated size of the cached
+     * results.
+     *
+     * @return the limit in bytes
+     */
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * This method returns a summary of the cache contents and counters.
+     *
+     * @return the statistics text
+     */
+    public synchronized String getStatistics() {
+        long lookups = hits + misses;
+        return String.format("%,d results cached (%,.1f of %,.1f MB)%n"
+                + "%,d hits, %,d misses (%.1f%% hit rate)%n"
+                + "%,d evicted, %,d invalidated by changes",
+                entries.size(), totalBytes / (1024.0 * 1024.0), maxBytes / (1024.0 * 1024.0),
+                hits, misses, lookups == 0 ? 0.0 : hits * 100.0 / lookups,
+                evictions, invalidations);
+    }
+
+    /**
+     * This method returns the number of lookups answered from the cache.
+     *
+     * @return the hit count
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * This method returns the number of lookups that found no usable result.
+     *
+     * @return the miss count
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * This method removes the entry for a key, if present.
+     *
+     * @param key the cache key
+     */
+    private void remove(CacheKey key) {
+        CacheEntry removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.bytes;
+        }
+    }
+
+    /**
+     * This method evicts the least recently used results until the cache is
+     * within its limits.
+     */
+    private void evictToLimit() {
+        Iterator<CacheEntry> iterator = entries.values().iterator();
+        while ((totalBytes > maxBytes || entries.size() > MAX_ENTRIES) && iterator.hasNext()) {
+            totalBytes -= iterator.next().bytes;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * This class identifies a cached result by its connection and statement.
+     *
+     * @author Bryan Daniel
+     */
+    private static class CacheKey {
+
+        /**
+         * The database connection properties
+         */
+        private final ConnectionProperties properties;
+
+        /**
+         * The normalized statement text
+         */
+        private final String statement;
+
+        /**
+         * This constructor sets the connection and statement of the key.
+         *
+         * @param properties the database connection properties
+         * @param statement the normalized statement text
+         */
+        private CacheKey(ConnectionProperties properties, String statement) {
+            this.properties = properties;
+            this.statement = statement;
+        }
+
+        /**
+         * This method returns the hash code of the key.
+         *
+         * @return the hash code
+         */
+        @Override
+        public int hashCode() {
+            return 31 * properties.hashCode() + statement.hashCode();
+        }
+
+        /**
+         * This method determines whether another key names the same result.
+         *
+         * @param obj the other object
+         * @return true if the connection and statement are equal
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return statement.equals(other.statement) && properties.equals(other.properties);
+        }
+    }
+
+    /**
+     * This class holds a cached result with what is needed to expire and
+     * invalidate it.
+     *
+     * @author Bryan Daniel
+     */
+    private static class CacheEntry {
+
+        /**
+         * The cached result
+         */
+        private final ColumnarTableModel result;
+
+        /**
+         * The tables the statement reads
+         */
+        private final Set<String> tables;
+
+        /**
+         * The estimated size of the result in bytes
+         */
+        private final long bytes;
+
+        /**
+         * The time the result was cached
+         */
+        private final long created = System.currentTimeMillis();
+
+        /**
+         * This constructor sets the values of the entry.
+         *
+         * @param result the cached result
+         * @param tables the tables the statement reads
+         * @param bytes the estimated size of the result in bytes
+         */
+        private CacheEntry(ColumnarTableModel result, Set<String> tables, long bytes) {
+            this.result = result;
+            this.tables = tables;
+            this.bytes = bytes;
+        }
+    }
+}
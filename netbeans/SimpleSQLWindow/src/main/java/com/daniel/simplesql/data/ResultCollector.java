@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+import com.daniel.simplesql.model.ColumnarTableModel;
+import com.daniel.simplesql.monitor.QueryTimings;
+import java.util.ArrayList;
+import javax.swing.table.TableModel;
+
+/**
+ * This result handler gathers the results of a run into a list of table
+ * models and messages, for callers that present results only once the run
+ * has finished.
+ *
+ * @author Bryan Daniel
+ */
+public class ResultCollector implements ResultHandler {
+
+    /**
+     * The results of the run in order
+     */
+    private final ArrayList<Object> results = new ArrayList<>();
+
+    /**
+     * The model of the result set being read
+     */
+    private ColumnarTableModel currentModel;
+
+    /**
+     * This method adds the model for the new result set.
+     *
+     * @param model an empty model describing the columns of the result
+     */
+    @Override
+    public void resultStarted(ColumnarTableModel model) {
+        currentModel = model;
+        results.add(model);
+    }
+
+    /**
+     * This method appends the rows to the current model.
+     *
+     * @param rows a model holding the rows read
+     */
+    @Override
+    public void rowsRead(ColumnarTableModel rows) {
+        currentModel.appendRows(rows);
+    }
+
+    /**
+     * This method replaces the current model with the given one.
+     *
+     * @param model the model replacing the current result
+     */
+    @Override
+    public void resultReplaced(TableModel model) {
+        results.set(results.size() - 1, model);
+        currentModel = null;
+    }
+
+    /**
+     * This method ignores the timings, which are not part of the results.
+     *
+     * @param timings the timings of the result
+     */
+    @Override
+    public void resultTimed(QueryTimings timings) {
+    }
+
+    /**
+     * This method releases the unused capacity of the current model.
+     */
+    @Override
+    public void resultFinished() {
+        if (currentModel != null) {
+            currentModel.trimToSize();
+            currentModel = null;
+        }
+    }
+
+    /**
+     * This method adds the message to the results.
+     *
+     * @param message the message
+     */
+    @Override
+    public void message(String message) {
+        results.add(message);
+    }
+
+    /**
+     * This method returns the results gathered so far.
+     *
+     * @return the list of results
+     */
+    public ArrayList<Object> getResults() {
+        return results;
+    }
+}
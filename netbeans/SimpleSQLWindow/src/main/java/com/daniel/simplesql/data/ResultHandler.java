@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+import com.daniel.simplesql.model.ColumnarTableModel;
+import com.daniel.simplesql.monitor.QueryTimings;
+import javax.swing.table.TableModel;
+
+/**
+ * This interface receives the results of a query run as they are read, so
+ * that callers can present rows before the whole run has finished. The
+ * methods are called in order on the thread executing the query.
+ *
+ * @author Bryan Daniel
+ */
+public interface ResultHandler {
+
+    /**
+     * This method is called when a new result set begins.
+     *
+     * @param model an empty model describing the columns of the result
+     */
+    public void resultStarted(ColumnarTableModel model);
+
+    /**
+     * This method is called with each block of rows read for the current
+     * result set. The block is not used by the caller afterwards.
+     *
+     * @param rows a model with the same columns holding the rows read
+     */
+    public void rowsRead(ColumnarTableModel rows);
+
+    /**
+     * This method is called when the rows of the current result set are to be
+     * served by another model, such as a CursorTableModel for a large result.
+     * No further rows are delivered for the result.
+     *
+     * @param model the model replacing the current result
+     */
+    public void resultReplaced(TableModel model);
+
+    /**
+     * This method is called with the timings of the current result set just
+     * before the result is finished.
+     *
+     * @param timings the timings of the result
+     */
+    public void resultTimed(QueryTimings timings);
+
+    /**
+     * This method is called when all rows of the current result set have been
+     * delivered.
+     */
+    public void resultFinished();
+
+    /**
+     * This method is called with a message produced by the run, such as an
+     * update count or an error.
+     *
+     * @param message the message
+     */
+    public void message(String message);
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+/**
+ * This class limits the estimated heap size of the result rows kept in memory
+ * by one run, shared by every result the run produces. Rows that do not fit
+ * in what is left are written to disk by their SpillingTableModel, and the
+ * space is given back when a model is closed. The methods may be called from
+ * any thread.
+ *
+ * @author Bryan Daniel
+ */
+public class ResultMemoryBudget {
+
+    /**
+     * The estimated heap size in bytes still available
+     */
+    private long remaining;
+
+    /**
+     * This constructor creates a budget of the given size.
+     *
+     * @param limit the estimated heap size in bytes the rows may use
+     */
+    public ResultMemoryBudget(long limit) {
+        this.remaining = limit;
+    }
+
+    /**
+     * This method takes the given size from the budget if enough is left.
+     *
+     * @param bytes the estimated heap size in bytes
+     * @return true if the size was taken, false if it does not fit
+     */
+    public synchronized boolean reserve(long bytes) {
+        if (bytes > remaining) {
+            return false;
+        }
+        remaining -= bytes;
+        return true;
+    }
+
+    /**
+     * This method gives back a size taken earlier.
+     *
+     * @param bytes the estimated heap size in bytes
+     */
+    public synchronized void release(long bytes) {
+        remaining += bytes;
+    }
+
+    /**
+     * This method returns the estimated heap size still available.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long getRemaining() {
+        return remaining;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * This interface writes the rows of a result set as text in an export
+ * format. Implementations append to a buffer that the caller drains to the
+ * export file, so no more than a few rows are held in memory.
+ *
+ * @author Bryan Daniel
+ */
+public interface RowFormatter {
+
+    /**
+     * This method is called once before any rows, with the columns of the
+     * result.
+     *
+     * @param columnNames the column names
+     * @param columnTypes the java.sql.Types code of each column
+     * @param out the buffer receiving the text
+     */
+    public void writeHeader(String[] columnNames, int[] columnTypes, StringBuilder out);
+
+    /**
+     * This method writes the current row of the result set.
+     *
+     * @param resultSet the result set positioned on a row
+     * @param out the buffer receiving the text
+     * @throws SQLException if the row cannot be read
+     */
+    public void writeRow(ResultSet resultSet, StringBuilder out) throws SQLException;
+}
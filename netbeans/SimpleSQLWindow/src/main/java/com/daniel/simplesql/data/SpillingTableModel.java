@@ -0,0 +1,442 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+import com.daniel.simplesql.model.ColumnarTableModel;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * This table model holds a query result that may not fit in the heap. Rows
+ * are kept in columnar form while the memory budget of the run allows; once
+ * it is used up, later blocks of rows are written to a temporary file in a
+ * compact binary row format and read back through memory-mapped views of the
+ * file.
+ * <p>
+ * Rows are stored by one thread reading the result and become visible to the
+ * table when showStoredRows is called on the event dispatch thread. Spilled
+ * blocks are encoded, written and decoded outside the lock of the model, so
+ * the table does not wait on the disk while rows are stored or decoded.
+ *
+ * @author Bryan Daniel
+ */
+public class SpillingTableModel extends AbstractTableModel implements Closeable {
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = -5019846234460217871L;
+
+    /**
+     * The size of each mapped region of the spill file
+     */
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The number of spilled blocks kept decoded in memory
+     */
+    private static final int MAX_DECODED_BLOCKS = 8;
+
+    /**
+     * A model describing the columns of the result
+     */
+    private final ColumnarTableModel layout;
+
+    /**
+     * The kind of each column in the binary row format
+     */
+    private final byte[] columnKinds;
+
+    /**
+     * The memory budget of the run the rows belong to
+     */
+    private final transient ResultMemoryBudget budget;
+
+    /**
+     * The estimated heap size in bytes taken from the budget
+     */
+    private long reservedBytes;
+
+    /**
+     * The rows kept in the heap
+     */
+    private final transient ColumnarTableModel heapRows;
+
+    /**
+     * Indicates later rows are written to the spill file
+     */
+    private boolean spilling;
+
+    /**
+     * The first row of each spilled block
+     */
+    private int[] blockFirstRows = new int[16];
+
+    /**
+     * The region of the spill file holding each spilled block
+     */
+    private int[] blockSegments = new int[16];
+
+    /**
+     * The position of each spilled block within its region
+     */
+    private int[] blockOffsets = new int[16];
+
+    /**
+     * The number of spilled blocks
+     */
+    private int blockCount;
+
+    /**
+     * The mapped view of each region of the spill file
+     */
+    private final transient List<MappedByteBuffer> segments = new ArrayList<>();
+
+    /**
+     * The spilled blocks recently decoded, in least-recently-used order
+     */
+    private final transient Map<Integer, Object[][]> decodedBlocks;
+
+    /**
+     * The temporary file holding spilled rows, or null before spilling
+     */
+    private File spillFile;
+
+    /**
+     * The channel creating and mapping the spill file
+     */
+    private transient FileChannel spillChannel;
+
+    /**
+     * The region receiving spilled blocks, used only by the storing thread
+     */
+    private transient MappedByteBuffer writeSegment;
+
+    /**
+     * The file position of the region receiving spilled blocks, used only by
+     * the storing thread
+     */
+    private long writeSegmentStart;
+
+    /**
+     * The number of rows stored
+     */
+    private int storedRows;
+
+    /**
+     * The number of rows visible to the table
+     */
+    private int rowCount;
+
+    /**
+     * Indicates the model has been closed
+     */
+    private boolean closed;
+
+    /**
+     * This constructor creates an empty model with the columns of the given
+     * model, with a memory budget of its own.
+     *
+     * @param layout a model describing the columns of the result
+     * @param heapBudget the estimated heap size in bytes the rows may use
+     * before later rows are written to disk
+     */
+    public SpillingTableModel(ColumnarTableModel layout, long heapBudget) {
+        this(layout, new ResultMemoryBudget(heapBudget));
+    }
+
+    /**
+     * This constructor creates an empty model with the columns of the given
+     * model, keeping rows in the heap while the given budget allows.
+     *
+     * @param layout a model describing the columns of the result
+     * @param budget the memory budget shared by the results of the run
+     */
+    public SpillingTableModel(ColumnarTableModel layout, ResultMemoryBudget budget) {
+        this.layout = layout.createEmptyCopy();
+        this.columnKinds = BinaryRowFormat.columnKinds(layout);
+        this.budget = budget;
+        this.heapRows = layout.createEmptyCopy();
+        this.decodedBlocks = new LinkedHashMap<Integer, Object[][]>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+                return size() > MAX_DECODED_BLOCKS;
+            }
+        };
+    }
+
+    /**
+     * This method stores a block of rows, in the heap while the budget allows
+     * and in the spill file afterwards. Rows stored after the model is closed
+     * are ignored. Only one thread may store rows.
+     *
+     * @param rows the rows to store
+     * @throws IOException if the rows cannot be written to the spill file
+     */
+    public void storeRows(ColumnarTableModel rows) throws IOException {
+
+        if (rows.getRowCount() == 0) {
+            return;
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (!spilling) {
+                long size = rows.estimateMemoryUsage();
+                if (budget.reserve(size)) {
+                    reservedBytes += size;
+                    heapRows.appendRows(rows);
+                    storedRows += rows.getRowCount();
+                    return;
+                }
+                // later rows follow the first spilled block so the heap rows stay a prefix
+                spilling = true;
+            }
+        }
+        try {
+            spillBlock(rows);
+        } catch (IOException ex) {
+            synchronized (this) {
+                if (closed) {
+                    // the file was closed while the rows were written
+                    return;
+                }
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * This method makes the rows stored so far visible to the table. This
+     * must be called on the event dispatch thread.
+     */
+    public void showStoredRows() {
+        int firstRow = rowCount;
+        synchronized (this) {
+            rowCount = storedRows;
+        }
+        if (rowCount > firstRow) {
+            fireTableRowsInserted(firstRow, rowCount - 1);
+        }
+    }
+
+    /**
+     * This method returns the number of rows stored, including those not yet
+     * visible to the table.
+     *
+     * @return the number of rows stored
+     */
+    public synchronized int getStoredRowCount() {
+        return storedRows;
+    }
+
+    /**
+     * This method indicates whether any rows have been written to disk.
+     *
+     * @return true if rows have been spilled
+     */
+    public synchronized boolean isSpilled() {
+        return blockCount > 0;
+    }
+
+    /**
+     * This method returns the number of rows visible to the table.
+     *
+     * @return the row count
+     */
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * This method returns the number of columns in the result.
+     *
+     * @return the column count
+     */
+    @Override
+    public int getColumnCount() {
+        return layout.getColumnCount();
+    }
+
+    /**
+     * This method returns the name of the given column.
+     *
+     * @param column the column index
+     * @return the column name
+     */
+    @Override
+    public String getColumnName(int column) {
+        return layout.getColumnName(column);
+    }
+
+    /**
+     * This method returns the class of the values in the given column.
+     *
+     * @param column the column index
+     * @return the value class
+     */
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return layout.getColumnClass(column);
+    }
+
+    /**
+     * This method returns the value of the given cell, decoding its block
+     * from the spill file if the row was spilled. The block is decoded
+     * outside the lock of the model and then added to the decoded blocks.
+     *
+     * @param rowIndex the row index
+     * @param columnIndex the column index
+     * @return the cell value
+     */
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+
+        int block;
+        int firstRow;
+        int blockRows;
+        ByteBuffer blockBuffer;
+        synchronized (this) {
+            if (rowIndex < heapRows.getRowCount()) {
+                return heapRows.getValueAt(rowIndex, columnIndex);
+            }
+            if (closed) {
+                return null;
+            }
+            block = Arrays.binarySearch(blockFirstRows, 0, blockCount, rowIndex);
+            if (block < 0) {
+                block = -block - 2;
+            }
+            firstRow = blockFirstRows[block];
+            Object[][] rows = decodedBlocks.get(block);
+            if (rows != null) {
+                return rows[rowIndex - firstRow][columnIndex];
+            }
+            blockRows = (block + 1 < blockCount ? blockFirstRows[block + 1] : storedRows)
+                    - firstRow;
+            blockBuffer = segments.get(blockSegments[block]).duplicate();
+            blockBuffer.position(blockOffsets[block]);
+        }
+
+        Object[][] rows = BinaryRowFormat.decode(blockBuffer, blockRows, columnKinds);
+        synchronized (this) {
+            if (!closed) {
+                decodedBlocks.put(block, rows);
+            }
+        }
+        return rows[rowIndex - firstRow][columnIndex];
+    }
+
+    /**
+     * This method releases the heap rows, gives their size back to the
+     * budget and deletes the spill file.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        budget.release(reservedBytes);
+        reservedBytes = 0;
+        decodedBlocks.clear();
+        segments.clear();
+        if (spillChannel != null) {
+            try {
+                spillChannel.close();
+            } catch (IOException ex) {
+                Logger.getLogger(SpillingTableModel.class.getName()).log(Level.INFO,
+                        "Exception occurred closing the spill file.", ex);
+            }
+            // a mapped file cannot be deleted on every platform until it is unmapped
+            if (!spillFile.delete()) {
+                spillFile.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * This method encodes a block of rows and copies it into the mapped
+     * region receiving spilled blocks, creating the file or a new region when
+     * needed, and then publishes the block. Each region is mapped once at
+     * its full size, so a block never crosses the end of a region and the
+     * views read by the table never have to be mapped again. This is called
+     * without the lock of the model.
+     *
+     * @param rows the rows to write
+     * @throws IOException if the rows cannot be written
+     */
+    private void spillBlock(ColumnarTableModel rows) throws IOException {
+
+        byte[] encoded = BinaryRowFormat.encode(rows, columnKinds);
+        FileChannel channel;
+        synchronized (this) {
+            if (spillChannel == null) {
+                spillFile = File.createTempFile("simplesql-result", ".bin");
+                spillFile.deleteOnExit();
+                spillChannel = new RandomAccessFile(spillFile, "rw").getChannel();
+            }
+            channel = spillChannel;
+        }
+
+        MappedByteBuffer newSegment = null;
+        if (writeSegment == null || writeSegment.remaining() < encoded.length) {
+            long start = writeSegment == null ? 0 : writeSegmentStart + writeSegment.capacity();
+            newSegment = channel.map(FileChannel.MapMode.READ_WRITE, start,
+                    Math.max(SEGMENT_SIZE, encoded.length));
+            writeSegment = newSegment;
+            writeSegmentStart = start;
+        }
+        int offset = writeSegment.position();
+        writeSegment.put(encoded);
+
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (newSegment != null) {
+                segments.add(newSegment);
+            }
+            if (blockCount == blockOffsets.length) {
+                blockFirstRows = Arrays.copyOf(blockFirstRows, blockCount * 2);
+                blockSegments = Arrays.copyOf(blockSegments, blockCount * 2);
+                blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+            }
+            blockFirstRows[blockCount] = storedRows;
+            blockSegments[blockCount] = segments.size() - 1;
+            blockOffsets[blockCount] = offset;
+            blockCount++;
+            storedRows += rows.getRowCount();
+        }
+    }
+}
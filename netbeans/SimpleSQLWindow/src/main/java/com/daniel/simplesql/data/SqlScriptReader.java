@@ -0,0 +1,525 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class reads the statements of a SQL script file one at a time. The
+ * file is read through a small buffer, so only the statement being read is
+ * held in memory no matter how large the script is. Statements end at the
+ * current delimiter when it is not inside a quoted string, a quoted name or
+ * a comment, and the DELIMITER command of the mysql client changes the
+ * delimiter. Comments before a statement are left out; comments within a
+ * statement, including the conditional comments written by mysqldump, are
+ * kept.
+ *
+ * @author Bryan Daniel
+ */
+public class SqlScriptReader implements Iterator<String>, Closeable {
+
+    /**
+     * The size of the buffer holding bytes read from the file
+     */
+    public static final int BYTE_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * The size of the buffer holding decoded characters
+     */
+    public static final int CHAR_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The delimiter in effect at the start of a script
+     */
+    public static final String DEFAULT_DELIMITER = ";";
+
+    /**
+     * The client command changing the delimiter
+     */
+    private static final String DELIMITER_COMMAND = "DELIMITER";
+
+    /**
+     * The channel reading the file
+     */
+    private final FileChannel channel;
+
+    /**
+     * The decoder turning the bytes of the file into characters
+     */
+    private final CharsetDecoder decoder;
+
+    /**
+     * The bytes read from the file and not yet decoded
+     */
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE);
+
+    /**
+     * The decoded characters not yet read
+     */
+    private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+
+    /**
+     * The text of the statement being read
+     */
+    private final StringBuilder statement = new StringBuilder();
+
+    /**
+     * Indicates the end of the file has been read
+     */
+    private boolean endOfFile;
+
+    /**
+     * Indicates every byte of the file has been decoded
+     */
+    private boolean decodedAll;
+
+    /**
+     * The delimiter ending statements
+     */
+    private String delimiter = DEFAULT_DELIMITER;
+
+    /**
+     * The statement read ahead by hasNext, or null
+     */
+    private String nextStatement;
+
+    /**
+     * The line being read
+     */
+    private int lineNumber = 1;
+
+    /**
+     * The line on which the statement being read starts
+     */
+    private int startLine;
+
+    /**
+     * The line on which the statement last returned starts
+     */
+    private int statementLine;
+
+    /**
+     * The number of statements returned
+     */
+    private long statementCount;
+
+    /**
+     * This constructor opens a UTF-8 script file.
+     *
+     * @param file the script file
+     * @throws IOException if the file cannot be opened
+     */
+    public SqlScriptReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        bytes.flip();
+        chars.flip();
+    }
+
+    /**
+     * This method determines whether the script has another statement,
+     * reading ahead to it if needed.
+     *
+     * @return true if there is another statement
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    @Override
+    public boolean hasNext() {
+        if (nextStatement == null) {
+            try {
+                nextStatement = readStatement();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        return nextStatement != null;
+    }
+
+    /**
+     * This method returns the next statement of the script without its
+     * delimiter.
+     *
+     * @return the statement
+     * @throws NoSuchElementException if there are no more statements
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String current = nextStatement;
+        nextStatement = null;
+        statementLine = startLine;
+        statementCount++;
+        return current;
+    }
+
+    /**
+     * This method returns the line on which the statement last returned
+     * starts.
+     *
+     * @return the line number
+     */
+    public int getStatementLine() {
+        return statementLine;
+    }
+
+    /**
+     * This method returns the number of statements returned so far.
+     *
+     * @return the statement count
+     */
+    public long getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * This method closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * This method reads the next statement, skipping empty statements,
+     * comments between statements and DELIMITER commands.
+     *
+     * @return the statement, or null at the end of the script
+     * @throws IOException if the file cannot be read
+     */
+    private String readStatement() throws IOException {
+        statement.setLength(0);
+        boolean started = false;
+        while (true) {
+            int current = peek(0);
+            if (current == -1) {
+                return started ? finishStatement() : null;
+            }
+            if (!started) {
+                if (Character.isWhitespace(current)) {
+                    read();
+                    continue;
+                }
+                if (isCommentStart() && !(current == '/' && peek(2) == '!')) {
+                    skipComment();
+                    continue;
+                }
+                if (isDelimiterCommand()) {
+                    readDelimiterCommand();
+                    continue;
+                }
+                if (matchesDelimiter()) {
+                    skip(delimiter.length());
+                    continue;
+                }
+                started = true;
+                startLine = lineNumber;
+            }
+            if (matchesDelimiter()) {
+                skip(delimiter.length());
+                return finishStatement();
+            }
+            if (current == '\'' || current == '"' || current == '`') {
+                copyQuoted();
+            } else if (copyPlainText() > 0) {
+                continue;
+            } else if (isCommentStart()) {
+                copyComment();
+            } else {
+                statement.append((char) read());
+            }
+        }
+    }
+
+    /**
+     * This method returns the statement read without trailing whitespace.
+     *
+     * @return the statement
+     */
+    private String finishStatement() {
+        int end = statement.length();
+        while (end > 0 && Character.isWhitespace(statement.charAt(end - 1))) {
+            end--;
+        }
+        statement.setLength(end);
+        return statement.toString();
+    }
+
+    /**
+     * This method copies the run of decoded characters starting at the
+     * current character that cannot start a quote, a comment or the
+     * delimiter into the statement in one step.
+     *
+     * @return the number of characters copied
+     */
+    private int copyPlainText() {
+        char delimiterStart = delimiter.charAt(0);
+        int start = chars.position();
+        int end = start;
+        while (end < chars.limit()) {
+            char current = chars.get(end);
+            if (current == delimiterStart || current == '\'' || current == '"' || current == '`'
+                    || current == '#' || current == '-' || current == '/') {
+                break;
+            }
+            if (current == '\n') {
+                lineNumber++;
+            }
+            end++;
+        }
+        statement.append(chars.array(), chars.arrayOffset() + start, end - start);
+        chars.position(end);
+        return end - start;
+    }
+
+    /**
+     * This method copies the quoted string or name starting at the current
+     * character into the statement, honoring backslash escapes and doubled
+     * quotes.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    private void copyQuoted() throws IOException {
+        int quote = read();
+        statement.append((char) quote);
+        while (true) {
+            int current = read();
+            if (current == -1) {
+                return;
+            }
+            statement.append((char) current);
+            if (current == '\\' && quote != '`') {
+                int escaped = read();
+                if (escaped != -1) {
+                    statement.append((char) escaped);
+                }
+            } else if (current == quote) {
+                if (peek(0) != quote) {
+                    return;
+                }
+                statement.append((char) read());
+            }
+        }
+    }
+
+    /**
+     * This method copies the comment starting at the current character into
+     * the statement.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    private void copyComment() throws IOException {
+        boolean blockComment = peek(0) == '/';
+        if (blockComment) {
+            statement.append((char) read()).append((char) read());
+        }
+        int previous = 0;
+        while (true) {
+            int current = read();
+            if (current == -1) {
+                return;
+            }
+            statement.append((char) current);
+            if (blockComment ? previous == '*' && current == '/' : current == '\n') {
+                return;
+            }
+            previous = current;
+        }
+    }
+
+    /**
+     * This method skips the comment starting at the current character.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    private void skipComment() throws IOException {
+        boolean blockComment = peek(0) == '/';
+        skip(blockComment ? 2 : 1);
+        int previous = 0;
+        while (true) {
+            int current = read();
+            if (current == -1 || (blockComment ? previous == '*' && current == '/' : current == '\n')) {
+                return;
+            }
+            previous = current;
+        }
+    }
+
+    /**
+     * This method determines whether a comment starts at the current
+     * character.
+     *
+     * @return true if a comment starts here
+     * @throws IOException if the file cannot be read
+     */
+    private boolean isCommentStart() throws IOException {
+        int current = peek(0);
+        if (current == '#') {
+            return true;
+        }
+        int next = peek(1);
+        if (current == '/' && next == '*') {
+            return true;
+        }
+        // MySQL requires whitespace after the double dash
+        return current == '-' && next == '-' && (peek(2) == -1 || Character.isWhitespace(peek(2)));
+    }
+
+    /**
+     * This method determines whether the delimiter starts at the current
+     * character.
+     *
+     * @return true if the delimiter starts here
+     * @throws IOException if the file cannot be read
+     */
+    private boolean matchesDelimiter() throws IOException {
+        for (int index = 0; index < delimiter.length(); index++) {
+            if (peek(index) != delimiter.charAt(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method determines whether a DELIMITER command starts at the
+     * current character.
+     *
+     * @return true if a DELIMITER command starts here
+     * @throws IOException if the file cannot be read
+     */
+    private boolean isDelimiterCommand() throws IOException {
+        for (int index = 0; index < DELIMITER_COMMAND.length(); index++) {
+            if (Character.toUpperCase(peek(index)) != DELIMITER_COMMAND.charAt(index)) {
+                return false;
+            }
+        }
+        int following = peek(DELIMITER_COMMAND.length());
+        return following != -1 && Character.isWhitespace(following) && following != '\n';
+    }
+
+    /**
+     * This method reads a DELIMITER command to the end of its line and makes
+     * its first word the delimiter.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    private void readDelimiterCommand() throws IOException {
+        skip(DELIMITER_COMMAND.length());
+        StringBuilder line = new StringBuilder();
+        int current = read();
+        while (current != -1 && current != '\n') {
+            line.append((char) current);
+            current = read();
+        }
+        String[] words = line.toString().trim().split("\\s+");
+        if (!words[0].isEmpty()) {
+            delimiter = words[0];
+        }
+    }
+
+    /**
+     * This method returns the character at the given offset from the current
+     * character without reading it.
+     *
+     * @param offset the offset from the current character
+     * @return the character, or -1 past the end of the file
+     * @throws IOException if the file cannot be read
+     */
+    private int peek(int offset) throws IOException {
+        if (chars.remaining() <= offset && !fill(offset + 1)) {
+            return -1;
+        }
+        return chars.get(chars.position() + offset);
+    }
+
+    /**
+     * This method reads the current character.
+     *
+     * @return the character, or -1 at the end of the file
+     * @throws IOException if the file cannot be read
+     */
+    private int read() throws IOException {
+        if (!chars.hasRemaining() && !fill(1)) {
+            return -1;
+        }
+        char current = chars.get();
+        if (current == '\n') {
+            lineNumber++;
+        }
+        return current;
+    }
+
+    /**
+     * This method reads the given number of characters.
+     *
+     * @param count the number of characters
+     * @throws IOException if the file cannot be read
+     */
+    private void skip(int count) throws IOException {
+        for (int index = 0; index < count; index++) {
+            read();
+        }
+    }
+
+    /**
+     * This method reads and decodes more of the file until at least the given
+     * number of characters are waiting to be read or the file is exhausted.
+     *
+     * @param needed the number of characters needed
+     * @return true if that many characters are waiting
+     * @throws IOException if the file cannot be read
+     */
+    private boolean fill(int needed) throws IOException {
+        chars.compact();
+        while (chars.position() < needed && !decodedAll) {
+            if (!endOfFile) {
+                bytes.compact();
+                endOfFile = channel.read(bytes) == -1;
+                bytes.flip();
+            }
+            CoderResult result = decoder.decode(bytes, chars, endOfFile);
+            if (result.isOverflow()) {
+                break;
+            }
+            if (endOfFile) {
+                decoder.flush(chars);
+                decodedAll = true;
+            }
+        }
+        chars.flip();
+        return chars.remaining() >= needed;
+    }
+}
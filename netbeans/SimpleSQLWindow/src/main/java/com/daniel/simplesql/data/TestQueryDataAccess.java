@@ -15,20 +15,19 @@
  */
 package com.daniel.simplesql.data;
 
-import com.daniel.simplesql.logic.TestQueryRunner;
 import com.daniel.simplesql.model.ConnectionProperties;
+import com.daniel.simplesql.monitor.FlightEvents;
 import com.daniel.simplesql.util.DatabaseUtil;
 import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * This class uses the database connection properties to attempt a test query
- * for connection validation.
+ * This class uses the database connection properties to validate a connection.
+ * The connection is borrowed from the pool, which either opens it, proving the
+ * server accepts the credentials, or checks an idle one with a ping, so no
+ * test query round trip is needed.
  *
  * @author Bryan Daniel
  */
@@ -49,43 +48,32 @@ public class TestQueryDataAccess {
     }
 
     /**
-     * This method executes the test query and returns a boolean value
-     * indicating a pass or fail result.
+     * This method validates the connection and returns a boolean value
+     * indicating a pass or fail result. The validated connection is returned
+     * to the pool for the queries that follow.
      *
      * @return the indication of a passing or failing test
      */
     public Boolean connectionSuccessful() {
 
         Connection connection = null;
-        Statement query = null;
-        ResultSet resultSet = null;
         Boolean testPasses = false;
+        Object testEvent = FlightEvents.beginConnectionTest();
 
-        StringBuilder connectionString = new StringBuilder();
-        connectionString.append(properties.getProperty(ConnectionProperties.DRIVER_STRING));
-        connectionString.append(properties.getProperty(ConnectionProperties.HOST));
-        connectionString.append(":");
-        connectionString.append(properties.getProperty(ConnectionProperties.PORT));
-        connectionString.append("/");
-        connectionString.append(properties.getProperty(ConnectionProperties.DATABASE_NAME));
         try {
-            connection = DriverManager.getConnection(connectionString.toString(),
-                    properties.getProperty(ConnectionProperties.USERNAME),
-                    properties.getProperty(ConnectionProperties.PASSWORD));
-            query = connection.createStatement();
-            resultSet = query.executeQuery("SELECT 1 FROM DUAL");
-            resultSet.next();
-            int result = resultSet.getInt(1);
-            if (result == 1) {
-                testPasses = true;
-            }
+            connection = ConnectionPoolManager.getInstance().getPool(properties)
+                    .borrowConnection();
+            testPasses = true;
         } catch (SQLException ex) {
             Logger.getLogger(TestQueryDataAccess.class.getName()).log(Level.INFO,
                     "Connection exception occurred during TestQueryDataAccess.connectionSuccessful.", ex);
+            // a pool for properties that do not work is of no further use
+            ConnectionPoolManager.getInstance().closePool(properties);
         } finally {
-            DatabaseUtil.closeResultSet(resultSet);
-            DatabaseUtil.closeStatement(query);
             DatabaseUtil.closeConnection(connection);
+            FlightEvents.commitConnectionTest(testEvent,
+                    properties.getProperty(ConnectionProperties.HOST),
+                    properties.getProperty(ConnectionProperties.DATABASE_NAME), testPasses);
         }
         return testPasses;
     }
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.logic;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class runs the application's background work, such as query runs,
+ * exports and connection attempts, on one shared execution backend so that
+ * no caller has to create, and remember to shut down, an executor of its own.
+ * The backend is chosen once with the simplesql.executionBackend system
+ * property, either virtual or platform. Without the property, virtual threads
+ * are used on Java 24 and later and bounded platform pools otherwise, because
+ * earlier runtimes pin a virtual thread to its carrier while it blocks inside
+ * the synchronized blocks the MySQL driver uses. The class implements the
+ * Singleton design pattern.
+ *
+ * @author Bryan Daniel
+ */
+public class BackgroundExecutor {
+
+    /**
+     * The system property choosing the execution backend
+     */
+    public static final String BACKEND_PROPERTY = "simplesql.executionBackend";
+
+    /**
+     * The first Java version whose virtual threads do not pin while blocked in
+     * a synchronized block
+     */
+    private static final int UNPINNED_VIRTUAL_THREADS_VERSION = 24;
+
+    /**
+     * The single BackgroundExecutor object
+     */
+    private static BackgroundExecutor backgroundExecutor = null;
+
+    /**
+     * The backend running the work
+     */
+    private final ExecutionBackend backend;
+
+    /**
+     * Private constructor - not called publicly
+     *
+     * @param backend the backend running the work
+     */
+    private BackgroundExecutor(ExecutionBackend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * This method returns the single BackgroundExecutor. If the instance has
+     * not been created previously, it is created here with the configured
+     * backend.
+     *
+     * @return the BackgroundExecutor object
+     */
+    public synchronized static BackgroundExecutor getInstance() {
+        if (backgroundExecutor == null) {
+            backgroundExecutor = new BackgroundExecutor(createBackend());
+        }
+        return backgroundExecutor;
+    }
+
+    /**
+     * This method runs the task on a background thread. Swing workers are run
+     * this way rather than with their execute method, which uses a pool of
+     * at most ten threads.
+     *
+     * @param task the task
+     */
+    public void execute(Runnable task) {
+        backend.getTaskExecutor().execute(task);
+    }
+
+    /**
+     * This method runs the task on a background thread.
+     *
+     * @param task the task
+     * @return the future for cancelling the task
+     */
+    public Future<?> submit(Runnable task) {
+        return backend.getTaskExecutor().submit(task);
+    }
+
+    /**
+     * This method runs the task on a background thread.
+     *
+     * @param <T> the type of the task's result
+     * @param task the task
+     * @return the future holding the task's result
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return backend.getTaskExecutor().submit(task);
+    }
+
+    /**
+     * This method opens a scope for the subtasks of one task. The caller must
+     * close it when the task ends.
+     *
+     * @return the new scope
+     */
+    public TaskScope openScope() {
+        return new TaskScope(backend.getForkExecutor());
+    }
+
+    /**
+     * This method returns the backend running the work.
+     *
+     * @return the execution backend
+     */
+    public ExecutionBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * This method creates the backend named by the system property, or the
+     * default backend for the runtime.
+     *
+     * @return the backend
+     */
+    private static ExecutionBackend createBackend() {
+        String choice = System.getProperty(BACKEND_PROPERTY, "");
+        boolean useVirtual = choice.equalsIgnoreCase("virtual")
+                || (choice.isEmpty() && getJavaVersion() >= UNPINNED_VIRTUAL_THREADS_VERSION);
+        ExecutionBackend backend = useVirtual ? VirtualThreadBackend.create() : null;
+        if (backend == null) {
+            if (useVirtual) {
+                Logger.getLogger(BackgroundExecutor.class.getName()).log(Level.INFO,
+                        "Virtual threads are not available; using platform threads.");
+            }
+            backend = new PlatformThreadBackend();
+        }
+        return backend;
+    }
+
+    /**
+     * This method returns the feature version of the running Java runtime.
+     *
+     * @return the version, such as 8 or 21
+     */
+    private static int getJavaVersion() {
+        String version = System.getProperty("java.specification.version", "1.8");
+        if (version.startsWith("1.")) {
+            version = version.substring(2);
+        }
+        try {
+            return Integer.parseInt(version);
+        } catch (NumberFormatException ex) {
+            return 8;
+        }
+    }
+}
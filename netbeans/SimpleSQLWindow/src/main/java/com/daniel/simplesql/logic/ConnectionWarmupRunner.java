@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.logic;
+
+import com.daniel.simplesql.data.ConnectionPool;
+import com.daniel.simplesql.data.ConnectionPoolManager;
+import com.daniel.simplesql.model.ConnectionProperties;
+
+/**
+ * This runnable class prepares the connection pool for a new query window
+ * while the window is being built, so that the first queries find open
+ * connections and a driver that has already loaded its metadata.
+ *
+ * @author Bryan Daniel
+ */
+public class ConnectionWarmupRunner implements Runnable {
+
+    /**
+     * The object holding connection properties
+     */
+    private final ConnectionProperties properties;
+
+    /**
+     * This constructor sets the connection properties of the pool to warm.
+     *
+     * @param properties the connection properties
+     */
+    public ConnectionWarmupRunner(ConnectionProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * This method opens the pool's warm-up connections and loads the driver's
+     * metadata. This is not executed on the event dispatch thread.
+     */
+    @Override
+    public void run() {
+        ConnectionPoolManager.getInstance().getPool(properties)
+                .prewarm(ConnectionPool.DEFAULT_WARM_SIZE);
+    }
+}
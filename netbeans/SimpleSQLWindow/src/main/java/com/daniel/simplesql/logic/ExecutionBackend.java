@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.logic;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * This interface describes the threads that run the application's blocking
+ * background work. Tasks are top-level units of work, such as a query run or
+ * a connection attempt; forks are the subtasks a task starts within a
+ * TaskScope and waits for. Keeping the two apart means a task waiting on its
+ * forks can never hold the thread a fork needs.
+ *
+ * @author Bryan Daniel
+ */
+public interface ExecutionBackend {
+
+    /**
+     * This method returns the name of the backend for logs and diagnostics.
+     *
+     * @return the backend name
+     */
+    String getName();
+
+    /**
+     * This method returns the executor running top-level tasks.
+     *
+     * @return the task executor
+     */
+    ExecutorService getTaskExecutor();
+
+    /**
+     * This method returns the executor running the subtasks forked within a
+     * task scope.
+     *
+     * @return the fork executor
+     */
+    ExecutorService getForkExecutor();
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.logic;
+
+import com.daniel.simplesql.data.ExportDataAccess;
+import com.daniel.simplesql.data.ExportFormat;
+import com.daniel.simplesql.data.ExportListener;
+import com.daniel.simplesql.model.ConnectionProperties;
+import com.daniel.simplesql.model.QueryOptions;
+import com.daniel.simplesql.ui.ExportProgressDialog;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingWorker;
+
+/**
+ * This SwingWorker exports the result of a query to a file in a background
+ * thread and shows the progress of the export in a dialog.
+ *
+ * @author Bryan Daniel
+ */
+public class ExportWorker extends SwingWorker<String, long[]> {
+
+    /**
+     * The query to export
+     */
+    private final String queryString;
+
+    /**
+     * The database connection properties
+     */
+    private final ConnectionProperties properties;
+
+    /**
+     * The options applied to the query
+     */
+    private final QueryOptions options;
+
+    /**
+     * The file to write
+     */
+    private final Path file;
+
+    /**
+     * The export format
+     */
+    private final ExportFormat format;
+
+    /**
+     * Indicates the file is compressed with gzip
+     */
+    private final boolean gzip;
+
+    /**
+     * The dialog showing the progress of the export
+     */
+    private final ExportProgressDialog progressDialog;
+
+    /**
+     * The data access object running the export
+     */
+    private final ExportDataAccess dataAccess = new ExportDataAccess();
+
+    /**
+     * The time the export started
+     */
+    private final long startTime = System.nanoTime();
+
+    /**
+     * This constructor sets the values for the export.
+     *
+     * @param queryString the query to export
+     * @param properties the connection properties
+     * @param options the query options, copied for this export
+     * @param file the file to write
+     * @param format the export format
+     * @param gzip true to compress the file with gzip
+     * @param progressDialog the dialog showing the progress
+     */
+    public ExportWorker(String queryString, ConnectionProperties properties,
+            QueryOptions options, Path file, ExportFormat format, boolean gzip,
+            ExportProgressDialog progressDialog) {
+        this.queryString = queryString;
+        this.properties = properties;
+        this.options = new QueryOptions(options);
+        this.file = file;
+        this.format = format;
+        this.gzip = gzip;
+        this.progressDialog = progressDialog;
+    }
+
+    /**
+     * This method requests cancellation of the export on a separate thread,
+     * because the driver contacts the server to stop the query.
+     */
+    public void cancelExport() {
+        Thread cancelThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                dataAccess.cancel();
+            }
+        }, "export-cancel");
+        cancelThread.setDaemon(true);
+        cancelThread.start();
+    }
+
+    /**
+     * This method shows the latest progress published by the doInBackground
+     * method. This is executed on the event dispatch thread.
+     *
+     * @param progress the published row and byte counts
+     */
+    @Override
+    protected void process(List<long[]> progress) {
+        long[] latest = progress.get(progress.size() - 1);
+        double seconds = Math.max(0.001, (System.nanoTime() - startTime) / 1e9);
+        progressDialog.showProgress(String.format("%,d rows written, %,.1f MB (%,.0f rows/s)",
+                latest[0], latest[1] / (1024.0 * 1024.0), latest[0] / seconds));
+    }
+
+    /**
+     * This method shows the outcome of the export. This is executed on the
+     * event dispatch thread.
+     */
+    @Override
+    protected void done() {
+
+        try {
+            progressDialog.showFinished(get());
+        } catch (InterruptedException | ExecutionException ex) {
+            Logger.getLogger(ExportWorker.class.getName()).log(Level.SEVERE, null, ex);
+            progressDialog.showFinished("The export failed.");
+        }
+    }
+
+    /**
+     * This method uses the data access class to write the query result to
+     * the file, publishing its progress. This is not executed on the event
+     * dispatch thread.
+     *
+     * @return the outcome message
+     * @throws Exception if an exception occurs
+     */
+    @Override
+    protected String doInBackground() throws Exception {
+
+        return dataAccess.exportQuery(queryString, properties, options, file, format, gzip,
+                new ExportListener() {
+            @Override
+            public void exportProgress(long rows, long bytes) {
+                publish(new long[]{rows, bytes});
+            }
+        });
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.logic;
+
+import com.daniel.simplesql.data.ConnectionPoolManager;
+import com.daniel.simplesql.data.ExportDataAccess;
+import com.daniel.simplesql.data.ExportFormat;
+import com.daniel.simplesql.data.ExportListener;
+import com.daniel.simplesql.data.SqlScriptReader;
+import com.daniel.simplesql.model.ConnectionProperties;
+import com.daniel.simplesql.model.QueryOptions;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * This class runs a SQL script from the command line without a user
+ * interface, for use from scheduled jobs and build servers. The connection is
+ * described by a properties file using the keys of ConnectionProperties,
+ * optionally overridden by a JDBC URL and credentials given as arguments. The
+ * statements of the script are run one at a time and each result set is
+ * written to a file of its own in the output directory. No Swing or AWT class
+ * is loaded on this path.
+ *
+ * @author Bryan Daniel
+ */
+public class HeadlessRunner {
+
+    /**
+     * The argument selecting headless mode
+     */
+    public static final String HEADLESS_OPTION = "--headless";
+
+    /**
+     * The argument naming the script file
+     */
+    public static final String SCRIPT_OPTION = "--script";
+
+    /**
+     * The argument naming the directory receiving the result files
+     */
+    public static final String OUT_OPTION = "--out";
+
+    /**
+     * The argument naming the connection properties file
+     */
+    public static final String PROPERTIES_OPTION = "--properties";
+
+    /**
+     * The argument giving a JDBC URL overriding the driver, host, port and
+     * database of the properties file
+     */
+    public static final String URL_OPTION = "--url";
+
+    /**
+     * The argument giving the username
+     */
+    public static final String USER_OPTION = "--user";
+
+    /**
+     * The argument giving the password
+     */
+    public static final String PASSWORD_OPTION = "--password";
+
+    /**
+     * The argument choosing the format of the result files
+     */
+    public static final String FORMAT_OPTION = "--format";
+
+    /**
+     * The argument compressing the result files with gzip
+     */
+    public static final String GZIP_OPTION = "--gzip";
+
+    /**
+     * The argument giving the query timeout in seconds
+     */
+    public static final String TIMEOUT_OPTION = "--timeout";
+
+    /**
+     * The exit status of a run in which every statement succeeded
+     */
+    public static final int EXIT_SUCCESS = 0;
+
+    /**
+     * The exit status of a run stopped by a failing statement or file
+     */
+    public static final int EXIT_FAILURE = 1;
+
+    /**
+     * The exit status of a run with invalid arguments
+     */
+    public static final int EXIT_USAGE = 2;
+
+    /**
+     * The exit status of a run cancelled before the script finished
+     */
+    public static final int EXIT_CANCELLED = 3;
+
+    /**
+     * The driver string used when neither the properties file nor a URL gives
+     * one
+     */
+    public static final String DEFAULT_DRIVER = "jdbc:mysql://";
+
+    /**
+     * The port used when a URL does not give one
+     */
+    public static final String DEFAULT_PORT = "3306";
+
+    /**
+     * The description of the arguments
+     */
+    private static final String USAGE = "Usage: " + HEADLESS_OPTION + " " + SCRIPT_OPTION
+            + " <file.sql> [" + OUT_OPTION + " <directory>] [" + PROPERTIES_OPTION
+            + " <file>] [" + URL_OPTION + " <jdbc:mysql://host:port/database[?parameters]>] ["
+            + USER_OPTION + " <name>] [" + PASSWORD_OPTION + " <password>] [" + FORMAT_OPTION
+            + " csv|tsv|jsonl] [" + GZIP_OPTION + "] [" + TIMEOUT_OPTION + " <seconds>]";
+
+    /**
+     * The data access object running the script
+     */
+    private final ExportDataAccess dataAccess = new ExportDataAccess();
+
+    /**
+     * This method determines whether the arguments select headless mode.
+     *
+     * @param args the command-line arguments
+     * @return true if headless mode is selected
+     */
+    public static boolean isHeadless(String[] args) {
+        for (String arg : args) {
+            if (HEADLESS_OPTION.equals(arg)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This method runs the script described by the arguments, printing a
+     * summary to standard output and any failure to standard error.
+     *
+     * @param args the command-line arguments
+     * @return the exit status
+     */
+    public int run(String[] args) {
+
+        Map<String, String> arguments;
+        ConnectionProperties properties;
+        QueryOptions options = new QueryOptions();
+        ExportFormat format;
+        Path scriptFile;
+        Path directory;
+        try {
+            arguments = parseArguments(args);
+            scriptFile = Paths.get(required(arguments, SCRIPT_OPTION));
+            directory = Paths.get(arguments.containsKey(OUT_OPTION) ? arguments.get(OUT_OPTION) : ".");
+            format = parseFormat(arguments.get(FORMAT_OPTION));
+            if (arguments.containsKey(TIMEOUT_OPTION)) {
+                options.setQueryTimeout(Integer.parseInt(arguments.get(TIMEOUT_OPTION)));
+            }
+            properties = buildProperties(arguments);
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        } catch (IOException ex) {
+            System.err.println("The connection properties could not be read: " + ex.getMessage());
+            return EXIT_USAGE;
+        }
+
+        Thread cancelHook = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                dataAccess.cancel();
+            }
+        }, "headless-cancel");
+        Runtime.getRuntime().addShutdownHook(cancelHook);
+
+        SqlScriptReader script = null;
+        try {
+            Files.createDirectories(directory);
+            script = new SqlScriptReader(scriptFile);
+            System.out.println(dataAccess.exportScript(script, properties, options, directory,
+                    format, arguments.containsKey(GZIP_OPTION), new ExportListener() {
+                @Override
+                public void exportProgress(long rows, long bytes) {
+                }
+            }));
+            return dataAccess.isCancelled() ? EXIT_CANCELLED : EXIT_SUCCESS;
+        } catch (SQLException ex) {
+            System.err.println(String.format("Statement %,d at line %,d failed: %s",
+                    script.getStatementCount(), script.getStatementLine(), ex.getMessage()));
+            return EXIT_FAILURE;
+        } catch (IOException ex) {
+            System.err.println("The script failed: " + ex);
+            return EXIT_FAILURE;
+        } finally {
+            closeScript(script);
+            ConnectionPoolManager.getInstance().closePool(properties);
+            try {
+                Runtime.getRuntime().removeShutdownHook(cancelHook);
+            } catch (IllegalStateException ex) {
+                // the hook is already running because the JVM is shutting down
+            }
+        }
+    }
+
+    /**
+     * This method reads the options and their values from the arguments.
+     *
+     * @param args the command-line arguments
+     * @return the values of the options by option name
+     * @throws IllegalArgumentException if an option is unknown or lacks its
+     * value
+     */
+    private Map<String, String> parseArguments(String[] args) {
+        Map<String, String> arguments = new HashMap<>();
+        for (int index = 0; index < args.length; index++) {
+            String arg = args[index];
+            switch (arg) {
+                case HEADLESS_OPTION:
+                case GZIP_OPTION:
+                    arguments.put(arg, "");
+                    break;
+                case SCRIPT_OPTION:
+                case OUT_OPTION:
+                case PROPERTIES_OPTION:
+                case URL_OPTION:
+                case USER_OPTION:
+                case PASSWORD_OPTION:
+                case FORMAT_OPTION:
+                case TIMEOUT_OPTION:
+                    if (index + 1 == args.length) {
+                        throw new IllegalArgumentException(arg + " needs a value.");
+                    }
+                    arguments.put(arg, args[++index]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+        return arguments;
+    }
+
+    /**
+     * This method returns the value of an option that must be given.
+     *
+     * @param arguments the values of the options
+     * @param option the option name
+     * @return the value
+     * @throws IllegalArgumentException if the option is missing
+     */
+    private String required(Map<String, String> arguments, String option) {
+        String value = arguments.get(option);
+        if (value == null) {
+            throw new IllegalArgumentException(option + " is required.");
+        }
+        return value;
+    }
+
+    /**
+     * This method returns a connection value that must be given, either in
+     * the properties file or by an option.
+     *
+     * @param values the connection values
+     * @param key the property key
+     * @param option the option that can give the value
+     * @return the value
+     * @throws IllegalArgumentException if the value is missing or empty
+     */
+    private String required(Properties values, String key, String option) {
+        String value = values.getProperty(key);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException(option + " or the " + key
+                    + " key of the properties file is required.");
+        }
+        return value;
+    }
+
+    /**
+     * This method returns the export format with the given name or file
+     * extension, or CSV if none is given.
+     *
+     * @param name the format name, or null
+     * @return the export format
+     * @throws IllegalArgumentException if no format has that name
+     */
+    private ExportFormat parseFormat(String name) {
+        if (name == null) {
+            return ExportFormat.CSV;
+        }
+        for (ExportFormat format : ExportFormat.values()) {
+            if (format.getExtension().equalsIgnoreCase(name) || format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown format: " + name);
+    }
+
+    /**
+     * This method builds the connection properties from the properties file
+     * and the URL and credential arguments, which take precedence. Other
+     * keys of the file, such as the pool and fetch settings, are kept.
+     *
+     * @param arguments the values of the options
+     * @return the connection properties
+     * @throws IOException if the properties file cannot be read
+     * @throws IllegalArgumentException if the URL is malformed or a value is
+     * missing
+     */
+    private ConnectionProperties buildProperties(Map<String, String> arguments)
+            throws IOException {
+
+        Properties values = new Properties();
+        if (arguments.containsKey(PROPERTIES_OPTION)) {
+            try (Reader reader = Files.newBufferedReader(Paths.get(arguments.get(PROPERTIES_OPTION)),
+                    StandardCharsets.UTF_8)) {
+                values.load(reader);
+            }
+        }
+        if (arguments.containsKey(URL_OPTION)) {
+            applyUrl(arguments.get(URL_OPTION), values);
+        }
+        if (arguments.containsKey(USER_OPTION)) {
+            values.setProperty(ConnectionProperties.USERNAME, arguments.get(USER_OPTION));
+        }
+        if (arguments.containsKey(PASSWORD_OPTION)) {
+            values.setProperty(ConnectionProperties.PASSWORD, arguments.get(PASSWORD_OPTION));
+        }
+
+        String host = values.getProperty(ConnectionProperties.HOST, "127.0.0.1");
+        ConnectionProperties properties = new ConnectionProperties(
+                values.getProperty(ConnectionProperties.DRIVER_STRING, DEFAULT_DRIVER), host,
+                required(values, ConnectionProperties.DATABASE_NAME, URL_OPTION),
+                values.getProperty(ConnectionProperties.PORT, DEFAULT_PORT),
+                required(values, ConnectionProperties.USERNAME, USER_OPTION),
+                required(values, ConnectionProperties.PASSWORD, PASSWORD_OPTION));
+        for (String key : values.stringPropertyNames()) {
+            properties.setProperty(key, values.getProperty(key));
+        }
+        // unlike the setup window, which only connects locally, a job may name any host
+        properties.setProperty(ConnectionProperties.HOST, host);
+        return properties;
+    }
+
+    /**
+     * This method sets the driver, host, port and database given by a JDBC
+     * URL such as jdbc:mysql://host:3306/database?useSSL=true. Any query
+     * parameters are kept and appended to the URL the connection is opened
+     * with.
+     *
+     * @param url the JDBC URL
+     * @param values the properties receiving the values
+     * @throws IllegalArgumentException if the URL is malformed
+     */
+    private void applyUrl(String url, Properties values) {
+        int schemeEnd = url.indexOf("://");
+        int pathStart = schemeEnd == -1 ? -1 : url.indexOf('/', schemeEnd + 3);
+        if (!url.startsWith("jdbc:") || pathStart == -1) {
+            throw new IllegalArgumentException("The URL must look like jdbc:mysql://host:port/database");
+        }
+        String authority = url.substring(schemeEnd + 3, pathStart);
+        String databaseName = url.substring(pathStart + 1);
+        int parameters = databaseName.indexOf('?');
+        if (parameters != -1) {
+            values.setProperty(ConnectionProperties.URL_PARAMETERS,
+                    databaseName.substring(parameters + 1));
+            databaseName = databaseName.substring(0, parameters);
+        }
+        int portStart = authority.lastIndexOf(':');
+        values.setProperty(ConnectionProperties.DRIVER_STRING, url.substring(0, schemeEnd + 3));
+        values.setProperty(ConnectionProperties.HOST,
+                portStart == -1 ? authority : authority.substring(0, portStart));
+        values.setProperty(ConnectionProperties.PORT,
+                portStart == -1 ? DEFAULT_PORT : authority.substring(portStart + 1));
+        values.setProperty(ConnectionProperties.DATABASE_NAME, databaseName);
+    }
+
+    /**
+     * This method closes the script file, if it was opened.
+     *
+     * @param script the script reader, or null
+     */
+    private void closeScript(SqlScriptReader script) {
+        if (script != null) {
+            try {
+                script.close();
+            } catch (IOException ex) {
+                System.err.println("The script file could not be closed: " + ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.logic;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This backend runs work on bounded pools of daemon platform threads, one for
+ * tasks and one for forks. Threads are started as work arrives, up to the
+ * bound, and exit after a minute without work; work beyond the bound waits
+ * in a queue.
+ *
+ * @author Bryan Daniel
+ */
+public class PlatformThreadBackend implements ExecutionBackend {
+
+    /**
+     * The largest number of threads running tasks
+     */
+    public static final int MAX_TASK_THREADS = 32;
+
+    /**
+     * The largest number of threads running forks
+     */
+    public static final int MAX_FORK_THREADS = 32;
+
+    /**
+     * The time in seconds an idle thread waits for work before exiting
+     */
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    /**
+     * The executor running tasks
+     */
+    private final ExecutorService taskExecutor;
+
+    /**
+     * The executor running forks
+     */
+    private final ExecutorService forkExecutor;
+
+    /**
+     * This constructor creates the task and fork pools.
+     */
+    public PlatformThreadBackend() {
+        taskExecutor = createPool("background-", MAX_TASK_THREADS);
+        forkExecutor = createPool("background-fork-", MAX_FORK_THREADS);
+    }
+
+    /**
+     * This method returns the name of the backend.
+     *
+     * @return the backend name
+     */
+    @Override
+    public String getName() {
+        return "platform threads";
+    }
+
+    /**
+     * This method returns the executor running top-level tasks.
+     *
+     * @return the task executor
+     */
+    @Override
+    public ExecutorService getTaskExecutor() {
+        return taskExecutor;
+    }
+
+    /**
+     * This method returns the executor running forks.
+     *
+     * @return the fork executor
+     */
+    @Override
+    public ExecutorService getForkExecutor() {
+        return forkExecutor;
+    }
+
+    /**
+     * This method creates a bounded pool of daemon threads whose threads exit
+     * when idle.
+     *
+     * @param namePrefix the prefix of the thread names
+     * @param maxThreads the largest number of threads
+     * @return the pool
+     */
+    private static ExecutorService createPool(final String namePrefix, int maxThreads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
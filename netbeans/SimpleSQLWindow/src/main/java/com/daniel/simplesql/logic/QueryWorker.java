@@ -16,10 +16,28 @@
 package com.daniel.simplesql.logic;
 
 import com.daniel.simplesql.data.AnyQueryDataAccess;
+import com.daniel.simplesql.data.CursorTableModel;
+import com.daniel.simplesql.data.QueryHistory;
+import com.daniel.simplesql.data.QuerySession;
+import com.daniel.simplesql.data.ResultHandler;
+import com.daniel.simplesql.data.ResultMemoryBudget;
+import com.daniel.simplesql.data.SpillingTableModel;
+import com.daniel.simplesql.data.SqlScriptReader;
+import com.daniel.simplesql.model.ColumnarTableModel;
 import com.daniel.simplesql.model.ConnectionProperties;
+import com.daniel.simplesql.model.QueryOptions;
+import com.daniel.simplesql.model.QueryStatus;
+import com.daniel.simplesql.monitor.FlightEvents;
+import com.daniel.simplesql.monitor.QueryMetrics;
+import com.daniel.simplesql.monitor.QueryTimings;
+import com.daniel.simplesql.ui.DisplayManager;
 import com.daniel.simplesql.util.TableUtil;
 import java.awt.Dimension;
-import java.util.ArrayList;
+import java.awt.Graphics;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -27,94 +45,650 @@ import javax.swing.JLabel;
 import javax.swing.JScrollPane;
 import javax.swing.JTabbedPane;
 import javax.swing.JTable;
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableModel;
 
 /**
  * This SwingWorker takes statements from query window input and uses the data
- * access class to retrieve results.
+ * access class to retrieve results. Results are published as they are read,
+ * so rows appear in the query window while the rest of the run is still in
+ * progress.
  *
  * @author Bryan Daniel
  */
-public class QueryWorker extends SwingWorker<ArrayList<Object>, Object> {
+public class QueryWorker extends SwingWorker<Void, Object> {
 
     /**
-     * The input to execute
+     * The input to execute, or null when a script file is run
      */
     private final String queryString;
 
+    /**
+     * The script file to run, or null when the input is run
+     */
+    private final Path scriptFile;
+
     /**
      * The database connection properties
      */
     private final ConnectionProperties properties;
 
+    /**
+     * The options applied to this run
+     */
+    private final QueryOptions options;
+
     /**
      * The tabbed pane holding results
      */
     private final JTabbedPane tabbedPane;
 
+    /**
+     * The data access object executing the query
+     */
+    private final AnyQueryDataAccess dataAccess = new AnyQueryDataAccess();
+
+    /**
+     * Indicates the results of this run are no longer wanted
+     */
+    private boolean discarded;
+
+    /**
+     * The display echoing the messages of the run, if any
+     */
+    private volatile DisplayManager displayManager;
+
+    /**
+     * The number of results shown so far
+     */
+    private int resultNumber;
+
+    /**
+     * The table showing the result being read
+     */
+    private ResultTable currentTable;
+
+    /**
+     * The timings of the result being read, once they have arrived
+     */
+    private QueryTimings currentTimings;
+
+    /**
+     * The time the event dispatch thread has spent adding the result being
+     * read to its table
+     */
+    private long currentBuildNanos;
+
+    /**
+     * The model receiving the rows of the result being read
+     */
+    private SpillingTableModel currentModel;
+
+    /**
+     * The tab component of the result being read
+     */
+    private JScrollPane currentTab;
+
     /**
      * This constructor sets the values for the query string, the connection
-     * properties, and the results panel.
+     * properties, the query options, and the results panel.
      *
      * @param queryString the query string
      * @param properties the connection properties
+     * @param options the query options, copied for this run
      * @param tabbedPane the tabbed pane
      */
     public QueryWorker(String queryString, ConnectionProperties properties,
-            JTabbedPane tabbedPane) {
+            QueryOptions options, JTabbedPane tabbedPane) {
         this.queryString = queryString;
+        this.scriptFile = null;
         this.properties = properties;
+        this.options = new QueryOptions(options);
         this.tabbedPane = tabbedPane;
     }
 
     /**
-     * This method gets the results produced by the doInBackground method and
-     * displays the results in the query window. This is executed on the event
+     * This constructor sets the values for the script file, the connection
+     * properties, the query options, and the results panel.
+     *
+     * @param scriptFile the script file
+     * @param properties the connection properties
+     * @param options the query options, copied for this run
+     * @param tabbedPane the tabbed pane
+     */
+    public QueryWorker(Path scriptFile, ConnectionProperties properties,
+            QueryOptions options, JTabbedPane tabbedPane) {
+        this.queryString = null;
+        this.scriptFile = scriptFile;
+        this.properties = properties;
+        this.options = new QueryOptions(options);
+        this.tabbedPane = tabbedPane;
+    }
+
+    /**
+     * This method sets the display echoing the messages of the run. This
+     * must be called before the worker is executed.
+     *
+     * @param displayManager the display, or null for none
+     */
+    public void setDisplayManager(DisplayManager displayManager) {
+        this.displayManager = displayManager;
+    }
+
+    /**
+     * This method sets the session whose connection runs the statements. This
+     * must be called before the worker is executed.
+     *
+     * @param session the session, or null to use pooled connections
+     */
+    public void setSession(QuerySession session) {
+        dataAccess.setSession(session);
+    }
+
+    /**
+     * This method requests cancellation of the running query. The statement
+     * is cancelled on a background thread because the driver contacts the
+     * server to stop it. Results read before the cancellation are still
+     * displayed.
+     */
+    public void cancelQuery() {
+        BackgroundExecutor.getInstance().execute(new Runnable() {
+            @Override
+            public void run() {
+                dataAccess.cancel();
+            }
+        });
+    }
+
+    /**
+     * This method cancels the running query and stops any further results of
+     * this run from being displayed. This must be called on the event
      * dispatch thread.
      */
+    public void discardResults() {
+        discarded = true;
+        cancelQuery();
+    }
+
+    /**
+     * This method displays the results published by the doInBackground
+     * method, appending rows to the table of the result being read. This is
+     * executed on the event dispatch thread.
+     *
+     * @param updates the published result updates
+     */
     @Override
-    protected void done() {
-        
-        tabbedPane.removeAll();
-        
-        try {
-            ArrayList<Object> results = get();
-            int i = 1;
-            for (Object object : results) {
-                if (object instanceof DefaultTableModel) {
-
-                    // wrap a scrollpane around the table
-                    JTable resultTable = new JTable((DefaultTableModel) object);
-                    TableUtil.adjustTableColumnWidths(resultTable);
-                    JScrollPane scrollPane = new JScrollPane(resultTable,
+    protected void process(List<Object> updates) {
+
+        for (Object object : updates) {
+            ResultUpdate update = (ResultUpdate) object;
+            if (discarded) {
+                closeUnshownModel(update);
+                continue;
+            }
+            long updateStart = System.nanoTime();
+            switch (update.kind) {
+                case STARTED:
+                    currentTimings = null;
+                    currentBuildNanos = 0;
+                    currentModel = (SpillingTableModel) update.payload;
+                    currentTable = createResultTable(currentModel);
+                    JScrollPane scrollPane = new JScrollPane(currentTable,
                             JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
                             JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
                     scrollPane.setAutoscrolls(true);
                     scrollPane.setPreferredSize(new Dimension(200, 200));
-                    tabbedPane.addTab("Result " + i++, scrollPane);
-                }
-                if (object instanceof String) {
-                    tabbedPane.addTab("Result " + i++, new JLabel((String) object));
-                }
+                    currentTab = scrollPane;
+                    tabbedPane.addTab(resultTitle(++resultNumber, 0), scrollPane);
+                    currentBuildNanos += System.nanoTime() - updateStart;
+                    break;
+                case ROWS:
+                    boolean firstRows = currentModel.getRowCount() == 0;
+                    currentModel.showStoredRows();
+                    if (firstRows) {
+                        TableUtil.adjustTableColumnWidths(currentTable);
+                    }
+                    updateTitle(currentModel.getRowCount());
+                    currentBuildNanos += System.nanoTime() - updateStart;
+                    break;
+                case REPLACED:
+                    TableModel model = (TableModel) update.payload;
+                    if (tabbedPane.indexOfComponent(currentTab) == -1) {
+                        // the results were cleared while the query was running
+                        closeUnshownModel(update);
+                        currentModel = null;
+                        break;
+                    }
+                    currentTable.setModel(model);
+                    currentModel.close();
+                    currentModel = null;
+                    // measuring the last rows would read the next block of the result
+                    TableUtil.adjustTableColumnWidths(currentTable, CursorTableModel.BLOCK_SIZE);
+                    if (model instanceof CursorTableModel) {
+                        followCursorModel((CursorTableModel) model, currentTab, resultNumber);
+                    } else {
+                        updateTitle(model.getRowCount());
+                    }
+                    currentBuildNanos += System.nanoTime() - updateStart;
+                    break;
+                case TIMED:
+                    currentTimings = (QueryTimings) update.payload;
+                    break;
+                case FINISHED:
+                    if (currentModel != null) {
+                        // all rows have arrived, so the model no longer changes while it is measured
+                        TableUtil.adjustTableColumnWidthsInBackground(currentTable);
+                    }
+                    if (currentTimings != null) {
+                        currentTimings.setBuildNanos(currentBuildNanos);
+                        QueryMetrics.getInstance().recordBuild(currentBuildNanos);
+                        currentTable.timeNextPaint(currentTimings);
+                        showTimings(currentTab, currentTimings);
+                    }
+                    currentTimings = null;
+                    currentModel = null;
+                    currentTable = null;
+                    currentTab = null;
+                    break;
+                case MESSAGE:
+                    tabbedPane.addTab("Result " + ++resultNumber, new JLabel((String) update.payload));
+                    break;
+                default:
+                    break;
             }
+        }
+        tabbedPane.repaint();
+    }
+
+    /**
+     * This method checks the outcome of the doInBackground method once all
+     * results have been displayed. This is executed on the event dispatch
+     * thread.
+     */
+    @Override
+    protected void done() {
+
+        try {
+            get();
         } catch (InterruptedException | ExecutionException ex) {
             Logger.getLogger(QueryWorker.class.getName()).log(Level.SEVERE, null, ex);
         }
-        
-        tabbedPane.repaint();
+        if (!discarded) {
+            tabbedPane.repaint();
+        }
     }
 
     /**
      * This method uses the data access class for executing any given query or
-     * set of queries. This is not executed on the event dispatch thread.
+     * set of queries, or the statements of the script file, publishing results
+     * as they are read. This is not executed on the event dispatch thread.
      *
-     * @return the results of the query execution
+     * @return nothing
      * @throws Exception if an exception occurs
      */
     @Override
-    protected ArrayList<Object> doInBackground() throws Exception {
+    protected Void doInBackground() throws Exception {
+
+        long startTime = System.nanoTime();
+        Object runEvent = FlightEvents.beginQueryRun();
+        // every result of the run draws on the same memory limit
+        ResultMemoryBudget budget = new ResultMemoryBudget(options.getResultHeapBudget());
+        dataAccess.setResultBudget(budget);
+        PublishingHandler handler = new PublishingHandler(budget);
+        // the statements of a parallel run cannot outlive the run
+        TaskScope scope = BackgroundExecutor.getInstance().openScope();
+        dataAccess.setStatementExecutor(scope);
+        try {
+            if (scriptFile == null) {
+                dataAccess.executeStatement(queryString, properties, options, handler);
+                return null;
+            }
+            try (SqlScriptReader script = new SqlScriptReader(scriptFile)) {
+                dataAccess.executeScript(script, properties, options, handler);
+            } catch (IOException ex) {
+                Logger.getLogger(QueryWorker.class.getName()).log(Level.INFO,
+                        "Exception occurred opening a script file.", ex);
+                publish(new ResultUpdate(UpdateKind.MESSAGE,
+                        "The script could not be read: " + ex.getMessage()));
+            }
+            return null;
+        } finally {
+            scope.close();
+            FlightEvents.commitQueryRun(runEvent, queryString,
+                    scriptFile == null ? null : scriptFile.toString(), handler.resultCount);
+            if (scriptFile == null) {
+                QueryStatus status = dataAccess.isCancelled() ? QueryStatus.CANCELLED
+                        : dataAccess.hasFailed() ? QueryStatus.FAILED : QueryStatus.SUCCEEDED;
+                QueryHistory.getInstance().record(queryString,
+                        properties.getProperty(ConnectionProperties.DATABASE_NAME),
+                        (System.nanoTime() - startTime) / 1000000, handler.rowCount, status);
+            }
+        }
+    }
 
-        return new AnyQueryDataAccess().executeStatement(queryString, properties);
+    /**
+     * This method creates the table for a result.
+     *
+     * @param model the table model
+     * @return the result table
+     */
+    private ResultTable createResultTable(TableModel model) {
+        ResultTable resultTable = new ResultTable(model);
+        // typed columns show floating-point values in full rather than rounded
+        resultTable.setDefaultRenderer(Double.class, resultTable.getDefaultRenderer(Number.class));
+        resultTable.setDefaultRenderer(Float.class, resultTable.getDefaultRenderer(Number.class));
+        TableUtil.adjustTableColumnWidths(resultTable);
+        return resultTable;
+    }
+
+    /**
+     * This method closes the model of an update that will not be displayed,
+     * releasing the connection held by a cursor-backed model or the file held
+     * by a spilling model.
+     *
+     * @param update the result update
+     */
+    private void closeUnshownModel(ResultUpdate update) {
+        if (update.payload instanceof Closeable) {
+            try {
+                ((Closeable) update.payload).close();
+            } catch (IOException ex) {
+                Logger.getLogger(QueryWorker.class.getName()).log(Level.INFO,
+                        "Exception occurred closing a result table model.", ex);
+            }
+        }
+    }
+
+    /**
+     * This method shows the number of rows fetched in the title of the tab of
+     * the result being read, unless the tab has been cleared.
+     *
+     * @param rowCount the number of rows fetched
+     */
+    private void updateTitle(int rowCount) {
+        int index = tabbedPane.indexOfComponent(currentTab);
+        if (index != -1) {
+            tabbedPane.setTitleAt(index, resultTitle(resultNumber, rowCount));
+        }
+    }
+
+    /**
+     * This method keeps the tab title of a lazily browsed result up to date
+     * as its rows are read, and reports in the tab when reading fails. This
+     * must be called on the event dispatch thread.
+     *
+     * @param model the model browsing the result
+     * @param tab the tab component of the result
+     * @param number the result number
+     */
+    private void followCursorModel(final CursorTableModel model, final JScrollPane tab,
+            final int number) {
+        TableModelListener listener = new TableModelListener() {
+            @Override
+            public void tableChanged(TableModelEvent event) {
+                int index = tabbedPane.indexOfComponent(tab);
+                if (index == -1) {
+                    return;
+                }
+                String failure = model.getFailure();
+                if (failure != null) {
+                    tabbedPane.setTitleAt(index, resultTitle(number, model.getRowCount())
+                            + " - reading failed");
+                    tabbedPane.setToolTipTextAt(index, "Reading the result failed: " + failure);
+                } else if (model.isComplete()) {
+                    tabbedPane.setTitleAt(index, resultTitle(number, model.getRowCount()));
+                } else {
+                    // more rows are read as the table scrolls towards the end
+                    tabbedPane.setTitleAt(index, String.format("Result %d (%,d+ rows)", number,
+                            model.getRowCount()));
+                }
+            }
+        };
+        model.addTableModelListener(listener);
+        listener.tableChanged(new TableModelEvent(model));
+    }
+
+    /**
+     * This method shows the timings of a result as the tool tip of its tab,
+     * unless the tab has been cleared.
+     *
+     * @param tab the tab component of the result
+     * @param timings the timings of the result
+     */
+    private void showTimings(JScrollPane tab, QueryTimings timings) {
+        int index = tabbedPane.indexOfComponent(tab);
+        if (index != -1) {
+            tabbedPane.setToolTipTextAt(index, timings.toString());
+        }
+    }
+
+    /**
+     * This method returns the tab title for a result with its row count.
+     *
+     * @param number the result number
+     * @param rowCount the number of rows fetched
+     * @return the tab title
+     */
+    private String resultTitle(int number, int rowCount) {
+        return String.format("Result %d (%,d rows)", number, rowCount);
+    }
+
+    /**
+     * This table measures its first paint once its result has finished and
+     * records it as the render time of the result.
+     *
+     * @author Bryan Daniel
+     */
+    private class ResultTable extends JTable {
+
+        /**
+         * Serial version UID
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The timings receiving the time of the next paint, or null
+         */
+        private transient QueryTimings paintTimings;
+
+        /**
+         * This constructor creates a table for the model.
+         *
+         * @param model the table model
+         */
+        private ResultTable(TableModel model) {
+            super(model);
+        }
+
+        /**
+         * This method requests that the next paint be timed as the render
+         * time of the result.
+         *
+         * @param timings the timings of the result
+         */
+        private void timeNextPaint(QueryTimings timings) {
+            paintTimings = timings;
+        }
+
+        /**
+         * This overrides the paintComponent method to time the first paint
+         * after the result has finished.
+         *
+         * @param graphics the Graphics object
+         */
+        @Override
+        protected void paintComponent(Graphics graphics) {
+            QueryTimings timings = paintTimings;
+            if (timings == null) {
+                super.paintComponent(graphics);
+                return;
+            }
+            paintTimings = null;
+            Object displayEvent = FlightEvents.beginResultDisplay();
+            long paintStart = System.nanoTime();
+            super.paintComponent(graphics);
+            long renderNanos = System.nanoTime() - paintStart;
+            timings.setRenderNanos(renderNanos);
+            FlightEvents.commitResultDisplay(displayEvent, timings);
+            QueryMetrics.getInstance().recordRender(renderNanos);
+            showTimings((JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, this),
+                    timings);
+        }
+    }
+
+    /**
+     * The kinds of result update published by the worker.
+     */
+    private enum UpdateKind {
+        STARTED, ROWS, REPLACED, TIMED, FINISHED, MESSAGE
+    }
+
+    /**
+     * This class holds one result update published to the event dispatch
+     * thread.
+     *
+     * @author Bryan Daniel
+     */
+    private static class ResultUpdate {
+
+        /**
+         * The kind of update
+         */
+        private final UpdateKind kind;
+
+        /**
+         * The model, rows or message of the update
+         */
+        private final Object payload;
+
+        /**
+         * This constructor sets the kind and payload of the update.
+         *
+         * @param kind the kind of update
+         * @param payload the model, rows or message
+         */
+        private ResultUpdate(UpdateKind kind, Object payload) {
+            this.kind = kind;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * This result handler publishes each result update to the event dispatch
+     * thread.
+     *
+     * @author Bryan Daniel
+     */
+    private class PublishingHandler implements ResultHandler {
+
+        /**
+         * The memory budget shared by the results of the run
+         */
+        private final ResultMemoryBudget budget;
+
+        /**
+         * The model storing the rows of the result being read
+         */
+        private SpillingTableModel store;
+
+        /**
+         * The number of results started
+         */
+        private int resultCount;
+
+        /**
+         * The number of rows read in all results
+         */
+        private long rowCount;
+
+        /**
+         * This constructor sets the memory budget of the run.
+         *
+         * @param budget the memory budget shared by the results of the run
+         */
+        private PublishingHandler(ResultMemoryBudget budget) {
+            this.budget = budget;
+        }
+
+        /**
+         * This method creates the model storing the rows of a new result and
+         * publishes the start of the result.
+         *
+         * @param model an empty model describing the columns of the result
+         */
+        @Override
+        public void resultStarted(ColumnarTableModel model) {
+            resultCount++;
+            store = new SpillingTableModel(model, budget);
+            publish(new ResultUpdate(UpdateKind.STARTED, store));
+        }
+
+        /**
+         * This method stores a block of rows off the event dispatch thread and
+         * publishes that rows have arrived. If the rows cannot be written to
+         * disk, the run is cancelled.
+         *
+         * @param rows a model holding the rows read
+         */
+        @Override
+        public void rowsRead(ColumnarTableModel rows) {
+            try {
+                store.storeRows(rows);
+            } catch (IOException ex) {
+                Logger.getLogger(QueryWorker.class.getName()).log(Level.INFO,
+                        "Exception occurred writing result rows to disk.", ex);
+                publish(new ResultUpdate(UpdateKind.MESSAGE,
+                        "Result rows could not be written to disk: " + ex.getMessage()));
+                dataAccess.cancel();
+                return;
+            }
+            publish(new ResultUpdate(UpdateKind.ROWS, store));
+        }
+
+        /**
+         * This method publishes the model replacing the current result.
+         *
+         * @param model the model replacing the current result
+         */
+        @Override
+        public void resultReplaced(TableModel model) {
+            publish(new ResultUpdate(UpdateKind.REPLACED, model));
+        }
+
+        /**
+         * This method publishes the timings of the current result.
+         *
+         * @param timings the timings of the result
+         */
+        @Override
+        public void resultTimed(QueryTimings timings) {
+            rowCount += timings.getRows();
+            publish(new ResultUpdate(UpdateKind.TIMED, timings));
+        }
+
+        /**
+         * This method publishes the end of the current result.
+         */
+        @Override
+        public void resultFinished() {
+            publish(new ResultUpdate(UpdateKind.FINISHED, null));
+        }
+
+        /**
+         * This method publishes a message.
+         *
+         * @param message the message
+         */
+        @Override
+        public void message(String message) {
+            publish(new ResultUpdate(UpdateKind.MESSAGE, message));
+            DisplayManager display = displayManager;
+            if (display != null) {
+                display.displayResultLine(message);
+            }
+        }
     }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * This class bounds the lifetime of the subtasks one task forks, in the
+ * manner of a structured concurrency scope. Subtasks are forked into the
+ * scope, the owner joins them, and closing the scope cancels any subtask
+ * still running and waits for its thread to finish, so no subtask outlives
+ * the task that started it. A scope is opened for each query run.
+ *
+ * @author Bryan Daniel
+ */
+public class TaskScope implements Executor, AutoCloseable {
+
+    /**
+     * The executor running the subtasks
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The subtasks forked into the scope
+     */
+    private final List<Future<?>> forks = new ArrayList<>();
+
+    /**
+     * The number of subtasks that have not finished
+     */
+    private int unfinished;
+
+    /**
+     * Indicates the scope has been closed
+     */
+    private boolean closed;
+
+    /**
+     * This constructor sets the executor running the subtasks.
+     *
+     * @param executor the executor
+     */
+    TaskScope(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * This method starts a subtask in the scope.
+     *
+     * @param <T> the type of the subtask's result
+     * @param task the subtask
+     * @return the future holding the subtask's result
+     * @throws RejectedExecutionException if the scope has been closed
+     */
+    public <T> Future<T> fork(Callable<T> task) {
+        FutureTask<T> fork = new FutureTask<T>(task) {
+            @Override
+            public void run() {
+                try {
+                    super.run();
+                } finally {
+                    finished();
+                }
+            }
+        };
+        synchronized (this) {
+            if (closed) {
+                throw new RejectedExecutionException("The task scope has been closed.");
+            }
+            forks.add(fork);
+            unfinished++;
+        }
+        try {
+            executor.execute(fork);
+        } catch (RejectedExecutionException ex) {
+            finished();
+            throw ex;
+        }
+        return fork;
+    }
+
+    /**
+     * This method starts a subtask in the scope.
+     *
+     * @param command the subtask
+     * @throws RejectedExecutionException if the scope has been closed
+     */
+    @Override
+    public void execute(Runnable command) {
+        fork(Executors.callable(command));
+    }
+
+    /**
+     * This method waits until every subtask forked so far has finished.
+     *
+     * @throws InterruptedException if the wait is interrupted
+     */
+    public synchronized void join() throws InterruptedException {
+        while (unfinished > 0) {
+            wait();
+        }
+    }
+
+    /**
+     * This method cancels the subtasks that have not finished, interrupting
+     * those that are running.
+     */
+    public void cancel() {
+        List<Future<?>> cancelled;
+        synchronized (this) {
+            cancelled = new ArrayList<>(forks);
+        }
+        for (Future<?> fork : cancelled) {
+            fork.cancel(true);
+        }
+    }
+
+    /**
+     * This method closes the scope, cancelling the subtasks that have not
+     * finished and waiting for their threads to leave them.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        cancel();
+        boolean interrupted = false;
+        synchronized (this) {
+            while (unfinished > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * This method records that a subtask has finished.
+     */
+    private synchronized void finished() {
+        unfinished--;
+        notifyAll();
+    }
+}
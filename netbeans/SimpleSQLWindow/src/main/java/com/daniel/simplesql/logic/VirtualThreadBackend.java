@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.logic;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This backend runs every task and fork on a virtual thread of its own, so
+ * that blocking JDBC calls do not occupy platform threads and many query
+ * tabs and exports can run at once. Virtual threads are reached through
+ * reflection because the application is compiled for Java 11, whose API has
+ * no virtual threads; the backend is only available on runtimes that have
+ * them.
+ *
+ * @author Bryan Daniel
+ */
+public class VirtualThreadBackend implements ExecutionBackend {
+
+    /**
+     * The executor starting a virtual thread per task and fork
+     */
+    private final ExecutorService executor;
+
+    /**
+     * This constructor sets the executor of the backend.
+     *
+     * @param executor the virtual thread executor
+     */
+    private VirtualThreadBackend(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * This method creates the backend if the runtime supports virtual
+     * threads.
+     *
+     * @return the backend, or null if virtual threads are not available
+     */
+    public static VirtualThreadBackend create() {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, "virtual-", 1L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor",
+                    ThreadFactory.class);
+            return new VirtualThreadBackend((ExecutorService) newExecutor.invoke(null, factory));
+        } catch (ClassNotFoundException | NoSuchMethodException ex) {
+            return null;
+        } catch (IllegalAccessException | InvocationTargetException ex) {
+            Logger.getLogger(VirtualThreadBackend.class.getName()).log(Level.INFO,
+                    "Virtual threads could not be created.", ex);
+            return null;
+        }
+    }
+
+    /**
+     * This method returns the name of the backend.
+     *
+     * @return the backend name
+     */
+    @Override
+    public String getName() {
+        return "virtual threads";
+    }
+
+    /**
+     * This method returns the executor running top-level tasks.
+     *
+     * @return the task executor
+     */
+    @Override
+    public ExecutorService getTaskExecutor() {
+        return executor;
+    }
+
+    /**
+     * This method returns the executor running forks, which is the same
+     * executor since virtual threads are not pooled.
+     *
+     * @return the fork executor
+     */
+    @Override
+    public ExecutorService getForkExecutor() {
+        return executor;
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.model;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * This table model holds a query result column by column, using the column
+ * types reported in the result set metadata to choose a compact storage for
+ * each column.
+ *
+ * @author Bryan Daniel
+ */
+public class ColumnarTableModel extends AbstractTableModel {
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = 4658232101542393766L;
+
+    /**
+     * The column names of the result
+     */
+    private final String[] columnNames;
+
+    /**
+     * The Java class names the driver reports for the columns
+     */
+    private final String[] columnClassNames;
+
+    /**
+     * The storage of each column
+     */
+    private final transient ResultColumn[] columns;
+
+    /**
+     * The number of rows in the result
+     */
+    private int rowCount;
+
+    /**
+     * This constructor creates empty column storage matching the metadata of
+     * a result set.
+     *
+     * @param metaData the result set metadata
+     * @throws SQLException if the metadata cannot be read
+     */
+    public ColumnarTableModel(ResultSetMetaData metaData) throws SQLException {
+        this(readColumnNames(metaData), readColumnClassNames(metaData));
+    }
+
+    /**
+     * This constructor creates empty column storage for the given column
+     * names and driver-reported column class names.
+     *
+     * @param columnNames the column names
+     * @param columnClassNames the column class names
+     */
+    public ColumnarTableModel(String[] columnNames, String[] columnClassNames) {
+        this.columnNames = columnNames;
+        this.columnClassNames = columnClassNames;
+        columns = new ResultColumn[columnNames.length];
+        for (int column = 0; column < columns.length; column++) {
+            columns[column] = ResultColumn.forClassName(columnClassNames[column]);
+        }
+    }
+
+    /**
+     * This method creates an empty model with the same columns as this one.
+     *
+     * @return the empty model
+     */
+    public ColumnarTableModel createEmptyCopy() {
+        return new ColumnarTableModel(columnNames, columnClassNames);
+    }
+
+    /**
+     * This method appends the current row of the result set.
+     *
+     * @param resultSet the result set positioned on a row
+     * @throws SQLException if the row cannot be read
+     */
+    public void appendRow(ResultSet resultSet) throws SQLException {
+        for (int column = 0; column < columns.length; column++) {
+            columns[column].append(resultSet, column + 1);
+        }
+        rowCount++;
+    }
+
+    /**
+     * This method appends all rows of another model with the same columns and
+     * notifies listeners of the inserted rows.
+     *
+     * @param rows the model holding the rows to append
+     */
+    public void appendRows(ColumnarTableModel rows) {
+        int added = rows.getRowCount();
+        if (added == 0) {
+            return;
+        }
+        for (int column = 0; column < columns.length; column++) {
+            columns[column].appendAll(rows.columns[column]);
+        }
+        int firstRow = rowCount;
+        rowCount += added;
+        fireTableRowsInserted(firstRow, rowCount - 1);
+    }
+
+    /**
+     * This method releases the unused capacity of every column.
+     */
+    public void trimToSize() {
+        for (ResultColumn column : columns) {
+            column.trimToSize();
+        }
+    }
+
+    /**
+     * This method returns an estimate of the heap memory used by the rows of
+     * the model.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimateMemoryUsage() {
+        long bytes = 0;
+        for (ResultColumn column : columns) {
+            bytes += column.estimateMemoryUsage();
+        }
+        return bytes;
+    }
+
+    /**
+     * This method returns the Java class name the driver reports for the
+     * given column.
+     *
+     * @param column the column index
+     * @return the column class name
+     */
+    public String getColumnClassName(int column) {
+        return columnClassNames[column];
+    }
+
+    /**
+     * This method returns the storage of the given column.
+     *
+     * @param column the column index
+     * @return the column storage
+     */
+    public ResultColumn getColumn(int column) {
+        return columns[column];
+    }
+
+    /**
+     * This method returns the number of rows in the result.
+     *
+     * @return the row count
+     */
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * This method returns the number of columns in the result.
+     *
+     * @return the column count
+     */
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * This method returns the name of the given column.
+     *
+     * @param column the column index
+     * @return the column name
+     */
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    /**
+     * This method returns the class of the values in the given column, which
+     * lets a row sorter compare numeric columns as numbers.
+     *
+     * @param column the column index
+     * @return the value class
+     */
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return columns[column].getValueClass();
+    }
+
+    /**
+     * This method returns the value of the given cell.
+     *
+     * @param rowIndex the row index
+     * @param columnIndex the column index
+     * @return the cell value
+     */
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return columns[columnIndex].get(rowIndex);
+    }
+
+    /**
+     * This method reads the column names from the result set metadata.
+     *
+     * @param metaData the result set metadata
+     * @return the column names
+     * @throws SQLException if the metadata cannot be read
+     */
+    private static String[] readColumnNames(ResultSetMetaData metaData) throws SQLException {
+        String[] names = new String[metaData.getColumnCount()];
+        for (int column = 0; column < names.length; column++) {
+            names[column] = metaData.getColumnName(column + 1);
+        }
+        return names;
+    }
+
+    /**
+     * This method reads the column class names from the result set metadata.
+     *
+     * @param metaData the result set metadata
+     * @return the column class names
+     * @throws SQLException if the metadata cannot be read
+     */
+    private static String[] readColumnClassNames(ResultSetMetaData metaData) throws SQLException {
+        String[] classNames = new String[metaData.getColumnCount()];
+        for (int column = 0; column < classNames.length; column++) {
+            classNames[column] = metaData.getColumnClassName(column + 1);
+        }
+        return classNames;
+    }
+}
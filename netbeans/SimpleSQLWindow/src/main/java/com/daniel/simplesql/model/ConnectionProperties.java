@@ -60,6 +60,72 @@ public class ConnectionProperties extends Properties {
      */
     public static final String PASSWORD = "password";
 
+    /**
+     * The optional key for the minimum number of pooled connections
+     */
+    public static final String POOL_MIN_SIZE = "poolMinSize";
+
+    /**
+     * The optional key for the maximum number of pooled connections
+     */
+    public static final String POOL_MAX_SIZE = "poolMaxSize";
+
+    /**
+     * The optional key for the idle time in seconds after which pooled
+     * connections are evicted
+     */
+    public static final String POOL_IDLE_TIMEOUT = "poolIdleTimeout";
+
+    /**
+     * The optional key for the time in seconds after which a borrowed
+     * connection is reported as a possible leak
+     */
+    public static final String POOL_LEAK_THRESHOLD = "poolLeakThreshold";
+
+    /**
+     * The optional key for the fetch mode, one of buffered, streaming or
+     * cursor
+     */
+    public static final String FETCH_MODE = "fetchMode";
+
+    /**
+     * The optional key for the number of rows fetched per round trip in cursor
+     * mode
+     */
+    public static final String FETCH_SIZE = "fetchSize";
+
+    /**
+     * The optional key for the time in seconds allowed for opening a
+     * connection
+     */
+    public static final String CONNECT_TIMEOUT = "connectTimeout";
+
+    /**
+     * The optional key for the time in seconds a connection that was shown to
+     * work is used without being checked again
+     */
+    public static final String HEALTH_CHECK_INTERVAL = "healthCheckInterval";
+
+    /**
+     * The optional key for the time in seconds after which idle pooled
+     * connections are pinged, or zero to never ping them
+     */
+    public static final String KEEP_ALIVE_INTERVAL = "keepAliveInterval";
+
+    /**
+     * The optional key for further JDBC URL parameters, such as
+     * useSSL=true&amp;serverTimezone=UTC, appended after the ones the
+     * application sets
+     */
+    public static final String URL_PARAMETERS = "urlParameters";
+
+    /**
+     * The optional key for a complete JDBC URL used as given instead of the
+     * MySQL URL built from the other keys, for drivers such as the in-memory
+     * database of the benchmarks
+     */
+    public static final String JDBC_URL = "jdbcUrl";
+
     /**
      * This constructor sets the property values with the given parameters.
      *
@@ -75,6 +141,36 @@ public class ConnectionProperties extends Properties {
         validateAndSet(driver, host, databaseName, port, username, password);
     }
 
+    /**
+     * This method returns the integer value of the given property, or the
+     * default value if the property is not set or is not a valid integer.
+     *
+     * @param key the property key
+     * @param defaultValue the value to use when the property is absent
+     * @return the integer value of the property
+     */
+    public int getIntProperty(String key, int defaultValue) {
+        String value = getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * This method returns the fetch mode set for the connection, which is
+     * buffered unless another mode is configured.
+     *
+     * @return the fetch mode
+     */
+    public FetchMode getFetchMode() {
+        return FetchMode.fromProperty(getProperty(FETCH_MODE), FetchMode.BUFFERED);
+    }
+
     /**
      * This method validates property values before setting them.
      *
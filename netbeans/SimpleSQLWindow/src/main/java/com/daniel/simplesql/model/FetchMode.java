@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.model;
+
+/**
+ * This enumeration lists the ways the driver can deliver the rows of a result
+ * set to the application.
+ *
+ * @author Bryan Daniel
+ */
+public enum FetchMode {
+
+    /**
+     * The driver reads the whole result into memory before the first row is
+     * returned
+     */
+    BUFFERED("Buffered"),
+
+    /**
+     * The driver returns rows one at a time as they arrive from the server,
+     * which ties up the connection until the result is fully read or closed
+     */
+    STREAMING("Streaming"),
+
+    /**
+     * The server keeps the result in a cursor and the driver fetches it in
+     * batches of the fetch size
+     */
+    CURSOR("Cursor");
+
+    /**
+     * The name shown for the mode in the query window
+     */
+    private final String displayName;
+
+    /**
+     * This constructor sets the display name of the mode.
+     *
+     * @param displayName the display name
+     */
+    private FetchMode(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * This method returns the mode named by the given property value, ignoring
+     * case, or the default mode if the value does not name a mode.
+     *
+     * @param value the property value
+     * @param defaultMode the mode to use when the value is absent or unknown
+     * @return the fetch mode
+     */
+    public static FetchMode fromProperty(String value, FetchMode defaultMode) {
+        if (value != null) {
+            for (FetchMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(value.trim())) {
+                    return mode;
+                }
+            }
+        }
+        return defaultMode;
+    }
+
+    /**
+     * This method returns the name shown for the mode.
+     *
+     * @return the display name
+     */
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
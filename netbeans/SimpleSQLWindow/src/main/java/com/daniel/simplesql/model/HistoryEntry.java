@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.model;
+
+/**
+ * This class holds one record of the query history: the query text and when,
+ * where and how it ran.
+ *
+ * @author Bryan Daniel
+ */
+public class HistoryEntry {
+
+    /**
+     * The time the query was recorded in milliseconds since the epoch
+     */
+    private final long time;
+
+    /**
+     * The time taken to run the query in milliseconds
+     */
+    private final long elapsedMillis;
+
+    /**
+     * The number of rows read
+     */
+    private final long rows;
+
+    /**
+     * The outcome of the query
+     */
+    private final QueryStatus status;
+
+    /**
+     * The name of the database the query ran against
+     */
+    private final String database;
+
+    /**
+     * The query text
+     */
+    private final String query;
+
+    /**
+     * This constructor sets the values of the entry.
+     *
+     * @param time the time the query was recorded in milliseconds since the
+     * epoch
+     * @param elapsedMillis the time taken to run the query in milliseconds
+     * @param rows the number of rows read
+     * @param status the outcome of the query
+     * @param database the name of the database the query ran against
+     * @param query the query text
+     */
+    public HistoryEntry(long time, long elapsedMillis, long rows, QueryStatus status,
+            String database, String query) {
+        this.time = time;
+        this.elapsedMillis = elapsedMillis;
+        this.rows = rows;
+        this.status = status;
+        this.database = database;
+        this.query = query;
+    }
+
+    /**
+     * This method returns the time the query was recorded.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * This method returns the time taken to run the query.
+     *
+     * @return the time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * This method returns the number of rows read.
+     *
+     * @return the row count
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * This method returns the outcome of the query.
+     *
+     * @return the status
+     */
+    public QueryStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * This method returns the name of the database the query ran against.
+     *
+     * @return the database name
+     */
+    public String getDatabase() {
+        return database;
+    }
+
+    /**
+     * This method returns the query text.
+     *
+     * @return the query
+     */
+    public String getQuery() {
+        return query;
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.model;
+
+/**
+ * This class holds the settings applied to each query run from a query
+ * window. A copy is taken for every run so that changing a setting does not
+ * affect a query already in progress.
+ *
+ * @author Bryan Daniel
+ */
+public class QueryOptions {
+
+    /**
+     * The default number of seconds a cached result may be reused
+     */
+    public static final int DEFAULT_RESULT_CACHE_TTL = 300;
+
+    /**
+     * The default number of statements sent in one batch
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * The default number of changed rows after which a batch run commits
+     */
+    public static final int DEFAULT_COMMIT_INTERVAL = 10000;
+
+    /**
+     * The default number of statements run at the same time in parallel mode
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * The number of seconds a statement may run before it is cancelled, or
+     * zero for no limit
+     */
+    private int queryTimeout;
+
+    /**
+     * The fetch mode for the run, or null to use the mode of the connection
+     */
+    private FetchMode fetchMode;
+
+    /**
+     * The number of rows fetched per round trip in cursor mode, or zero to use
+     * the size set for the connection
+     */
+    private int fetchSize;
+
+    /**
+     * The heap memory in megabytes the results of one run may use before
+     * later rows are written to disk, or zero for a quarter of the maximum
+     * heap
+     */
+    private int resultMemoryLimit;
+
+    /**
+     * Indicates SELECT results may be answered from the result cache
+     */
+    private boolean resultCacheEnabled;
+
+    /**
+     * The number of seconds a cached result may be reused
+     */
+    private int resultCacheTtl = DEFAULT_RESULT_CACHE_TTL;
+
+    /**
+     * Indicates scripts are run statement by statement in batches
+     */
+    private boolean batchMode;
+
+    /**
+     * The number of statements sent in one batch
+     */
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * The number of changed rows after which a batch run commits, or zero to
+     * commit every statement
+     */
+    private int commitInterval = DEFAULT_COMMIT_INTERVAL;
+
+    /**
+     * Indicates scripts of independent read statements run in parallel
+     */
+    private boolean parallelMode;
+
+    /**
+     * The number of statements run at the same time in parallel mode
+     */
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    /**
+     * Default constructor
+     */
+    public QueryOptions() {
+    }
+
+    /**
+     * This constructor copies the settings of the given options.
+     *
+     * @param options the options to copy
+     */
+    public QueryOptions(QueryOptions options) {
+        this.queryTimeout = options.queryTimeout;
+        this.fetchMode = options.fetchMode;
+        this.fetchSize = options.fetchSize;
+        this.resultMemoryLimit = options.resultMemoryLimit;
+        this.resultCacheEnabled = options.resultCacheEnabled;
+        this.resultCacheTtl = options.resultCacheTtl;
+        this.batchMode = options.batchMode;
+        this.batchSize = options.batchSize;
+        this.commitInterval = options.commitInterval;
+        this.parallelMode = options.parallelMode;
+        this.parallelism = options.parallelism;
+    }
+
+    /**
+     * This method returns the statement timeout in seconds.
+     *
+     * @return the timeout, or zero for no limit
+     */
+    public int getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    /**
+     * This method sets the statement timeout in seconds.
+     *
+     * @param queryTimeout the timeout, or zero for no limit
+     */
+    public void setQueryTimeout(int queryTimeout) {
+        this.queryTimeout = Math.max(0, queryTimeout);
+    }
+
+    /**
+     * This method returns the fetch mode for the run.
+     *
+     * @return the fetch mode, or null to use the mode of the connection
+     */
+    public FetchMode getFetchMode() {
+        return fetchMode;
+    }
+
+    /**
+     * This method sets the fetch mode for the run.
+     *
+     * @param fetchMode the fetch mode, or null to use the mode of the
+     * connection
+     */
+    public void setFetchMode(FetchMode fetchMode) {
+        this.fetchMode = fetchMode;
+    }
+
+    /**
+     * This method returns the number of rows fetched per round trip in cursor
+     * mode.
+     *
+     * @return the fetch size, or zero to use the size set for the connection
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * This method sets the number of rows fetched per round trip in cursor
+     * mode.
+     *
+     * @param fetchSize the fetch size, or zero to use the size set for the
+     * connection
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = Math.max(0, fetchSize);
+    }
+
+    /**
+     * This method returns the heap memory in megabytes the results of one run
+     * may use before later rows are written to disk.
+     *
+     * @return the limit, or zero for a quarter of the maximum heap
+     */
+    public int getResultMemoryLimit() {
+        return resultMemoryLimit;
+    }
+
+    /**
+     * This method sets the heap memory in megabytes the results of one run may
+     * use before later rows are written to disk.
+     *
+     * @param resultMemoryLimit the limit, or zero for a quarter of the maximum
+     * heap
+     */
+    public void setResultMemoryLimit(int resultMemoryLimit) {
+        this.resultMemoryLimit = Math.max(0, resultMemoryLimit);
+    }
+
+    /**
+     * This method returns the heap memory in bytes the results of one run may
+     * use together before later rows are written to disk.
+     *
+     * @return the heap budget in bytes
+     */
+    public long getResultHeapBudget() {
+        if (resultMemoryLimit == 0) {
+            return Runtime.getRuntime().maxMemory() / 4;
+        }
+        return resultMemoryLimit * 1024L * 1024L;
+    }
+
+    /**
+     * This method indicates whether SELECT results may be answered from the
+     * result cache.
+     *
+     * @return true if the result cache is used
+     */
+    public boolean isResultCacheEnabled() {
+        return resultCacheEnabled;
+    }
+
+    /**
+     * This method sets whether SELECT results may be answered from the result
+     * cache.
+     *
+     * @param resultCacheEnabled true to use the result cache
+     */
+    public void setResultCacheEnabled(boolean resultCacheEnabled) {
+        this.resultCacheEnabled = resultCacheEnabled;
+    }
+
+    /**
+     * This method returns the number of seconds a cached result may be
+     * reused.
+     *
+     * @return the time to live in seconds
+     */
+    public int getResultCacheTtl() {
+        return resultCacheTtl;
+    }
+
+    /**
+     * This method sets the number of seconds a cached result may be reused.
+     *
+     * @param resultCacheTtl the time to live in seconds
+     */
+    public void setResultCacheTtl(int resultCacheTtl) {
+        this.resultCacheTtl = Math.max(0, resultCacheTtl);
+    }
+
+    /**
+     * This method indicates whether scripts are run statement by statement in
+     * batches.
+     *
+     * @return true for batch mode
+     */
+    public boolean isBatchMode() {
+        return batchMode;
+    }
+
+    /**
+     * This method sets whether scripts are run statement by statement in
+     * batches.
+     *
+     * @param batchMode true for batch mode
+     */
+    public void setBatchMode(boolean batchMode) {
+        this.batchMode = batchMode;
+    }
+
+    /**
+     * This method returns the number of statements sent in one batch.
+     *
+     * @return the batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * This method sets the number of statements sent in one batch.
+     *
+     * @param batchSize the batch size, at least one
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * This method returns the number of changed rows after which a batch run
+     * commits.
+     *
+     * @return the commit interval, or zero to commit every statement
+     */
+    public int getCommitInterval() {
+        return commitInterval;
+    }
+
+    /**
+     * This method sets the number of changed rows after which a batch run
+     * commits.
+     *
+     * @param commitInterval the commit interval, or zero to commit every
+     * statement
+     */
+    public void setCommitInterval(int commitInterval) {
+        this.commitInterval = Math.max(0, commitInterval);
+    }
+
+    /**
+     * This method indicates whether scripts of independent read statements
+     * run in parallel.
+     *
+     * @return true for parallel mode
+     */
+    public boolean isParallelMode() {
+        return parallelMode;
+    }
+
+    /**
+     * This method sets whether scripts of independent read statements run in
+     * parallel.
+     *
+     * @param parallelMode true for parallel mode
+     */
+    public void setParallelMode(boolean parallelMode) {
+        this.parallelMode = parallelMode;
+    }
+
+    /**
+     * This method returns the number of statements run at the same time in
+     * parallel mode.
+     *
+     * @return the parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * This method sets the number of statements run at the same time in
+     * parallel mode.
+     *
+     * @param parallelism the parallelism, at least one
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+}
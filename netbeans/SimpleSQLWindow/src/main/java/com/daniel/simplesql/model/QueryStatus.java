@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.model;
+
+/**
+ * This enumeration lists the outcomes recorded for a query in the query
+ * history.
+ *
+ * @author Bryan Daniel
+ */
+public enum QueryStatus {
+
+    /**
+     * The query ran to completion
+     */
+    SUCCEEDED("Succeeded"),
+
+    /**
+     * The query stopped with an error
+     */
+    FAILED("Failed"),
+
+    /**
+     * The query was cancelled by the user
+     */
+    CANCELLED("Cancelled"),
+
+    /**
+     * The query was typed but not run before the window was closed
+     */
+    NOT_RUN("Not run");
+
+    /**
+     * The name shown for the status in the query history
+     */
+    private final String displayName;
+
+    /**
+     * This constructor sets the display name of the status.
+     *
+     * @param displayName the display name
+     */
+    private QueryStatus(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * This method returns the name shown for the status.
+     *
+     * @return the display name
+     */
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
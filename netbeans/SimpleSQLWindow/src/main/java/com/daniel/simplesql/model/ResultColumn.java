@@ -0,0 +1,903 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.model;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class stores the values of one result column. Subclasses keep numeric
+ * values in primitive arrays and text in a dictionary-encoded form so that
+ * large results do not hold a boxed object for every cell. Null values are
+ * tracked in a bitmap.
+ *
+ * @author Bryan Daniel
+ */
+public abstract class ResultColumn {
+
+    /**
+     * The initial capacity of a column
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The estimated size in bytes of an object reference
+     */
+    protected static final int REFERENCE_BYTES = 8;
+
+    /**
+     * The estimated size in bytes of a string apart from its characters
+     */
+    protected static final int STRING_OVERHEAD_BYTES = 40;
+
+    /**
+     * The estimated size in bytes of a value of an unknown type
+     */
+    protected static final int OBJECT_ESTIMATE_BYTES = 32;
+
+    /**
+     * The rows holding null values
+     */
+    protected final BitSet nulls = new BitSet();
+
+    /**
+     * The number of values in the column
+     */
+    protected int size;
+
+    /**
+     * This method creates the column best suited to the Java class the
+     * driver reports for a result column.
+     *
+     * @param className the column class name from the result set metadata
+     * @return the new column
+     */
+    public static ResultColumn forClassName(String className) {
+        if (className == null) {
+            return new ObjectColumn();
+        }
+        switch (className) {
+            case "java.lang.Integer":
+                return new IntColumn(Integer.class);
+            case "java.lang.Short":
+                return new IntColumn(Short.class);
+            case "java.lang.Byte":
+                return new IntColumn(Byte.class);
+            case "java.lang.Long":
+                return new LongColumn();
+            case "java.lang.Double":
+                return new DoubleColumn(false);
+            case "java.lang.Float":
+                return new DoubleColumn(true);
+            case "java.lang.String":
+                return new StringColumn();
+            default:
+                return new ObjectColumn();
+        }
+    }
+
+    /**
+     * This method appends the value of the given column of the current row of
+     * the result set.
+     *
+     * @param resultSet the result set positioned on a row
+     * @param columnIndex the one-based column index
+     * @throws SQLException if the value cannot be read
+     */
+    public abstract void append(ResultSet resultSet, int columnIndex) throws SQLException;
+
+    /**
+     * This method appends the given value, which must be null or of the
+     * column's value class.
+     *
+     * @param value the value to append
+     */
+    public abstract void append(Object value);
+
+    /**
+     * This method appends all values of another column of the same kind.
+     *
+     * @param other the column to copy values from
+     */
+    public abstract void appendAll(ResultColumn other);
+
+    /**
+     * This method returns the value at the given row as an object.
+     *
+     * @param row the row index
+     * @return the value, or null
+     */
+    public abstract Object get(int row);
+
+    /**
+     * This method returns the class of the values in the column.
+     *
+     * @return the value class
+     */
+    public abstract Class<?> getValueClass();
+
+    /**
+     * This method releases the unused capacity of the column.
+     */
+    public abstract void trimToSize();
+
+    /**
+     * This method returns an estimate of the heap memory used by the column.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimateMemoryUsage() {
+        return nulls.size() / 8;
+    }
+
+    /**
+     * This method indicates whether the value at the given row is null.
+     *
+     * @param row the row index
+     * @return true if the value is null
+     */
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    /**
+     * This method returns the number of values in the column.
+     *
+     * @return the number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * This method copies the null flags of another column to the rows
+     * following the current last row.
+     *
+     * @param other the column being appended
+     */
+    protected void appendNulls(ResultColumn other) {
+        for (int row = other.nulls.nextSetBit(0); row >= 0 && row < other.size;
+                row = other.nulls.nextSetBit(row + 1)) {
+            nulls.set(size + row);
+        }
+    }
+
+    /**
+     * This method returns the capacity needed to hold the given number of
+     * additional values.
+     *
+     * @param capacity the current capacity
+     * @param additional the number of values to add
+     * @return the new capacity
+     */
+    protected int grow(int capacity, int additional) {
+        int required = size + additional;
+        if (required <= capacity) {
+            return capacity;
+        }
+        return Math.max(required, Math.max(INITIAL_CAPACITY, capacity + (capacity >> 1)));
+    }
+
+    /**
+     * This method returns the capacity needed to hold one more value.
+     *
+     * @param capacity the current capacity
+     * @return the new capacity
+     */
+    protected int grow(int capacity) {
+        return grow(capacity, 1);
+    }
+
+    /**
+     * This column stores integer values of up to 32 bits.
+     *
+     * @author Bryan Daniel
+     */
+    public static class IntColumn extends ResultColumn {
+
+        /**
+         * The class reported for the values
+         */
+        private final Class<?> valueClass;
+
+        /**
+         * The values of the column
+         */
+        private int[] values = new int[0];
+
+        /**
+         * This constructor sets the class reported for the values.
+         *
+         * @param valueClass Integer, Short or Byte
+         */
+        public IntColumn(Class<?> valueClass) {
+            this.valueClass = valueClass;
+        }
+
+        /**
+         * This method appends the value of the given column of the current
+         * row of the result set.
+         *
+         * @param resultSet the result set positioned on a row
+         * @param columnIndex the one-based column index
+         * @throws SQLException if the value cannot be read
+         */
+        @Override
+        public void append(ResultSet resultSet, int columnIndex) throws SQLException {
+            int value = resultSet.getInt(columnIndex);
+            appendInt(value, resultSet.wasNull());
+        }
+
+        /**
+         * This method appends the given value.
+         *
+         * @param value the value to append
+         */
+        @Override
+        public void append(Object value) {
+            appendInt(value == null ? 0 : ((Number) value).intValue(), value == null);
+        }
+
+        /**
+         * This method appends all values of another column of the same kind.
+         *
+         * @param other the column to copy values from
+         */
+        @Override
+        public void appendAll(ResultColumn other) {
+            IntColumn column = (IntColumn) other;
+            int capacity = grow(values.length, column.size);
+            if (capacity != values.length) {
+                values = Arrays.copyOf(values, capacity);
+            }
+            System.arraycopy(column.values, 0, values, size, column.size);
+            appendNulls(column);
+            size += column.size;
+        }
+
+        /**
+         * This method appends a primitive value.
+         *
+         * @param value the value
+         * @param isNull true if the value is null
+         */
+        private void appendInt(int value, boolean isNull) {
+            int capacity = grow(values.length);
+            if (capacity != values.length) {
+                values = Arrays.copyOf(values, capacity);
+            }
+            if (isNull) {
+                nulls.set(size);
+            }
+            values[size++] = value;
+        }
+
+        /**
+         * This method returns the value at the given row as an object.
+         *
+         * @param row the row index
+         * @return the value, or null
+         */
+        @Override
+        public Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            int value = values[row];
+            if (valueClass == Short.class) {
+                return (short) value;
+            } else if (valueClass == Byte.class) {
+                return (byte) value;
+            }
+            return value;
+        }
+
+        /**
+         * This method returns the primitive value at the given row.
+         *
+         * @param row the row index
+         * @return the value, or zero if null
+         */
+        public int getInt(int row) {
+            return values[row];
+        }
+
+        /**
+         * This method returns the class of the values in the column.
+         *
+         * @return the value class
+         */
+        @Override
+        public Class<?> getValueClass() {
+            return valueClass;
+        }
+
+        /**
+         * This method releases the unused capacity of the column.
+         */
+        @Override
+        public void trimToSize() {
+            values = Arrays.copyOf(values, size);
+        }
+
+        /**
+         * This method returns an estimate of the heap memory used by the
+         * column.
+         *
+         * @return the estimated size in bytes
+         */
+        @Override
+        public long estimateMemoryUsage() {
+            return super.estimateMemoryUsage() + values.length * 4L;
+        }
+    }
+
+    /**
+     * This column stores 64-bit integer values.
+     *
+     * @author Bryan Daniel
+     */
+    public static class LongColumn extends ResultColumn {
+
+        /**
+         * The values of the column
+         */
+        private long[] values = new long[0];
+
+        /**
+         * This method appends the value of the given column of the current
+         * row of the result set.
+         *
+         * @param resultSet the result set positioned on a row
+         * @param columnIndex the one-based column index
+         * @throws SQLException if the value cannot be read
+         */
+        @Override
+        public void append(ResultSet resultSet, int columnIndex) throws SQLException {
+            long value = resultSet.getLong(columnIndex);
+            appendLong(value, resultSet.wasNull());
+        }
+
+        /**
+         * This method appends the given value.
+         *
+         * @param value the value to append
+         */
+        @Override
+        public void append(Object value) {
+            appendLong(value == null ? 0L : ((Number) value).longValue(), value == null);
+        }
+
+        /**
+         * This method appends all values of another column of the same kind.
+         *
+         * @param other the column to copy values from
+         */
+        @Override
+        public void appendAll(ResultColumn other) {
+            LongColumn column = (LongColumn) other;
+            int capacity = grow(values.length, column.size);
+            if (capacity != values.length) {
+                values = Arrays.copyOf(values, capacity);
+            }
+            System.arraycopy(column.values, 0, values, size, column.size);
+            appendNulls(column);
+            size += column.size;
+        }
+
+        /**
+         * This method appends a primitive value.
+         *
+         * @param value the value
+         * @param isNull true if the value is null
+         */
+        private void appendLong(long value, boolean isNull) {
+            int capacity = grow(values.length);
+            if (capacity != values.length) {
+                values = Arrays.copyOf(values, capacity);
+            }
+            if (isNull) {
+                nulls.set(size);
+            }
+            values[size++] = value;
+        }
+
+        /**
+         * This method returns the value at the given row as an object.
+         *
+         * @param row the row index
+         * @return the value, or null
+         */
+        @Override
+        public Object get(int row) {
+            return nulls.get(row) ? null : values[row];
+        }
+
+        /**
+         * This method returns the primitive value at the given row.
+         *
+         * @param row the row index
+         * @return the value, or zero if null
+         */
+        public long getLong(int row) {
+            return values[row];
+        }
+
+        /**
+         * This method returns the class of the values in the column.
+         *
+         * @return the value class
+         */
+        @Override
+        public Class<?> getValueClass() {
+            return Long.class;
+        }
+
+        /**
+         * This method releases the unused capacity of the column.
+         */
+        @Override
+        public void trimToSize() {
+            values = Arrays.copyOf(values, size);
+        }
+
+        /**
+         * This method returns an estimate of the heap memory used by the
+         * column.
+         *
+         * @return the estimated size in bytes
+         */
+        @Override
+        public long estimateMemoryUsage() {
+            return super.estimateMemoryUsage() + values.length * 8L;
+        }
+    }
+
+    /**
+     * This column stores floating-point values. Float values are widened to
+     * double for storage, which is exact, and narrowed again when read.
+     *
+     * @author Bryan Daniel
+     */
+    public static class DoubleColumn extends ResultColumn {
+
+        /**
+         * Indicates the values are reported as Float
+         */
+        private final boolean floatValues;
+
+        /**
+         * The values of the column
+         */
+        private double[] values = new double[0];
+
+        /**
+         * This constructor sets whether values are reported as Float.
+         *
+         * @param floatValues true for Float values, false for Double values
+         */
+        public DoubleColumn(boolean floatValues) {
+            this.floatValues = floatValues;
+        }
+
+        /**
+         * This method appends the value of the given column of the current
+         * row of the result set.
+         *
+         * @param resultSet the result set positioned on a row
+         * @param columnIndex the one-based column index
+         * @throws SQLException if the value cannot be read
+         */
+        @Override
+        public void append(ResultSet resultSet, int columnIndex) throws SQLException {
+            double value = floatValues ? resultSet.getFloat(columnIndex)
+                    : resultSet.getDouble(columnIndex);
+            appendDouble(value, resultSet.wasNull());
+        }
+
+        /**
+         * This method appends the given value.
+         *
+         * @param value the value to append
+         */
+        @Override
+        public void append(Object value) {
+            appendDouble(value == null ? 0.0 : ((Number) value).doubleValue(), value == null);
+        }
+
+        /**
+         * This method appends all values of another column of the same kind.
+         *
+         * @param other the column to copy values from
+         */
+        @Override
+        public void appendAll(ResultColumn other) {
+            DoubleColumn column = (DoubleColumn) other;
+            int capacity = grow(values.length, column.size);
+            if (capacity != values.length) {
+                values = Arrays.copyOf(values, capacity);
+            }
+            System.arraycopy(column.values, 0, values, size, column.size);
+            appendNulls(column);
+            size += column.size;
+        }
+
+        /**
+         * This method appends a primitive value.
+         *
+         * @param value the value
+         * @param isNull true if the value is null
+         */
+        private void appendDouble(double value, boolean isNull) {
+            int capacity = grow(values.length);
+            if (capacity != values.length) {
+                values = Arrays.copyOf(values, capacity);
+            }
+            if (isNull) {
+                nulls.set(size);
+            }
+            values[size++] = value;
+        }
+
+        /**
+         * This method returns the value at the given row as an object.
+         *
+         * @param row the row index
+         * @return the value, or null
+         */
+        @Override
+        public Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            return floatValues ? (Object) (float) values[row] : (Object) values[row];
+        }
+
+        /**
+         * This method returns the primitive value at the given row.
+         *
+         * @param row the row index
+         * @return the value, or zero if null
+         */
+        public double getDouble(int row) {
+            return values[row];
+        }
+
+        /**
+         * This method returns the class of the values in the column.
+         *
+         * @return the value class
+         */
+        @Override
+        public Class<?> getValueClass() {
+            return floatValues ? Float.class : Double.class;
+        }
+
+        /**
+         * This method releases the unused capacity of the column.
+         */
+        @Override
+        public void trimToSize() {
+            values = Arrays.copyOf(values, size);
+        }
+
+        /**
+         * This method returns an estimate of the heap memory used by the
+         * column.
+         *
+         * @return the estimated size in bytes
+         */
+        @Override
+        public long estimateMemoryUsage() {
+            return super.estimateMemoryUsage() + values.length * 8L;
+        }
+    }
+
+    /**
+     * This column stores text. While the number of distinct values stays low,
+     * each value is stored once in a dictionary and rows hold a two-byte code;
+     * once the dictionary grows past its limit the column switches to holding
+     * the strings directly.
+     *
+     * @author Bryan Daniel
+     */
+    public static class StringColumn extends ResultColumn {
+
+        /**
+         * The largest number of distinct values kept in the dictionary
+         */
+        public static final int MAX_DICTIONARY_SIZE = 4096;
+
+        /**
+         * The distinct values, indexed by code
+         */
+        private List<String> dictionary = new ArrayList<>();
+
+        /**
+         * The code of each distinct value
+         */
+        private Map<String, Integer> codes = new HashMap<>();
+
+        /**
+         * The dictionary code of each row while the column is encoded
+         */
+        private char[] encoded = new char[0];
+
+        /**
+         * The value of each row once the column is no longer encoded
+         */
+        private String[] plain;
+
+        /**
+         * The estimated size in bytes of the strings held by the column
+         */
+        private long textBytes;
+
+        /**
+         * This method appends the value of the given column of the current
+         * row of the result set.
+         *
+         * @param resultSet the result set positioned on a row
+         * @param columnIndex the one-based column index
+         * @throws SQLException if the value cannot be read
+         */
+        @Override
+        public void append(ResultSet resultSet, int columnIndex) throws SQLException {
+            append(resultSet.getString(columnIndex));
+        }
+
+        /**
+         * This method appends the given value.
+         *
+         * @param value the value to append
+         */
+        @Override
+        public void append(Object value) {
+            String text = (String) value;
+            if (plain == null) {
+                Integer code = text == null ? Integer.valueOf(0) : codes.get(text);
+                if (code == null && dictionary.size() < MAX_DICTIONARY_SIZE) {
+                    code = dictionary.size();
+                    dictionary.add(text);
+                    codes.put(text, code);
+                    textBytes += estimateTextBytes(text) + OBJECT_ESTIMATE_BYTES;
+                }
+                if (code != null) {
+                    int capacity = grow(encoded.length);
+                    if (capacity != encoded.length) {
+                        encoded = Arrays.copyOf(encoded, capacity);
+                    }
+                    if (text == null) {
+                        nulls.set(size);
+                    }
+                    encoded[size++] = (char) code.intValue();
+                    return;
+                }
+                decode();
+            }
+            int capacity = grow(plain.length);
+            if (capacity != plain.length) {
+                plain = Arrays.copyOf(plain, capacity);
+            }
+            if (text == null) {
+                nulls.set(size);
+            }
+            textBytes += estimateTextBytes(text);
+            plain[size++] = text;
+        }
+
+        /**
+         * This method appends all values of another text column, encoding
+         * them with this column's dictionary.
+         *
+         * @param other the column to copy values from
+         */
+        @Override
+        public void appendAll(ResultColumn other) {
+            for (int row = 0; row < other.size; row++) {
+                append(other.get(row));
+            }
+        }
+
+        /**
+         * This method converts the column from dictionary codes to strings.
+         */
+        private void decode() {
+            plain = new String[Math.max(encoded.length, size + 1)];
+            for (int row = 0; row < size; row++) {
+                plain[row] = nulls.get(row) ? null : dictionary.get(encoded[row]);
+            }
+            encoded = null;
+            dictionary = null;
+            codes = null;
+        }
+
+        /**
+         * This method returns the value at the given row as an object.
+         *
+         * @param row the row index
+         * @return the value, or null
+         */
+        @Override
+        public Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            return plain == null ? dictionary.get(encoded[row]) : plain[row];
+        }
+
+        /**
+         * This method indicates whether the column is dictionary encoded.
+         *
+         * @return true if the column is dictionary encoded
+         */
+        public boolean isEncoded() {
+            return plain == null;
+        }
+
+        /**
+         * This method returns the class of the values in the column.
+         *
+         * @return the value class
+         */
+        @Override
+        public Class<?> getValueClass() {
+            return String.class;
+        }
+
+        /**
+         * This method releases the unused capacity of the column.
+         */
+        @Override
+        public void trimToSize() {
+            if (plain == null) {
+                encoded = Arrays.copyOf(encoded, size);
+            } else {
+                plain = Arrays.copyOf(plain, size);
+            }
+        }
+
+        /**
+         * This method returns an estimate of the heap memory used by the
+         * column.
+         *
+         * @return the estimated size in bytes
+         */
+        @Override
+        public long estimateMemoryUsage() {
+            long rowBytes = plain == null ? encoded.length * 2L
+                    : plain.length * (long) REFERENCE_BYTES;
+            return super.estimateMemoryUsage() + rowBytes + textBytes;
+        }
+
+        /**
+         * This method returns an estimate of the heap memory used by a string.
+         *
+         * @param text the string, or null
+         * @return the estimated size in bytes
+         */
+        private static long estimateTextBytes(String text) {
+            return text == null ? 0 : STRING_OVERHEAD_BYTES + 2L * text.length();
+        }
+    }
+
+    /**
+     * This column stores values of any other type as objects.
+     *
+     * @author Bryan Daniel
+     */
+    public static class ObjectColumn extends ResultColumn {
+
+        /**
+         * The values of the column
+         */
+        private Object[] values = new Object[0];
+
+        /**
+         * This method appends the value of the given column of the current
+         * row of the result set.
+         *
+         * @param resultSet the result set positioned on a row
+         * @param columnIndex the one-based column index
+         * @throws SQLException if the value cannot be read
+         */
+        @Override
+        public void append(ResultSet resultSet, int columnIndex) throws SQLException {
+            append(resultSet.getObject(columnIndex));
+        }
+
+        /**
+         * This method appends the given value.
+         *
+         * @param value the value to append
+         */
+        @Override
+        public void append(Object value) {
+            int capacity = grow(values.length);
+            if (capacity != values.length) {
+                values = Arrays.copyOf(values, capacity);
+            }
+            if (value == null) {
+                nulls.set(size);
+            }
+            values[size++] = value;
+        }
+
+        /**
+         * This method appends all values of another column of the same kind.
+         *
+         * @param other the column to copy values from
+         */
+        @Override
+        public void appendAll(ResultColumn other) {
+            ObjectColumn column = (ObjectColumn) other;
+            int capacity = grow(values.length, column.size);
+            if (capacity != values.length) {
+                values = Arrays.copyOf(values, capacity);
+            }
+            System.arraycopy(column.values, 0, values, size, column.size);
+            appendNulls(column);
+            size += column.size;
+        }
+
+        /**
+         * This method returns the value at the given row as an object.
+         *
+         * @param row the row index
+         * @return the value, or null
+         */
+        @Override
+        public Object get(int row) {
+            return values[row];
+        }
+
+        /**
+         * This method returns the class of the values in the column.
+         *
+         * @return the value class
+         */
+        @Override
+        public Class<?> getValueClass() {
+            return Object.class;
+        }
+
+        /**
+         * This method releases the unused capacity of the column.
+         */
+        @Override
+        public void trimToSize() {
+            values = Arrays.copyOf(values, size);
+        }
+
+        /**
+         * This method returns an estimate of the heap memory used by the
+         * column.
+         *
+         * @return the estimated size in bytes
+         */
+        @Override
+        public long estimateMemoryUsage() {
+            return super.estimateMemoryUsage() + values.length * (long) REFERENCE_BYTES
+                    + (long) (size - nulls.cardinality()) * OBJECT_ESTIMATE_BYTES;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.monitor;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class is the single entry point for the Java Flight Recorder events of
+ * the query pipeline, so that a recording shows each query alongside the
+ * garbage collections and event dispatch thread stalls around it. Whether the
+ * runtime has the flight recorder is checked once; without it, or while the
+ * event is not being recorded, the begin methods return null and the commit
+ * methods return at once, so the events cost next to nothing unless a
+ * recording is taken. The events themselves are only loaded when the flight
+ * recorder is present.
+ *
+ * @author Bryan Daniel
+ */
+public class FlightEvents {
+
+    /**
+     * Indicates the runtime has the flight recorder
+     */
+    private static final boolean AVAILABLE = detectFlightRecorder();
+
+    /**
+     * Private constructor - not called publicly
+     */
+    private FlightEvents() {
+    }
+
+    /**
+     * This method indicates whether the runtime has the flight recorder.
+     *
+     * @return true if events can be recorded
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * This method begins the event for a result, before the statement or
+     * call producing it is executed.
+     *
+     * @return the event, or null if it is not recorded
+     */
+    public static Object beginResult() {
+        return AVAILABLE ? FlightRecorderEvents.beginResult() : null;
+    }
+
+    /**
+     * This method commits the event for a result once its rows have been
+     * read.
+     *
+     * @param event the event, or null if it is not recorded
+     * @param statement the statement producing the result
+     * @param timings the timings of the result
+     */
+    public static void commitResult(Object event, String statement, QueryTimings timings) {
+        if (event != null) {
+            FlightRecorderEvents.commitResult(event, statement, timings);
+        }
+    }
+
+    /**
+     * This method begins the event for the background run of a query worker.
+     *
+     * @return the event, or null if it is not recorded
+     */
+    public static Object beginQueryRun() {
+        return AVAILABLE ? FlightRecorderEvents.beginQueryRun() : null;
+    }
+
+    /**
+     * This method commits the event for the background run of a query
+     * worker.
+     *
+     * @param event the event, or null if it is not recorded
+     * @param queryString the statements run, or null for a script file
+     * @param scriptFile the name of the script file run, or null
+     * @param results the number of result sets read
+     */
+    public static void commitQueryRun(Object event, String queryString, String scriptFile,
+            int results) {
+        if (event != null) {
+            FlightRecorderEvents.commitQueryRun(event, queryString, scriptFile, results);
+        }
+    }
+
+    /**
+     * This method begins the event for the first paint of a finished result.
+     *
+     * @return the event, or null if it is not recorded
+     */
+    public static Object beginResultDisplay() {
+        return AVAILABLE ? FlightRecorderEvents.beginResultDisplay() : null;
+    }
+
+    /**
+     * This method commits the event for the first paint of a finished result.
+     *
+     * @param event the event, or null if it is not recorded
+     * @param timings the timings of the result
+     */
+    public static void commitResultDisplay(Object event, QueryTimings timings) {
+        if (event != null) {
+            FlightRecorderEvents.commitResultDisplay(event, timings);
+        }
+    }
+
+    /**
+     * This method begins the event for a connection test.
+     *
+     * @return the event, or null if it is not recorded
+     */
+    public static Object beginConnectionTest() {
+        return AVAILABLE ? FlightRecorderEvents.beginConnectionTest() : null;
+    }
+
+    /**
+     * This method commits the event for a connection test.
+     *
+     * @param event the event, or null if it is not recorded
+     * @param host the database host
+     * @param database the database name
+     * @param success true if the test passed
+     */
+    public static void commitConnectionTest(Object event, String host, String database,
+            boolean success) {
+        if (event != null) {
+            FlightRecorderEvents.commitConnectionTest(event, host, database, success);
+        }
+    }
+
+    /**
+     * This method begins the event for estimating the column widths of a
+     * table.
+     *
+     * @return the event, or null if it is not recorded
+     */
+    public static Object beginColumnWidths() {
+        return AVAILABLE ? FlightRecorderEvents.beginColumnWidths() : null;
+    }
+
+    /**
+     * This method commits the event for estimating the column widths of a
+     * table.
+     *
+     * @param event the event, or null if it is not recorded
+     * @param columns the number of columns
+     * @param sampledRows the number of rows measured
+     */
+    public static void commitColumnWidths(Object event, int columns, int sampledRows) {
+        if (event != null) {
+            FlightRecorderEvents.commitColumnWidths(event, columns, sampledRows);
+        }
+    }
+
+    /**
+     * This method determines whether the runtime has the flight recorder.
+     *
+     * @return true if the flight recorder classes can be loaded
+     */
+    private static boolean detectFlightRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightEvents.class.getClassLoader());
+            return FlightRecorderEvents.isFlightRecorderAvailable();
+        } catch (ClassNotFoundException | LinkageError ex) {
+            Logger.getLogger(FlightEvents.class.getName()).log(Level.FINE,
+                    "Flight recorder events are not available.", ex);
+            return false;
+        }
+    }
+}
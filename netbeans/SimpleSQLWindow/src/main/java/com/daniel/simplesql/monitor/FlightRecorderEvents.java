@@ -0,0 +1,414 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.monitor;
+
+import com.daniel.simplesql.util.SqlUtil;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * This class defines the flight recorder events of the query pipeline and
+ * creates and commits them for FlightEvents. It refers to the flight recorder
+ * classes directly, so it is only loaded once FlightEvents has found them.
+ * The statement text is not recorded; a hash of its normalized form
+ * identifies repeated runs of the same query instead.
+ *
+ * @author Bryan Daniel
+ */
+class FlightRecorderEvents {
+
+    /**
+     * The category the events are shown under
+     */
+    private static final String CATEGORY = "Simple SQL Window";
+
+    /**
+     * Private constructor - not called publicly
+     */
+    private FlightRecorderEvents() {
+    }
+
+    /**
+     * This method indicates whether the flight recorder can be used in this
+     * runtime.
+     *
+     * @return true if the flight recorder is available
+     */
+    static boolean isFlightRecorderAvailable() {
+        return FlightRecorder.isAvailable();
+    }
+
+    /**
+     * This method begins a result event if it is enabled.
+     *
+     * @return the event, or null if it is not enabled
+     */
+    static Object beginResult() {
+        return begin(new QueryResultEvent());
+    }
+
+    /**
+     * This method commits a result event.
+     *
+     * @param event the event
+     * @param statement the statement producing the result
+     * @param timings the timings of the result
+     */
+    static void commitResult(Object event, String statement, QueryTimings timings) {
+        QueryResultEvent resultEvent = (QueryResultEvent) event;
+        resultEvent.end();
+        if (resultEvent.shouldCommit()) {
+            resultEvent.queryHash = queryHash(statement);
+            resultEvent.rows = timings.getRows();
+            resultEvent.bytes = timings.getBytes();
+            resultEvent.cached = timings.isCached();
+            resultEvent.connectTime = timings.getConnectNanos();
+            resultEvent.executeTime = timings.getExecuteNanos();
+            resultEvent.firstRowTime = timings.getFirstRowNanos();
+            resultEvent.fetchTime = timings.getFetchNanos();
+            resultEvent.commit();
+        }
+    }
+
+    /**
+     * This method begins a query run event if it is enabled.
+     *
+     * @return the event, or null if it is not enabled
+     */
+    static Object beginQueryRun() {
+        return begin(new QueryRunEvent());
+    }
+
+    /**
+     * This method commits a query run event.
+     *
+     * @param event the event
+     * @param queryString the statements run, or null for a script file
+     * @param scriptFile the name of the script file run, or null
+     * @param results the number of result sets read
+     */
+    static void commitQueryRun(Object event, String queryString, String scriptFile,
+            int results) {
+        QueryRunEvent runEvent = (QueryRunEvent) event;
+        runEvent.end();
+        if (runEvent.shouldCommit()) {
+            runEvent.queryHash = queryString == null ? 0 : queryHash(queryString);
+            runEvent.scriptFile = scriptFile;
+            runEvent.results = results;
+            runEvent.commit();
+        }
+    }
+
+    /**
+     * This method begins a result display event if it is enabled.
+     *
+     * @return the event, or null if it is not enabled
+     */
+    static Object beginResultDisplay() {
+        return begin(new ResultDisplayEvent());
+    }
+
+    /**
+     * This method commits a result display event.
+     *
+     * @param event the event
+     * @param timings the timings of the result
+     */
+    static void commitResultDisplay(Object event, QueryTimings timings) {
+        ResultDisplayEvent displayEvent = (ResultDisplayEvent) event;
+        displayEvent.end();
+        if (displayEvent.shouldCommit()) {
+            displayEvent.rows = timings.getRows();
+            displayEvent.buildTime = timings.getBuildNanos();
+            displayEvent.renderTime = timings.getRenderNanos();
+            displayEvent.commit();
+        }
+    }
+
+    /**
+     * This method begins a connection test event if it is enabled.
+     *
+     * @return the event, or null if it is not enabled
+     */
+    static Object beginConnectionTest() {
+        return begin(new ConnectionTestEvent());
+    }
+
+    /**
+     * This method commits a connection test event.
+     *
+     * @param event the event
+     * @param host the database host
+     * @param database the database name
+     * @param success true if the test passed
+     */
+    static void commitConnectionTest(Object event, String host, String database,
+            boolean success) {
+        ConnectionTestEvent testEvent = (ConnectionTestEvent) event;
+        testEvent.end();
+        if (testEvent.shouldCommit()) {
+            testEvent.host = host;
+            testEvent.database = database;
+            testEvent.success = success;
+            testEvent.commit();
+        }
+    }
+
+    /**
+     * This method begins a column width event if it is enabled.
+     *
+     * @return the event, or null if it is not enabled
+     */
+    static Object beginColumnWidths() {
+        return begin(new ColumnWidthEvent());
+    }
+
+    /**
+     * This method commits a column width event.
+     *
+     * @param event the event
+     * @param columns the number of columns
+     * @param sampledRows the number of rows measured
+     */
+    static void commitColumnWidths(Object event, int columns, int sampledRows) {
+        ColumnWidthEvent widthEvent = (ColumnWidthEvent) event;
+        widthEvent.end();
+        if (widthEvent.shouldCommit()) {
+            widthEvent.columns = columns;
+            widthEvent.sampledRows = sampledRows;
+            widthEvent.commit();
+        }
+    }
+
+    /**
+     * This method begins timing an event if it is enabled.
+     *
+     * @param event the new event
+     * @return the event, or null if it is not enabled
+     */
+    private static Event begin(Event event) {
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * This method returns the hash identifying a statement.
+     *
+     * @param statement the statement
+     * @return the hash of the normalized statement
+     */
+    private static int queryHash(String statement) {
+        return SqlUtil.normalize(statement).hashCode();
+    }
+
+    /**
+     * This event covers producing one result, from executing the statement
+     * to reading its last row.
+     *
+     * @author Bryan Daniel
+     */
+    @Name("com.daniel.simplesql.QueryResult")
+    @Label("Query Result")
+    @Category(CATEGORY)
+    @Description("A result read by the data access class")
+    @StackTrace(false)
+    static class QueryResultEvent extends Event {
+
+        /**
+         * The hash of the normalized statement
+         */
+        @Label("Query Hash")
+        int queryHash;
+
+        /**
+         * The number of rows read
+         */
+        @Label("Rows")
+        long rows;
+
+        /**
+         * The estimated size of the rows read
+         */
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        /**
+         * Indicates the result came from the result cache
+         */
+        @Label("Cached")
+        boolean cached;
+
+        /**
+         * The time taken to obtain a connection
+         */
+        @Label("Connect Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long connectTime;
+
+        /**
+         * The time taken by the server to produce the result
+         */
+        @Label("Execute Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long executeTime;
+
+        /**
+         * The time to the first row being read
+         */
+        @Label("First Row Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long firstRowTime;
+
+        /**
+         * The time taken to read every row
+         */
+        @Label("Fetch Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long fetchTime;
+    }
+
+    /**
+     * This event covers the background run of a query worker.
+     *
+     * @author Bryan Daniel
+     */
+    @Name("com.daniel.simplesql.QueryRun")
+    @Label("Query Run")
+    @Category(CATEGORY)
+    @Description("The statements or script file run by a query worker")
+    @StackTrace(false)
+    static class QueryRunEvent extends Event {
+
+        /**
+         * The hash of the normalized statements, or zero for a script file
+         */
+        @Label("Query Hash")
+        int queryHash;
+
+        /**
+         * The name of the script file run
+         */
+        @Label("Script File")
+        String scriptFile;
+
+        /**
+         * The number of result sets read
+         */
+        @Label("Results")
+        int results;
+    }
+
+    /**
+     * This event covers the first paint of a finished result on the event
+     * dispatch thread.
+     *
+     * @author Bryan Daniel
+     */
+    @Name("com.daniel.simplesql.ResultDisplay")
+    @Label("Result Display")
+    @Category(CATEGORY)
+    @Description("The first paint of a finished result table")
+    @StackTrace(false)
+    static class ResultDisplayEvent extends Event {
+
+        /**
+         * The number of rows in the result
+         */
+        @Label("Rows")
+        long rows;
+
+        /**
+         * The time the event dispatch thread spent adding the rows
+         */
+        @Label("Build Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long buildTime;
+
+        /**
+         * The time taken by the first paint
+         */
+        @Label("Render Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long renderTime;
+    }
+
+    /**
+     * This event covers a connection test.
+     *
+     * @author Bryan Daniel
+     */
+    @Name("com.daniel.simplesql.ConnectionTest")
+    @Label("Connection Test")
+    @Category(CATEGORY)
+    @Description("A connection test validating connection properties")
+    @StackTrace(false)
+    static class ConnectionTestEvent extends Event {
+
+        /**
+         * The database host
+         */
+        @Label("Host")
+        String host;
+
+        /**
+         * The database name
+         */
+        @Label("Database")
+        String database;
+
+        /**
+         * Indicates the test passed
+         */
+        @Label("Success")
+        boolean success;
+    }
+
+    /**
+     * This event covers estimating the column widths of a result table.
+     *
+     * @author Bryan Daniel
+     */
+    @Name("com.daniel.simplesql.ColumnWidths")
+    @Label("Column Widths")
+    @Category(CATEGORY)
+    @Description("Measuring a sample of rows to size the columns of a table")
+    @StackTrace(false)
+    static class ColumnWidthEvent extends Event {
+
+        /**
+         * The number of columns
+         */
+        @Label("Columns")
+        int columns;
+
+        /**
+         * The number of rows measured
+         */
+        @Label("Sampled Rows")
+        int sampledRows;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class counts non-negative values in logarithmic buckets so that
+ * percentiles can be estimated in constant memory. Each power of two is split
+ * into eight buckets, which keeps the estimates within about six percent of
+ * the true values. Values may be recorded from any thread without locking.
+ *
+ * @author Bryan Daniel
+ */
+public class Histogram {
+
+    /**
+     * The number of bits selecting the bucket within a power of two
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * The number of buckets within a power of two
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The number of buckets covering every non-negative long value
+     */
+    private static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+    /**
+     * The number of values recorded in each bucket
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * The sum of the values recorded
+     */
+    private final AtomicLong sum = new AtomicLong();
+
+    /**
+     * The largest value recorded
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * This method records a value. Negative values are recorded as zero.
+     *
+     * @param value the value
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts.incrementAndGet(bucketIndex(value));
+        sum.addAndGet(value);
+        long largest;
+        while (value > (largest = max.get()) && !max.compareAndSet(largest, value)) {
+            // another thread raised the maximum first, so compare again
+        }
+    }
+
+    /**
+     * This method returns the count, mean, percentiles and maximum of the
+     * values recorded. Values recorded while the snapshot is taken may or may
+     * not be included.
+     *
+     * @return the snapshot
+     */
+    public HistogramSnapshot getSnapshot() {
+        long[] bucketCounts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            bucketCounts[index] = counts.get(index);
+            total += bucketCounts[index];
+        }
+        long largest = max.get();
+        return new HistogramSnapshot(total, total == 0 ? 0.0 : (double) sum.get() / total,
+                percentile(bucketCounts, total, 0.50, largest),
+                percentile(bucketCounts, total, 0.95, largest),
+                percentile(bucketCounts, total, 0.99, largest), largest);
+    }
+
+    /**
+     * This method clears the values recorded. Values recorded while the
+     * histogram is reset may be partly kept.
+     */
+    public void reset() {
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            counts.set(index, 0);
+        }
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * This method estimates the value below which the given fraction of the
+     * recorded values fall, as the middle of the bucket holding it.
+     *
+     * @param bucketCounts the number of values in each bucket
+     * @param total the number of values
+     * @param fraction the fraction, between zero and one
+     * @param largest the largest value recorded
+     * @return the estimated percentile
+     */
+    private long percentile(long[] bucketCounts, long total, double fraction, long largest) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * fraction));
+        long seen = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            seen += bucketCounts[index];
+            if (seen >= rank) {
+                long lowest = bucketLowest(index);
+                long middle = lowest + (bucketLowest(index + 1) - lowest) / 2;
+                return Math.min(middle, largest);
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * This method returns the bucket holding a value. Values below the number
+     * of buckets per power of two have a bucket each.
+     *
+     * @param value the non-negative value
+     * @return the bucket index
+     */
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * This method returns the lowest value held by a bucket.
+     *
+     * @param index the bucket index, which may be one past the last bucket
+     * @return the lowest value
+     */
+    private static long bucketLowest(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        if (index >= BUCKET_COUNT) {
+            return Long.MAX_VALUE;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+}
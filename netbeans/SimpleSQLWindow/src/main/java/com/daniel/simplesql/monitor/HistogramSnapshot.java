@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.monitor;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * This class holds the count, mean, percentiles and maximum of the values in
+ * a histogram at one moment. It is exposed through JMX as composite data.
+ *
+ * @author Bryan Daniel
+ */
+public class HistogramSnapshot {
+
+    /**
+     * The number of values
+     */
+    private final long count;
+
+    /**
+     * The mean of the values
+     */
+    private final double mean;
+
+    /**
+     * The median of the values
+     */
+    private final long p50;
+
+    /**
+     * The 95th percentile of the values
+     */
+    private final long p95;
+
+    /**
+     * The 99th percentile of the values
+     */
+    private final long p99;
+
+    /**
+     * The largest value
+     */
+    private final long max;
+
+    /**
+     * This constructor sets the values of the snapshot.
+     *
+     * @param count the number of values
+     * @param mean the mean of the values
+     * @param p50 the median of the values
+     * @param p95 the 95th percentile of the values
+     * @param p99 the 99th percentile of the values
+     * @param max the largest value
+     */
+    @ConstructorProperties({"count", "mean", "p50", "p95", "p99", "max"})
+    public HistogramSnapshot(long count, double mean, long p50, long p95, long p99, long max) {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p95 = p95;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    /**
+     * This method returns the number of values.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * This method returns the mean of the values.
+     *
+     * @return the mean
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * This method returns the median of the values.
+     *
+     * @return the median
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    /**
+     * This method returns the 95th percentile of the values.
+     *
+     * @return the 95th percentile
+     */
+    public long getP95() {
+        return p95;
+    }
+
+    /**
+     * This method returns the 99th percentile of the values.
+     *
+     * @return the 99th percentile
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * This method returns the largest value.
+     *
+     * @return the maximum
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * This method returns a summary of the snapshot.
+     *
+     * @return the summary text
+     */
+    @Override
+    public String toString() {
+        return String.format("count=%,d mean=%,.1f p50=%,d p95=%,d p99=%,d max=%,d",
+                count, mean, p50, p95, p99, max);
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.monitor;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This class gathers counters and latency histograms for every query run in
+ * the application, so it can be told whether time goes to the server, the
+ * network or the client. It is registered with the platform MBean server
+ * under the name {@value #OBJECT_NAME}. The class implements the Singleton
+ * design pattern.
+ *
+ * @author Bryan Daniel
+ */
+public class QueryMetrics implements QueryMetricsMXBean {
+
+    /**
+     * The name the metrics are registered under
+     */
+    public static final String OBJECT_NAME = "com.daniel.simplesql:type=QueryMetrics";
+
+    /**
+     * The single QueryMetrics object
+     */
+    private static QueryMetrics metrics = null;
+
+    /**
+     * The number of query runs
+     */
+    private final AtomicLong queryCount = new AtomicLong();
+
+    /**
+     * The number of query runs that failed
+     */
+    private final AtomicLong failedQueryCount = new AtomicLong();
+
+    /**
+     * The number of result sets read
+     */
+    private final AtomicLong resultCount = new AtomicLong();
+
+    /**
+     * The number of rows read
+     */
+    private final AtomicLong rowsFetched = new AtomicLong();
+
+    /**
+     * The estimated size in bytes of the rows read
+     */
+    private final AtomicLong bytesFetched = new AtomicLong();
+
+    /**
+     * The latencies of whole query runs in microseconds
+     */
+    private final Histogram queryLatency = new Histogram();
+
+    /**
+     * The latencies of obtaining a connection in microseconds
+     */
+    private final Histogram connectLatency = new Histogram();
+
+    /**
+     * The latencies of the server producing a result in microseconds
+     */
+    private final Histogram executeLatency = new Histogram();
+
+    /**
+     * The latencies to the first row of a result in microseconds
+     */
+    private final Histogram firstRowLatency = new Histogram();
+
+    /**
+     * The latencies of reading the rows of a result in microseconds
+     */
+    private final Histogram fetchLatency = new Histogram();
+
+    /**
+     * The latencies of adding the rows of a result to its table in
+     * microseconds
+     */
+    private final Histogram buildLatency = new Histogram();
+
+    /**
+     * The latencies of first painting a finished table in microseconds
+     */
+    private final Histogram renderLatency = new Histogram();
+
+    /**
+     * The number of rows of each result
+     */
+    private final Histogram rowsPerResult = new Histogram();
+
+    /**
+     * The estimated size in bytes of each result
+     */
+    private final Histogram bytesPerResult = new Histogram();
+
+    /**
+     * Private constructor - not called publicly
+     */
+    private QueryMetrics() {
+    }
+
+    /**
+     * This method returns the single QueryMetrics. If the instance has not
+     * been created previously, it is created and registered with the platform
+     * MBean server here. The metrics are still gathered if the registration
+     * fails.
+     *
+     * @return the QueryMetrics object
+     */
+    public synchronized static QueryMetrics getInstance() {
+        if (metrics == null) {
+            metrics = new QueryMetrics();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metrics,
+                        new ObjectName(OBJECT_NAME));
+            } catch (JMException | SecurityException ex) {
+                Logger.getLogger(QueryMetrics.class.getName()).log(Level.INFO,
+                        "The query metrics could not be registered with JMX.", ex);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * This method records the outcome and duration of a query run.
+     *
+     * @param nanos the duration in nanoseconds
+     * @param failed true if the run failed
+     */
+    public void recordQuery(long nanos, boolean failed) {
+        queryCount.incrementAndGet();
+        if (failed) {
+            failedQueryCount.incrementAndGet();
+        }
+        queryLatency.record(micros(nanos));
+    }
+
+    /**
+     * This method records the time taken to obtain a connection.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void recordConnect(long nanos) {
+        connectLatency.record(micros(nanos));
+    }
+
+    /**
+     * This method records the phases of a result measured by the data access
+     * class, from execution to the last row being read.
+     *
+     * @param timings the timings of the result
+     */
+    public void recordResult(QueryTimings timings) {
+        resultCount.incrementAndGet();
+        rowsFetched.addAndGet(timings.getRows());
+        bytesFetched.addAndGet(timings.getBytes());
+        rowsPerResult.record(timings.getRows());
+        bytesPerResult.record(timings.getBytes());
+        if (timings.isCached()) {
+            return;
+        }
+        executeLatency.record(micros(timings.getExecuteNanos()));
+        if (timings.getFirstRowNanos() >= 0) {
+            firstRowLatency.record(micros(timings.getFirstRowNanos()));
+        }
+        fetchLatency.record(micros(timings.getFetchNanos()));
+    }
+
+    /**
+     * This method records the time the event dispatch thread spent adding
+     * the rows of a result to its table.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void recordBuild(long nanos) {
+        buildLatency.record(micros(nanos));
+    }
+
+    /**
+     * This method records the time taken to first paint a finished table.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void recordRender(long nanos) {
+        renderLatency.record(micros(nanos));
+    }
+
+    /**
+     * This method returns the number of query runs.
+     *
+     * @return the query count
+     */
+    @Override
+    public long getQueryCount() {
+        return queryCount.get();
+    }
+
+    /**
+     * This method returns the number of query runs that failed.
+     *
+     * @return the failed query count
+     */
+    @Override
+    public long getFailedQueryCount() {
+        return failedQueryCount.get();
+    }
+
+    /**
+     * This method returns the number of result sets read.
+     *
+     * @return the result count
+     */
+    @Override
+    public long getResultCount() {
+        return resultCount.get();
+    }
+
+    /**
+     * This method returns the number of rows read.
+     *
+     * @return the row count
+     */
+    @Override
+    public long getRowsFetched() {
+        return rowsFetched.get();
+    }
+
+    /**
+     * This method returns the estimated size in bytes of the rows read.
+     *
+     * @return the size in bytes
+     */
+    @Override
+    public long getBytesFetched() {
+        return bytesFetched.get();
+    }
+
+    /**
+     * This method returns the latencies of whole query runs.
+     *
+     * @return the histogram snapshot
+     */
+    @Override
+    public HistogramSnapshot getQueryLatencyMicros() {
+        return queryLatency.getSnapshot();
+    }
+
+    /**
+     * This method returns the latencies of obtaining a connection.
+     *
+     * @return the histogram snapshot
+     */
+    @Override
+    public HistogramSnapshot getConnectLatencyMicros() {
+        return connectLatency.getSnapshot();
+    }
+
+    /**
+     * This method returns the latencies of the server producing a result.
+     *
+     * @return the histogram snapshot
+     */
+    @Override
+    public HistogramSnapshot getExecuteLatencyMicros() {
+        return executeLatency.getSnapshot();
+    }
+
+    /**
+     * This method returns the latencies from a result being produced to its
+     * first row being read.
+     *
+     * @return the histogram snapshot
+     */
+    @Override
+    public HistogramSnapshot getFirstRowLatencyMicros() {
+        return firstRowLatency.getSnapshot();
+    }
+
+    /**
+     * This method returns the latencies of reading every row of a result.
+     *
+     * @return the histogram snapshot
+     */
+    @Override
+    public HistogramSnapshot getFetchLatencyMicros() {
+        return fetchLatency.getSnapshot();
+    }
+
+    /**
+     * This method returns the latencies of adding the rows of a result to
+     * its table on the event dispatch thread.
+     *
+     * @return the histogram snapshot
+     */
+    @Override
+    public HistogramSnapshot getBuildLatencyMicros() {
+        return buildLatency.getSnapshot();
+    }
+
+    /**
+     * This method returns the latencies of first painting a finished table.
+     *
+     * @return the histogram snapshot
+     */
+    @Override
+    public HistogramSnapshot getRenderLatencyMicros() {
+        return renderLatency.getSnapshot();
+    }
+
+    /**
+     * This method returns the number of rows of each result.
+     *
+     * @return the histogram snapshot
+     */
+    @Override
+    public HistogramSnapshot getRowsPerResult() {
+        return rowsPerResult.getSnapshot();
+    }
+
+    /**
+     * This method returns the estimated size in bytes of each result.
+     *
+     * @return the histogram snapshot
+     */
+    @Override
+    public HistogramSnapshot getBytesPerResult() {
+        return bytesPerResult.getSnapshot();
+    }
+
+    /**
+     * This method clears every counter and histogram.
+     */
+    @Override
+    public void reset() {
+        queryCount.set(0);
+        failedQueryCount.set(0);
+        resultCount.set(0);
+        rowsFetched.set(0);
+        bytesFetched.set(0);
+        for (Histogram histogram : new Histogram[]{queryLatency, connectLatency, executeLatency,
+            firstRowLatency, fetchLatency, buildLatency, renderLatency, rowsPerResult,
+            bytesPerResult}) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * This method converts nanoseconds to microseconds.
+     *
+     * @param nanos the duration in nanoseconds
+     * @return the duration in microseconds
+     */
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
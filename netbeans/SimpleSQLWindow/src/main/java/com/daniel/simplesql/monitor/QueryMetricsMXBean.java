@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.monitor;
+
+/**
+ * This interface exposes the query metrics of the application through JMX.
+ * Latencies are in microseconds, and each histogram reports its count, mean,
+ * median, 95th and 99th percentiles and maximum.
+ *
+ * @author Bryan Daniel
+ */
+public interface QueryMetricsMXBean {
+
+    /**
+     * This method returns the number of query runs.
+     *
+     * @return the query count
+     */
+    public long getQueryCount();
+
+    /**
+     * This method returns the number of query runs that failed.
+     *
+     * @return the failed query count
+     */
+    public long getFailedQueryCount();
+
+    /**
+     * This method returns the number of result sets read.
+     *
+     * @return the result count
+     */
+    public long getResultCount();
+
+    /**
+     * This method returns the number of rows read.
+     *
+     * @return the row count
+     */
+    public long getRowsFetched();
+
+    /**
+     * This method returns the estimated size in bytes of the rows read.
+     *
+     * @return the size in bytes
+     */
+    public long getBytesFetched();
+
+    /**
+     * This method returns the latencies of whole query runs.
+     *
+     * @return the histogram snapshot
+     */
+    public HistogramSnapshot getQueryLatencyMicros();
+
+    /**
+     * This method returns the latencies of obtaining a connection.
+     *
+     * @return the histogram snapshot
+     */
+    public HistogramSnapshot getConnectLatencyMicros();
+
+    /**
+     * This method returns the latencies of the server producing a result.
+     *
+     * @return the histogram snapshot
+     */
+    public HistogramSnapshot getExecuteLatencyMicros();
+
+    /**
+     * This method returns the latencies from a result being produced to its
+     * first row being read.
+     *
+     * @return the histogram snapshot
+     */
+    public HistogramSnapshot getFirstRowLatencyMicros();
+
+    /**
+     * This method returns the latencies of reading every row of a result.
+     *
+     * @return the histogram snapshot
+     */
+    public HistogramSnapshot getFetchLatencyMicros();
+
+    /**
+     * This method returns the latencies of adding the rows of a result to
+     * its table on the event dispatch thread.
+     *
+     * @return the histogram snapshot
+     */
+    public HistogramSnapshot getBuildLatencyMicros();
+
+    /**
+     * This method returns the latencies of first painting a finished table.
+     *
+     * @return the histogram snapshot
+     */
+    public HistogramSnapshot getRenderLatencyMicros();
+
+    /**
+     * This method returns the number of rows of each result.
+     *
+     * @return the histogram snapshot
+     */
+    public HistogramSnapshot getRowsPerResult();
+
+    /**
+     * This method returns the estimated size in bytes of each result.
+     *
+     * @return the histogram snapshot
+     */
+    public HistogramSnapshot getBytesPerResult();
+
+    /**
+     * This method clears every counter and histogram.
+     */
+    public void reset();
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class holds the time spent in each phase of producing one result,
+ * measured with System.nanoTime. Connecting and executing are measured by
+ * the data access class, reading the rows on the thread running the query,
+ * and building and rendering the table on the event dispatch thread. The
+ * connection time is counted against the first result of a run only. A
+ * phase that has not been measured is reported as -1. The phases are set
+ * from different threads, so every field may be read and updated from any
+ * thread.
+ *
+ * @author Bryan Daniel
+ */
+public class QueryTimings {
+
+    /**
+     * The time taken to obtain a connection
+     */
+    private final long connectNanos;
+
+    /**
+     * The time taken by the server to produce the result
+     */
+    private final long executeNanos;
+
+    /**
+     * The time from the result being produced to its first row being read
+     */
+    private volatile long firstRowNanos = -1;
+
+    /**
+     * The time taken to read every row of the result
+     */
+    private final AtomicLong fetchNanos = new AtomicLong();
+
+    /**
+     * The time the event dispatch thread spent adding the rows to the table
+     */
+    private volatile long buildNanos = -1;
+
+    /**
+     * The time taken to first paint the finished table
+     */
+    private volatile long renderNanos = -1;
+
+    /**
+     * The number of rows read
+     */
+    private final AtomicLong rows = new AtomicLong();
+
+    /**
+     * The estimated size in bytes of the rows read
+     */
+    private final AtomicLong bytes = new AtomicLong();
+
+    /**
+     * Indicates the result was served from the result cache
+     */
+    private volatile boolean cached;
+
+    /**
+     * This constructor sets the times taken to connect and execute.
+     *
+     * @param connectNanos the time taken to obtain a connection
+     * @param executeNanos the time taken by the server to produce the result
+     */
+    public QueryTimings(long connectNanos, long executeNanos) {
+        this.connectNanos = connectNanos;
+        this.executeNanos = executeNanos;
+    }
+
+    /**
+     * This method returns the time taken to obtain a connection.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    /**
+     * This method returns the time taken by the server to produce the result.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getExecuteNanos() {
+        return executeNanos;
+    }
+
+    /**
+     * This method returns the time from the result being produced to its
+     * first row being read.
+     *
+     * @return the time in nanoseconds, or -1 if no row was read
+     */
+    public long getFirstRowNanos() {
+        return firstRowNanos;
+    }
+
+    /**
+     * This method sets the time from the result being produced to its first
+     * row being read.
+     *
+     * @param firstRowNanos the time in nanoseconds
+     */
+    public void setFirstRowNanos(long firstRowNanos) {
+        this.firstRowNanos = firstRowNanos;
+    }
+
+    /**
+     * This method returns the time taken to read every row of the result.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getFetchNanos() {
+        return fetchNanos.get();
+    }
+
+    /**
+     * This method adds to the time taken to read the rows of the result.
+     *
+     * @param nanos the time in nanoseconds
+     */
+    public void addFetchNanos(long nanos) {
+        fetchNanos.addAndGet(nanos);
+    }
+
+    /**
+     * This method returns the time the event dispatch thread spent adding the
+     * rows to the table.
+     *
+     * @return the time in nanoseconds, or -1 if not measured
+     */
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * This method sets the time the event dispatch thread spent adding the
+     * rows to the table.
+     *
+     * @param buildNanos the time in nanoseconds
+     */
+    public void setBuildNanos(long buildNanos) {
+        this.buildNanos = buildNanos;
+    }
+
+    /**
+     * This method returns the time taken to first paint the finished table.
+     *
+     * @return the time in nanoseconds, or -1 if not measured
+     */
+    public long getRenderNanos() {
+        return renderNanos;
+    }
+
+    /**
+     * This method sets the time taken to first paint the finished table.
+     *
+     * @param renderNanos the time in nanoseconds
+     */
+    public void setRenderNanos(long renderNanos) {
+        this.renderNanos = renderNanos;
+    }
+
+    /**
+     * This method returns the number of rows read.
+     *
+     * @return the row count
+     */
+    public long getRows() {
+        return rows.get();
+    }
+
+    /**
+     * This method returns the estimated size in bytes of the rows read.
+     *
+     * @return the size in bytes
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * This method adds a block of rows to the rows read.
+     *
+     * @param blockRows the number of rows in the block
+     * @param blockBytes the estimated size in bytes of the block
+     */
+    public void addRows(long blockRows, long blockBytes) {
+        rows.addAndGet(blockRows);
+        bytes.addAndGet(blockBytes);
+    }
+
+    /**
+     * This method indicates whether the result was served from the result
+     * cache.
+     *
+     * @return true if the result was cached
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * This method sets whether the result was served from the result cache.
+     *
+     * @param cached true if the result was cached
+     */
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
+    /**
+     * This method returns a summary of the phases, shown with the result.
+     *
+     * @return the summary text
+     */
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder();
+        if (cached) {
+            summary.append("cached");
+        } else {
+            summary.append("connect ").append(millis(connectNanos))
+                    .append(", execute ").append(millis(executeNanos))
+                    .append(", first row ").append(millis(firstRowNanos))
+                    .append(", fetch ").append(millis(fetchNanos.get()));
+        }
+        summary.append(", build ").append(millis(buildNanos))
+                .append(", render ").append(millis(renderNanos));
+        return summary.append(String.format("; %,d rows, %,.1f KB", rows.get(),
+                bytes.get() / 1024.0))
+                .toString();
+    }
+
+    /**
+     * This method formats a time in milliseconds.
+     *
+     * @param nanos the time in nanoseconds, or -1 if not measured
+     * @return the formatted time
+     */
+    private static String millis(long nanos) {
+        return nanos < 0 ? "-" : String.format("%,.1f ms", nanos / 1e6);
+    }
+}
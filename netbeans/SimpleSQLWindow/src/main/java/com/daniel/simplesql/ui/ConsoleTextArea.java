@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.ui;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.JTextArea;
+import javax.swing.text.BadLocationException;
+
+/**
+ * This text area keeps only the most recent lines appended to it. The
+ * lengths of the lines in the document are held in a fixed-capacity ring
+ * buffer; once it fills, the oldest quarter of the lines is removed from the
+ * start of the document in a single edit, its length summed from the buffer
+ * rather than searched for in the text. Memory stays bounded and the cost of
+ * an append stays constant however long the session runs. The append and
+ * setText methods must be called on the event dispatch thread.
+ *
+ * @author Bryan Daniel
+ */
+public class ConsoleTextArea extends JTextArea {
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The default number of lines kept
+     */
+    public static final int DEFAULT_MAX_LINES = 5000;
+
+    /**
+     * The number of lines kept after a trim
+     */
+    private final int maxLines;
+
+    /**
+     * The lengths of the complete lines in the document, including their line
+     * ends, oldest first from the head
+     */
+    private final int[] lineLengths;
+
+    /**
+     * The index of the oldest line length in the buffer
+     */
+    private int head;
+
+    /**
+     * The number of line lengths in the buffer
+     */
+    private int lineCount;
+
+    /**
+     * The length of the unfinished last line
+     */
+    private int partialLength;
+
+    /**
+     * This constructor creates a console keeping the default number of lines.
+     *
+     * @param rows the number of rows
+     * @param columns the number of columns
+     */
+    public ConsoleTextArea(int rows, int columns) {
+        this(rows, columns, DEFAULT_MAX_LINES);
+    }
+
+    /**
+     * This constructor creates a console keeping the given number of lines.
+     * The document may hold up to a quarter more lines between trims.
+     *
+     * @param rows the number of rows
+     * @param columns the number of columns
+     * @param maxLines the number of lines kept, at least one
+     */
+    public ConsoleTextArea(int rows, int columns, int maxLines) {
+        super(rows, columns);
+        this.maxLines = Math.max(1, maxLines);
+        lineLengths = new int[this.maxLines + Math.max(1, this.maxLines / 4)];
+    }
+
+    /**
+     * This method appends the text, removing the oldest lines in bulk
+     * whenever the buffer of line lengths fills.
+     *
+     * @param text the text to append
+     */
+    @Override
+    public void append(String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        super.append(text);
+        int start = 0;
+        int lineEnd;
+        while ((lineEnd = text.indexOf('\n', start)) != -1) {
+            if (lineCount == lineLengths.length) {
+                trimLines();
+            }
+            lineLengths[(head + lineCount++) % lineLengths.length]
+                    = partialLength + lineEnd + 1 - start;
+            partialLength = 0;
+            start = lineEnd + 1;
+        }
+        partialLength += text.length() - start;
+    }
+
+    /**
+     * This method replaces the text of the console, counting the kept lines
+     * from the new text.
+     *
+     * @param text the new text
+     */
+    @Override
+    public void setText(String text) {
+        if (lineLengths == null) {
+            // called by the superclass constructor before the buffer exists
+            super.setText(text);
+            return;
+        }
+        head = 0;
+        lineCount = 0;
+        partialLength = 0;
+        super.setText(null);
+        append(text);
+    }
+
+    /**
+     * This method returns the number of lines kept after a trim.
+     *
+     * @return the line cap
+     */
+    public int getMaxLines() {
+        return maxLines;
+    }
+
+    /**
+     * This method removes the oldest lines from the document and the buffer,
+     * leaving the number of lines kept.
+     */
+    private void trimLines() {
+        int removed = lineCount - maxLines;
+        int length = 0;
+        for (int index = 0; index < removed; index++) {
+            length += lineLengths[(head + index) % lineLengths.length];
+        }
+        try {
+            getDocument().remove(0, length);
+        } catch (BadLocationException ex) {
+            Logger.getLogger(ConsoleTextArea.class.getName()).log(Level.INFO,
+                    "Exception occurred trimming the console.", ex);
+        }
+        head = (head + removed) % lineLengths.length;
+        lineCount -= removed;
+    }
+}
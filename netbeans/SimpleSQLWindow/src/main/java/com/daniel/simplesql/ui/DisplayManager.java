@@ -18,10 +18,16 @@ package com.daniel.simplesql.ui;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The Display class represents a text-based display which provides methods for
- * displaying result sets from executed queries.
+ * displaying result sets from executed queries. Callers add their text to a
+ * lock-free queue and return; whichever caller finds no other thread writing
+ * drains the queue to the stream, so lines keep their order without callers
+ * waiting on one another.
  *
  * @author Bryan Daniel
  */
@@ -32,6 +38,16 @@ public class DisplayManager {
      */
     private final PrintStream displayStream;
 
+    /**
+     * The text waiting to be written to the stream
+     */
+    private final Queue<String> pendingText = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Indicates a thread is writing the waiting text to the stream
+     */
+    private final AtomicBoolean draining = new AtomicBoolean();
+
     /**
      * Constructs a new DisplayManager and associates it with an output stream.
      *
@@ -46,18 +62,42 @@ public class DisplayManager {
      *
      * @param resultLine the result to display
      */
-    public synchronized void displayResultLine(String resultLine) {
-        displayStream.println("\n" + resultLine);
+    public void displayResultLine(String resultLine) {
+        pendingText.offer("\n" + resultLine + System.lineSeparator());
+        drain();
     }
 
     /**
-     * Displays a result line to the output stream.
+     * Displays a result line to the output stream. The rows are queued as one
+     * block so that lines from other threads do not fall between them.
      *
      * @param resultList the result set to display
      */
-    public synchronized void displayResultSet(List<String> resultList) {
-        for(String row: resultList){
-            displayStream.println("\n" + row);
-        }        
+    public void displayResultSet(List<String> resultList) {
+        StringBuilder text = new StringBuilder();
+        for (String row : resultList) {
+            text.append('\n').append(row).append(System.lineSeparator());
+        }
+        pendingText.offer(text.toString());
+        drain();
+    }
+
+    /**
+     * This method writes the waiting text to the stream unless another thread
+     * is already doing so. The queue is checked again after the flag is
+     * released so that text added just before then is not left waiting.
+     */
+    private void drain() {
+        while (!pendingText.isEmpty() && draining.compareAndSet(false, true)) {
+            try {
+                String text;
+                while ((text = pendingText.poll()) != null) {
+                    displayStream.print(text);
+                }
+                displayStream.flush();
+            } finally {
+                draining.set(false);
+            }
+        }
     }
 }
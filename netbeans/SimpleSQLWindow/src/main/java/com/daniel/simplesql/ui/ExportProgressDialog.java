@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.ui;
+
+import java.awt.BorderLayout;
+import java.awt.Window;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.WindowConstants;
+
+/**
+ * This dialog shows the progress of an export and lets the user cancel it.
+ * Once the export has finished, the cancel button becomes a close button.
+ *
+ * @author Bryan Daniel
+ */
+public class ExportProgressDialog extends JDialog {
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = 3120994763384571170L;
+
+    /**
+     * The width of the dialog
+     */
+    public static final int DIALOG_WIDTH = 480;
+
+    /**
+     * The height of the dialog
+     */
+    public static final int DIALOG_HEIGHT = 130;
+
+    /**
+     * The label showing the progress of the export
+     */
+    private final JLabel statusLabel = new JLabel("Starting export...");
+
+    /**
+     * The button cancelling the export or closing the dialog
+     */
+    private final JButton button = new JButton("Cancel");
+
+    /**
+     * Indicates the export has finished
+     */
+    private boolean finished;
+
+    /**
+     * This constructor lays out the dialog.
+     *
+     * @param owner the window the dialog belongs to
+     * @param fileName the name of the file being written
+     */
+    public ExportProgressDialog(Window owner, String fileName) {
+        super(owner, "Exporting to " + fileName);
+        setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(15, 15, 10, 15));
+        panel.add(statusLabel, BorderLayout.CENTER);
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(button);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+        setContentPane(panel);
+        setSize(DIALOG_WIDTH, DIALOG_HEIGHT);
+        setLocationRelativeTo(owner);
+    }
+
+    /**
+     * This method sets the action run when the user cancels the export.
+     *
+     * @param cancelListener the listener cancelling the export
+     */
+    public void setCancelListener(final ActionListener cancelListener) {
+        button.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (finished) {
+                    dispose();
+                } else {
+                    button.setEnabled(false);
+                    statusLabel.setText("Cancelling...");
+                    cancelListener.actionPerformed(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * This method shows the progress of the export.
+     *
+     * @param status the progress text
+     */
+    public void showProgress(String status) {
+        if (!finished && button.isEnabled()) {
+            statusLabel.setText(status);
+        }
+    }
+
+    /**
+     * This method shows the outcome of the export and turns the cancel
+     * button into a close button.
+     *
+     * @param message the outcome of the export
+     */
+    public void showFinished(String message) {
+        finished = true;
+        statusLabel.setText(message);
+        button.setText("Close");
+        button.setEnabled(true);
+        setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+    }
+}
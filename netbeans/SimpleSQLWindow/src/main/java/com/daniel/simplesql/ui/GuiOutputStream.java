@@ -15,59 +15,257 @@
  */
 package com.daniel.simplesql.ui;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 
 import javax.swing.JTextArea;
-import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 /**
- * This class extends OutputStream to direct messages to the GUI.
+ * This class extends OutputStream to direct messages to the GUI. Bytes are
+ * decoded in blocks, and complete lines are collected and appended to the
+ * text area at most once per frame, however many lines are written in
+ * between. If the text area falls behind, the oldest waiting text is dropped
+ * so the backlog stays bounded.
  *
  * @author Bryan Daniel
  */
 public class GuiOutputStream extends OutputStream {
 
+    /**
+     * The time in milliseconds between appends to the text area
+     */
+    public static final int FRAME_MILLIS = 16;
+
+    /**
+     * The largest number of characters waiting to be appended
+     */
+    public static final int MAX_BACKLOG_CHARS = 1024 * 1024;
+
+    /**
+     * The size of the decoding buffers
+     */
+    private static final int BUFFER_SIZE = 8192;
+
     /**
      * The StringBuilder used for storing line characters
      */
     private final StringBuilder stringBuilder = new StringBuilder();
 
+    /**
+     * The complete lines waiting to be appended to the text area
+     */
+    private final StringBuilder pendingText = new StringBuilder();
+
     /**
      * The text area where characters are displayed
      */
     private final JTextArea displayTextArea;
 
     /**
-     * This constructor sets the value for the text area.
+     * The decoder turning written bytes into characters
+     */
+    private final CharsetDecoder decoder;
+
+    /**
+     * The written bytes not yet decoded
+     */
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * The decoded characters not yet collected
+     */
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * The buffer passing a single byte to the block write
+     */
+    private final byte[] singleByte = new byte[1];
+
+    /**
+     * The timer appending the waiting lines on the event dispatch thread
+     */
+    private final Timer appendTimer;
+
+    /**
+     * Indicates an append is scheduled
+     */
+    private boolean appendScheduled;
+
+    /**
+     * The number of characters dropped since the last append
+     */
+    private long droppedChars;
+
+    /**
+     * This constructor sets the value for the text area, decoding the written
+     * bytes with the platform charset, as PrintStream encodes them.
      *
      * @param textArea the GUI text area
      */
     public GuiOutputStream(JTextArea textArea) {
+        this(textArea, Charset.defaultCharset());
+    }
+
+    /**
+     * This constructor sets the values for the text area and the charset of
+     * the written bytes.
+     *
+     * @param textArea the GUI text area
+     * @param charset the charset of the written bytes
+     */
+    public GuiOutputStream(JTextArea textArea, Charset charset) {
         displayTextArea = textArea;
+        decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        appendTimer = new Timer(FRAME_MILLIS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                appendPendingText();
+            }
+        });
+        appendTimer.setRepeats(false);
+        // a coalescing timer drops a restart that fires while the last append is still running
+        appendTimer.setCoalesce(false);
     }
 
     /**
-     * The write method appends the string to the text area.
+     * The write method passes the byte to the block write.
      *
      * @param b the output stream byte as an integer
      * @throws java.io.IOException
      */
     @Override
-    public void write(int b) throws IOException {
-
-        if (b == '\n') {
-            final String text = stringBuilder.toString() + "\n";
-            SwingUtilities.invokeLater(new Runnable() {
-                @Override
-                public void run() {
-                    displayTextArea.append(text);
-                }
-            });
+    public synchronized void write(int b) throws IOException {
+        singleByte[0] = (byte) b;
+        write(singleByte, 0, 1);
+    }
+
+    /**
+     * The write method decodes the bytes and schedules the complete lines
+     * among them to be appended to the text area. A character split across
+     * writes is decoded once all of its bytes have arrived.
+     *
+     * @param b the bytes
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     * @throws java.io.IOException
+     */
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        int end = off + len;
+        while (off < end) {
+            int count = Math.min(bytes.remaining(), end - off);
+            bytes.put(b, off, count);
+            off += count;
+            bytes.flip();
+            CoderResult result;
+            do {
+                result = decoder.decode(bytes, chars, false);
+                chars.flip();
+                collectLines();
+                chars.clear();
+            } while (result.isOverflow());
+            bytes.compact();
+        }
+    }
+
+    /**
+     * The flush method schedules the text of an unfinished line to be
+     * appended along with the complete lines.
+     *
+     * @throws java.io.IOException
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (stringBuilder.length() > 0) {
+            addPendingText(stringBuilder);
             stringBuilder.setLength(0);
+        }
+    }
+
+    /**
+     * The close method flushes the text of an unfinished line.
+     *
+     * @throws java.io.IOException
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    /**
+     * This method moves the decoded characters into the line being built and
+     * each completed line into the waiting text.
+     */
+    private void collectLines() {
+        int start = chars.position();
+        int limit = chars.limit();
+        int lineEnd = -1;
+        for (int index = limit - 1; index >= start; index--) {
+            if (chars.get(index) == '\n') {
+                lineEnd = index + 1;
+                break;
+            }
+        }
+        if (lineEnd == -1) {
+            stringBuilder.append(chars);
             return;
         }
-        stringBuilder.append((char) b);
+        stringBuilder.append(chars.array(), chars.arrayOffset() + start, lineEnd - start);
+        addPendingText(stringBuilder);
+        stringBuilder.setLength(0);
+        stringBuilder.append(chars.array(), chars.arrayOffset() + lineEnd, limit - lineEnd);
     }
 
+    /**
+     * This method adds text to the waiting text, dropping the oldest lines
+     * if the backlog grows past its limit, and schedules an append if none
+     * is scheduled.
+     *
+     * @param text the text to add
+     */
+    private void addPendingText(CharSequence text) {
+        pendingText.append(text);
+        if (pendingText.length() > MAX_BACKLOG_CHARS) {
+            // trimming to three quarters of the limit keeps this from repeating on every write
+            int cut = pendingText.length() - MAX_BACKLOG_CHARS * 3 / 4;
+            int lineStart = pendingText.indexOf("\n", cut);
+            cut = lineStart == -1 ? cut : lineStart + 1;
+            pendingText.delete(0, cut);
+            droppedChars += cut;
+        }
+        if (!appendScheduled) {
+            appendScheduled = true;
+            appendTimer.start();
+        }
+    }
+
+    /**
+     * This method appends the waiting text to the text area in one call.
+     * This is executed on the event dispatch thread.
+     */
+    private void appendPendingText() {
+        String text;
+        synchronized (this) {
+            if (droppedChars > 0) {
+                pendingText.insert(0, String.format("[%,d characters of output dropped]\n",
+                        droppedChars));
+                droppedChars = 0;
+            }
+            text = pendingText.toString();
+            pendingText.setLength(0);
+            appendScheduled = false;
+        }
+        displayTextArea.append(text);
+    }
 }
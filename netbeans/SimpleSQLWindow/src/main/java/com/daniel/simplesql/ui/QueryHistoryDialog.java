@@ -0,0 +1,353 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.ui;
+
+import com.daniel.simplesql.data.QueryHistory;
+import com.daniel.simplesql.logic.BackgroundExecutor;
+import com.daniel.simplesql.model.HistoryEntry;
+import java.awt.BorderLayout;
+import java.awt.Window;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextArea;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingWorker;
+import javax.swing.WindowConstants;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * This dialog searches the query history as the search text is typed and
+ * copies a chosen query into the query input area. The history is read in
+ * the background the first time the dialog is opened.
+ *
+ * @author Bryan Daniel
+ */
+public class QueryHistoryDialog extends JDialog {
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The width of the dialog
+     */
+    public static final int DIALOG_WIDTH = 800;
+
+    /**
+     * The height of the dialog
+     */
+    public static final int DIALOG_HEIGHT = 500;
+
+    /**
+     * The largest number of queries listed
+     */
+    public static final int SEARCH_LIMIT = 500;
+
+    /**
+     * The longest query text shown in the list
+     */
+    private static final int QUERY_PREVIEW_LENGTH = 200;
+
+    /**
+     * The input area the chosen query is copied to
+     */
+    private final JTextArea queryTextArea;
+
+    /**
+     * The search text field
+     */
+    private final JTextField searchField = new JTextField();
+
+    /**
+     * The model of the list of matching queries
+     */
+    private final HistoryTableModel tableModel = new HistoryTableModel();
+
+    /**
+     * The list of matching queries
+     */
+    private final JTable table = new JTable(tableModel);
+
+    /**
+     * The label showing the number of matching queries
+     */
+    private final JLabel statusLabel = new JLabel("Loading history...");
+
+    /**
+     * Indicates the history has been read
+     */
+    private boolean loaded;
+
+    /**
+     * This constructor lays out the dialog and starts reading the history.
+     *
+     * @param owner the window the dialog belongs to
+     * @param queryTextArea the input area the chosen query is copied to
+     */
+    public QueryHistoryDialog(Window owner, JTextArea queryTextArea) {
+        super(owner, "Query History");
+        this.queryTextArea = queryTextArea;
+        setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+
+        JPanel searchPanel = new JPanel(new BorderLayout(10, 10));
+        searchPanel.add(new JLabel("Search:"), BorderLayout.WEST);
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                search();
+            }
+        });
+
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.setAutoResizeMode(JTable.AUTO_RESIZE_LAST_COLUMN);
+        table.getColumnModel().getColumn(HistoryTableModel.QUERY_COLUMN).setPreferredWidth(400);
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    useSelectedQuery();
+                }
+            }
+        });
+
+        JButton useButton = new JButton("Use Query");
+        useButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                useSelectedQuery();
+            }
+        });
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                dispose();
+            }
+        });
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(useButton);
+        buttonPanel.add(closeButton);
+        JPanel southPanel = new JPanel(new BorderLayout(10, 10));
+        southPanel.add(statusLabel, BorderLayout.CENTER);
+        southPanel.add(buttonPanel, BorderLayout.EAST);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(searchPanel, BorderLayout.NORTH);
+        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+        panel.add(southPanel, BorderLayout.SOUTH);
+        setContentPane(panel);
+        setSize(DIALOG_WIDTH, DIALOG_HEIGHT);
+        setLocationRelativeTo(owner);
+        loadHistory();
+    }
+
+    /**
+     * This method reads the history off the event dispatch thread and then
+     * lists the queries matching the search text typed so far.
+     */
+    private void loadHistory() {
+        BackgroundExecutor.getInstance().execute(new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() {
+                QueryHistory.getInstance().size();
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    Logger.getLogger(QueryHistoryDialog.class.getName()).log(Level.INFO,
+                            "Exception occurred reading the query history.", ex);
+                }
+                loaded = true;
+                search();
+            }
+        });
+    }
+
+    /**
+     * This method lists the queries matching the search text, once the
+     * history has been read.
+     */
+    private void search() {
+        if (!loaded) {
+            return;
+        }
+        QueryHistory history = QueryHistory.getInstance();
+        List<HistoryEntry> matches = history.search(searchField.getText(), SEARCH_LIMIT);
+        tableModel.setEntries(matches);
+        statusLabel.setText(String.format("%,d%s of %,d queries", matches.size(),
+                matches.size() == SEARCH_LIMIT ? "+" : "", history.size()));
+    }
+
+    /**
+     * This method copies the selected query into the query input area.
+     */
+    private void useSelectedQuery() {
+        int row = table.getSelectedRow();
+        if (row != -1) {
+            queryTextArea.setText(tableModel.getEntry(table.convertRowIndexToModel(row)).getQuery());
+            queryTextArea.requestFocusInWindow();
+        }
+    }
+
+    /**
+     * This table model lists history entries.
+     *
+     * @author Bryan Daniel
+     */
+    private static class HistoryTableModel extends AbstractTableModel {
+
+        /**
+         * Serial version UID
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The index of the query column
+         */
+        private static final int QUERY_COLUMN = 5;
+
+        /**
+         * The column names
+         */
+        private static final String[] COLUMN_NAMES
+                = {"Time", "Database", "Status", "Rows", "Elapsed (ms)", "Query"};
+
+        /**
+         * The format of the time column
+         */
+        private final SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        /**
+         * The entries listed
+         */
+        private List<HistoryEntry> entries = new ArrayList<>();
+
+        /**
+         * This method replaces the entries listed.
+         *
+         * @param entries the entries
+         */
+        private void setEntries(List<HistoryEntry> entries) {
+            this.entries = entries;
+            fireTableDataChanged();
+        }
+
+        /**
+         * This method returns the entry of a row.
+         *
+         * @param row the row index
+         * @return the entry
+         */
+        private HistoryEntry getEntry(int row) {
+            return entries.get(row);
+        }
+
+        /**
+         * This method returns the number of entries listed.
+         *
+         * @return the row count
+         */
+        @Override
+        public int getRowCount() {
+            return entries.size();
+        }
+
+        /**
+         * This method returns the number of columns.
+         *
+         * @return the column count
+         */
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        /**
+         * This method returns the name of a column.
+         *
+         * @param column the column index
+         * @return the column name
+         */
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        /**
+         * This method returns the value shown in a cell.
+         *
+         * @param row the row index
+         * @param column the column index
+         * @return the cell value
+         */
+        @Override
+        public Object getValueAt(int row, int column) {
+            HistoryEntry entry = entries.get(row);
+            switch (column) {
+                case 0:
+                    return timeFormat.format(new Date(entry.getTime()));
+                case 1:
+                    return entry.getDatabase();
+                case 2:
+                    return entry.getStatus();
+                case 3:
+                    return entry.getRows();
+                case 4:
+                    return entry.getElapsedMillis();
+                default:
+                    String query = entry.getQuery().trim().replaceAll("\\s+", " ");
+                    return query.length() > QUERY_PREVIEW_LENGTH
+                            ? query.substring(0, QUERY_PREVIEW_LENGTH) + "..." : query;
+            }
+        }
+    }
+}
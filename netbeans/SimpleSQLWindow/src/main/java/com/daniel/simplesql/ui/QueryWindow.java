@@ -109,6 +109,91 @@ public class QueryWindow extends JFrame {
      */
     public static final String RUN_QUERY_COMMAND = "Run Query";
 
+    /**
+     * The cancel-query command
+     */
+    public static final String CANCEL_QUERY_COMMAND = "Cancel Query";
+
+    /**
+     * The options menu title
+     */
+    public static final String OPTIONS_MENU_TITLE = "Options";
+
+    /**
+     * The title of the file menu
+     */
+    public static final String FILE_MENU_TITLE = "File";
+
+    /**
+     * The title of the session menu
+     */
+    public static final String SESSION_MENU_TITLE = "Session";
+
+    /**
+     * The persistent-session command
+     */
+    public static final String SESSION_COMMAND = "Persistent Session";
+
+    /**
+     * The begin-transaction command
+     */
+    public static final String BEGIN_COMMAND = "Begin Transaction";
+
+    /**
+     * The commit command
+     */
+    public static final String COMMIT_COMMAND = "Commit";
+
+    /**
+     * The rollback command
+     */
+    public static final String ROLLBACK_COMMAND = "Rollback";
+
+    /**
+     * The run-script-file command
+     */
+    public static final String RUN_SCRIPT_COMMAND = "Run Script File...";
+
+    /**
+     * The query-history command
+     */
+    public static final String HISTORY_COMMAND = "Query History...";
+
+    /**
+     * The export command
+     */
+    public static final String EXPORT_COMMAND = "Export Query Results...";
+
+    /**
+     * The set-timeout command
+     */
+    public static final String SET_TIMEOUT_COMMAND = "Query Timeout...";
+
+    /**
+     * The set-fetch-mode command
+     */
+    public static final String SET_FETCH_COMMAND = "Row Fetching...";
+
+    /**
+     * The set-result-memory command
+     */
+    public static final String SET_MEMORY_COMMAND = "Result Memory...";
+
+    /**
+     * The result-cache command
+     */
+    public static final String RESULT_CACHE_COMMAND = "Result Cache...";
+
+    /**
+     * The batch-execution command
+     */
+    public static final String BATCH_COMMAND = "Batch Execution...";
+
+    /**
+     * The parallel-execution command
+     */
+    public static final String PARALLEL_COMMAND = "Parallel Execution...";
+
     /**
      * The constructor calls the super constructor.
      *
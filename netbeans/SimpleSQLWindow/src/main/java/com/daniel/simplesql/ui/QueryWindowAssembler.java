@@ -16,22 +16,41 @@
 package com.daniel.simplesql.ui;
 
 import com.daniel.simplesql.controller.QueryListener;
+import com.daniel.simplesql.logic.BackgroundExecutor;
+import com.daniel.simplesql.logic.ConnectionWarmupRunner;
 import com.daniel.simplesql.model.ConnectionProperties;
+import static com.daniel.simplesql.ui.QueryWindow.BATCH_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.BEGIN_COMMAND;
 import static com.daniel.simplesql.ui.QueryWindow.BLUE_VALUE;
 import static com.daniel.simplesql.ui.QueryWindow.BUTTONS_BORDER_TITLE;
+import static com.daniel.simplesql.ui.QueryWindow.CANCEL_QUERY_COMMAND;
 import static com.daniel.simplesql.ui.QueryWindow.CENTER_PANEL_WIDTH;
 import static com.daniel.simplesql.ui.QueryWindow.CHANGE_CONNECTION_COMMAND;
 import static com.daniel.simplesql.ui.QueryWindow.CLEAR_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.COMMIT_COMMAND;
 import static com.daniel.simplesql.ui.QueryWindow.EXIT_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.EXPORT_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.FILE_MENU_TITLE;
 import static com.daniel.simplesql.ui.QueryWindow.GREEN_VALUE;
 import static com.daniel.simplesql.ui.QueryWindow.GUI_TITLE_STRING;
+import static com.daniel.simplesql.ui.QueryWindow.HISTORY_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.OPTIONS_MENU_TITLE;
+import static com.daniel.simplesql.ui.QueryWindow.PARALLEL_COMMAND;
 import static com.daniel.simplesql.ui.QueryWindow.PILLAR_WIDTH;
 import static com.daniel.simplesql.ui.QueryWindow.QUERIES_TITLE;
 import static com.daniel.simplesql.ui.QueryWindow.QUERY_WINDOW_HEIGHT;
 import static com.daniel.simplesql.ui.QueryWindow.QUERY_WINDOW_WIDTH;
 import static com.daniel.simplesql.ui.QueryWindow.RED_VALUE;
 import static com.daniel.simplesql.ui.QueryWindow.RESULTS_TITLE;
+import static com.daniel.simplesql.ui.QueryWindow.RESULT_CACHE_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.ROLLBACK_COMMAND;
 import static com.daniel.simplesql.ui.QueryWindow.RUN_QUERY_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.RUN_SCRIPT_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.SESSION_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.SESSION_MENU_TITLE;
+import static com.daniel.simplesql.ui.QueryWindow.SET_FETCH_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.SET_MEMORY_COMMAND;
+import static com.daniel.simplesql.ui.QueryWindow.SET_TIMEOUT_COMMAND;
 import static com.daniel.simplesql.ui.QueryWindow.WELCOME;
 import java.awt.BorderLayout;
 import java.awt.Color;
@@ -47,8 +66,12 @@ import java.awt.geom.Point2D;
 import javax.swing.BorderFactory;
 import javax.swing.GroupLayout;
 import javax.swing.JButton;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
+import javax.swing.JMenuItem;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTabbedPane;
@@ -78,7 +101,7 @@ public class QueryWindowAssembler implements WindowAssembler {
     /**
      * The display area for results
      */
-    private JTextArea displayTextArea;
+    private ConsoleTextArea displayTextArea;
 
     /**
      * The action listener for the query window
@@ -96,13 +119,17 @@ public class QueryWindowAssembler implements WindowAssembler {
 
     /**
      * This assembleWindow implementation creates the look and feel of the query
-     * window and assigns the action listener.
+     * window and assigns the action listener. The connection pool is warmed
+     * in the background meanwhile.
      *
      * @return the query window
      */
     @Override
     public JFrame assembleWindow() {
 
+        // the pool is readied while the components below are built
+        BackgroundExecutor.getInstance().submit(new ConnectionWarmupRunner(properties));
+
         queryTextArea = new JTextArea(20, 30);
         queryTextArea.setEditable(true);
         queryTextArea.setEnabled(true);
@@ -116,13 +143,14 @@ public class QueryWindowAssembler implements WindowAssembler {
         tabbedPane.setTabLayoutPolicy(JTabbedPane.SCROLL_TAB_LAYOUT);
         resultsPanel.add(tabbedPane);
 
-        displayTextArea = new JTextArea(20, 30);
+        displayTextArea = new ConsoleTextArea(20, 30);
         displayTextArea.setEditable(false);
         displayTextArea.setEnabled(false);
         displayTextArea.setBackground(Color.BLACK);
         displayTextArea.setForeground(Color.YELLOW);
         displayTextArea.setDisabledTextColor(Color.YELLOW);
-        queryListener = new QueryListener(queryTextArea, properties, tabbedPane);
+        DisplayManager displayManager = new DisplayManager(new GuiOutputStream(displayTextArea));
+        queryListener = new QueryListener(queryTextArea, properties, tabbedPane, displayManager);
 
         QueryWindow queryWindow = new QueryWindow(WELCOME);
         queryWindow.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -136,10 +164,85 @@ public class QueryWindowAssembler implements WindowAssembler {
         queryWindow.add(centerPanel, BorderLayout.CENTER);
         queryWindow.add(new Pillar(), BorderLayout.EAST);
         queryWindow.add(new ButtonPanel(), BorderLayout.SOUTH);
+        queryWindow.setJMenuBar(createMenuBar());
 
         return queryWindow;
     }
 
+    /**
+     * This method creates the menu bar holding the file commands and the
+     * query options.
+     *
+     * @return the menu bar
+     */
+    private JMenuBar createMenuBar() {
+
+        JMenu optionsMenu = new JMenu(OPTIONS_MENU_TITLE);
+        JMenuItem timeoutItem = new JMenuItem(SET_TIMEOUT_COMMAND);
+        timeoutItem.setActionCommand(SET_TIMEOUT_COMMAND);
+        timeoutItem.addActionListener(queryListener);
+        optionsMenu.add(timeoutItem);
+        JMenuItem fetchItem = new JMenuItem(SET_FETCH_COMMAND);
+        fetchItem.setActionCommand(SET_FETCH_COMMAND);
+        fetchItem.addActionListener(queryListener);
+        optionsMenu.add(fetchItem);
+        JMenuItem memoryItem = new JMenuItem(SET_MEMORY_COMMAND);
+        memoryItem.setActionCommand(SET_MEMORY_COMMAND);
+        memoryItem.addActionListener(queryListener);
+        optionsMenu.add(memoryItem);
+        JMenuItem cacheItem = new JMenuItem(RESULT_CACHE_COMMAND);
+        cacheItem.setActionCommand(RESULT_CACHE_COMMAND);
+        cacheItem.addActionListener(queryListener);
+        optionsMenu.add(cacheItem);
+        JMenuItem batchItem = new JMenuItem(BATCH_COMMAND);
+        batchItem.setActionCommand(BATCH_COMMAND);
+        batchItem.addActionListener(queryListener);
+        optionsMenu.add(batchItem);
+        JMenuItem parallelItem = new JMenuItem(PARALLEL_COMMAND);
+        parallelItem.setActionCommand(PARALLEL_COMMAND);
+        parallelItem.addActionListener(queryListener);
+        optionsMenu.add(parallelItem);
+
+        JMenu fileMenu = new JMenu(FILE_MENU_TITLE);
+        JMenuItem scriptItem = new JMenuItem(RUN_SCRIPT_COMMAND);
+        scriptItem.setActionCommand(RUN_SCRIPT_COMMAND);
+        scriptItem.addActionListener(queryListener);
+        fileMenu.add(scriptItem);
+        JMenuItem historyItem = new JMenuItem(HISTORY_COMMAND);
+        historyItem.setActionCommand(HISTORY_COMMAND);
+        historyItem.addActionListener(queryListener);
+        fileMenu.add(historyItem);
+        JMenuItem exportItem = new JMenuItem(EXPORT_COMMAND);
+        exportItem.setActionCommand(EXPORT_COMMAND);
+        exportItem.addActionListener(queryListener);
+        fileMenu.add(exportItem);
+
+        JMenu sessionMenu = new JMenu(SESSION_MENU_TITLE);
+        JCheckBoxMenuItem sessionItem = new JCheckBoxMenuItem(SESSION_COMMAND);
+        sessionItem.setActionCommand(SESSION_COMMAND);
+        sessionItem.addActionListener(queryListener);
+        sessionMenu.add(sessionItem);
+        sessionMenu.addSeparator();
+        JMenuItem beginItem = new JMenuItem(BEGIN_COMMAND);
+        beginItem.setActionCommand(BEGIN_COMMAND);
+        beginItem.addActionListener(queryListener);
+        sessionMenu.add(beginItem);
+        JMenuItem commitItem = new JMenuItem(COMMIT_COMMAND);
+        commitItem.setActionCommand(COMMIT_COMMAND);
+        commitItem.addActionListener(queryListener);
+        sessionMenu.add(commitItem);
+        JMenuItem rollbackItem = new JMenuItem(ROLLBACK_COMMAND);
+        rollbackItem.setActionCommand(ROLLBACK_COMMAND);
+        rollbackItem.addActionListener(queryListener);
+        sessionMenu.add(rollbackItem);
+
+        JMenuBar menuBar = new JMenuBar();
+        menuBar.add(fileMenu);
+        menuBar.add(optionsMenu);
+        menuBar.add(sessionMenu);
+        return menuBar;
+    }
+
     /**
      * The title panel contains the name of the program.
      *
@@ -232,10 +335,13 @@ public class QueryWindowAssembler implements WindowAssembler {
             setBorder(titledBorder);
             // wrap a scrollpane around text area
             JScrollPane scrollPane = new JScrollPane(queryTextArea);
-            displayTextArea.setAutoscrolls(true);
             scrollPane.setPreferredSize(new Dimension(200, 200));
+            JScrollPane displayScrollPane = new JScrollPane(displayTextArea);
+            displayTextArea.setAutoscrolls(true);
+            displayScrollPane.setPreferredSize(new Dimension(200, 200));
 
             add(scrollPane);
+            add(displayScrollPane);
         }
 
         /**
@@ -378,9 +484,9 @@ public class QueryWindowAssembler implements WindowAssembler {
     }
 
     /**
-     * The button panel holds the 4 buttons corresponding to the program
-     * functions of program exit, changing connection, clearing results, and
-     * running a query.
+     * The button panel holds the 5 buttons corresponding to the program
+     * functions of program exit, changing connection, clearing results,
+     * cancelling a query, and running a query.
      *
      * @author Bryan Daniel
      */
@@ -402,7 +508,7 @@ public class QueryWindowAssembler implements WindowAssembler {
          * This method sets the necessary values for the button panel.
          */
         private void setValues() {
-            setLayout(new GridLayout(1, 4));
+            setLayout(new GridLayout(1, 5));
             TitledBorder titledBorder;
             titledBorder
                     = BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(),
@@ -419,6 +525,9 @@ public class QueryWindowAssembler implements WindowAssembler {
             //The button to clear results
             JButton fileAndDbButton = new QueryWindowButton(CLEAR_COMMAND);
 
+            //The button to cancel the running query
+            JButton cancelButton = new QueryWindowButton(CANCEL_QUERY_COMMAND);
+
             //The button to execute the statements in the input window
             JButton queryButton = new QueryWindowButton(RUN_QUERY_COMMAND);
 
@@ -432,17 +541,18 @@ public class QueryWindowAssembler implements WindowAssembler {
 
             //These statements set up the horizontal and vertical grouping for the panel
             buttonGroup.setHorizontalGroup(buttonGroup.createSequentialGroup().addComponent(exitButton).addComponent(changeConnectionButton)
-                    .addComponent(fileAndDbButton).addComponent(queryButton).addGroup(buttonGroup.createParallelGroup(GroupLayout.Alignment.CENTER)));
+                    .addComponent(fileAndDbButton).addComponent(cancelButton).addComponent(queryButton).addGroup(buttonGroup.createParallelGroup(GroupLayout.Alignment.CENTER)));
 
             buttonGroup.setVerticalGroup(buttonGroup.createSequentialGroup().addGroup(buttonGroup.createParallelGroup(GroupLayout.Alignment.CENTER)
-                    .addComponent(exitButton).addComponent(changeConnectionButton).addComponent(fileAndDbButton).addComponent(queryButton)));
+                    .addComponent(exitButton).addComponent(changeConnectionButton).addComponent(fileAndDbButton).addComponent(cancelButton).addComponent(queryButton)));
 
-            buttonGroup.linkSize(SwingConstants.HORIZONTAL, exitButton, changeConnectionButton, fileAndDbButton, queryButton);
-            buttonGroup.linkSize(SwingConstants.VERTICAL, exitButton, changeConnectionButton, fileAndDbButton, queryButton);
+            buttonGroup.linkSize(SwingConstants.HORIZONTAL, exitButton, changeConnectionButton, fileAndDbButton, cancelButton, queryButton);
+            buttonGroup.linkSize(SwingConstants.VERTICAL, exitButton, changeConnectionButton, fileAndDbButton, cancelButton, queryButton);
 
             add(exitButton);
             add(changeConnectionButton);
             add(fileAndDbButton);
+            add(cancelButton);
             add(queryButton);
         }
 
@@ -15,6 +15,9 @@
  */
 package com.daniel.simplesql.util;
 
+import com.daniel.simplesql.model.ConnectionProperties;
+import com.daniel.simplesql.model.FetchMode;
+import com.daniel.simplesql.model.QueryOptions;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -28,13 +31,140 @@ import java.util.logging.Logger;
  * @author Bryan Daniel
  */
 public class DatabaseUtil {
-    
+
+    /**
+     * The number of rows fetched per round trip in cursor mode when no size is
+     * configured
+     */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    /**
+     * The time in seconds allowed for opening a connection when no timeout is
+     * configured
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10;
+
     /**
      * Private constructor - not called
      */
     public DatabaseUtil(){        
     }
 
+    /**
+     * This utility method builds the JDBC connection string for the given
+     * connection properties, or returns their complete JDBC URL if one is
+     * set.
+     *
+     * @param properties the database connection properties
+     * @return the connection string
+     */
+    public static String buildConnectionString(ConnectionProperties properties) {
+        String jdbcUrl = properties.getProperty(ConnectionProperties.JDBC_URL);
+        if (jdbcUrl != null && !jdbcUrl.trim().isEmpty()) {
+            return jdbcUrl.trim();
+        }
+        StringBuilder connectionString = new StringBuilder();
+        connectionString.append(properties.getProperty(ConnectionProperties.DRIVER_STRING));
+        connectionString.append(properties.getProperty(ConnectionProperties.HOST));
+        connectionString.append(":");
+        connectionString.append(properties.getProperty(ConnectionProperties.PORT));
+        connectionString.append("/");
+        connectionString.append(properties.getProperty(ConnectionProperties.DATABASE_NAME));
+        connectionString.append("?allowMultiQueries=true");
+        // only affects executeBatch, which is then sent as multi-statement packets
+        connectionString.append("&rewriteBatchedStatements=true");
+        // a failed batch statement stops the batch instead of the rest running unreported
+        connectionString.append("&continueBatchOnError=false");
+        // the driver otherwise waits on an unreachable server for the OS timeout
+        connectionString.append("&connectTimeout=").append(1000L * getConnectTimeout(properties));
+        if (properties.getFetchMode() == FetchMode.CURSOR) {
+            connectionString.append("&useCursorFetch=true");
+        }
+        String parameters = properties.getProperty(ConnectionProperties.URL_PARAMETERS);
+        if (parameters != null && !parameters.trim().isEmpty()) {
+            connectionString.append("&").append(parameters.trim());
+        }
+        return connectionString.toString();
+    }
+
+    /**
+     * This utility method returns the time allowed for opening a connection
+     * with the given properties.
+     *
+     * @param properties the database connection properties
+     * @return the connect timeout in seconds
+     */
+    public static int getConnectTimeout(ConnectionProperties properties) {
+        return Math.max(1, properties.getIntProperty(ConnectionProperties.CONNECT_TIMEOUT,
+                DEFAULT_CONNECT_TIMEOUT));
+    }
+
+    /**
+     * This utility method creates a statement for running several statements
+     * one after another, such as those of a script, configured for the fetch
+     * mode of the query options or of the connection. Cursor mode, which needs
+     * a prepared statement per statement, streams instead.
+     *
+     * @param connection the connection
+     * @param properties the database connection properties
+     * @param options the query options
+     * @return the statement
+     * @throws SQLException if the statement cannot be created
+     */
+    public static Statement createStatement(Connection connection,
+            ConnectionProperties properties, QueryOptions options) throws SQLException {
+        return createStatement(connection, null, properties, options);
+    }
+
+    /**
+     * This utility method creates the statement for a run, configured for the fetch
+     * mode of the query options or, if the options do not set one, of the
+     * connection. Streaming and cursor modes keep the driver from buffering
+     * the whole result before the first row is returned.
+     *
+     * @param connection the connection
+     * @param queryString the query string
+     * @param properties the database connection properties
+     * @param options the query options
+     * @return the statement
+     * @throws SQLException if the statement cannot be created
+     */
+    public static Statement createStatement(Connection connection, String queryString,
+            ConnectionProperties properties, QueryOptions options) throws SQLException {
+
+        FetchMode mode = options.getFetchMode() != null
+                ? options.getFetchMode() : properties.getFetchMode();
+        String singleStatement = SqlUtil.stripTrailingDelimiter(queryString);
+
+        // cursors need server-side prepared statements, which only the
+        // connection string enables and which cannot hold several statements
+        if (mode == FetchMode.CURSOR && (properties.getFetchMode() != FetchMode.CURSOR
+                || singleStatement == null || singleStatement.isEmpty())) {
+            mode = FetchMode.STREAMING;
+        }
+
+        Statement statement;
+        switch (mode) {
+            case STREAMING:
+                statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                // the MySQL driver streams row by row only for this fetch size
+                statement.setFetchSize(Integer.MIN_VALUE);
+                break;
+            case CURSOR:
+                statement = connection.prepareStatement(singleStatement,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(options.getFetchSize() > 0 ? options.getFetchSize()
+                        : properties.getIntProperty(ConnectionProperties.FETCH_SIZE,
+                                DEFAULT_FETCH_SIZE));
+                break;
+            default:
+                statement = connection.createStatement();
+                break;
+        }
+        return statement;
+    }
+
     /**
      * This utility method closes the given result set.
      *
@@ -0,0 +1,535 @@
+/*
+ * Copyright 2017 Bryan Daniel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.daniel.simplesql.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This utility class provides methods for inspecting SQL text entered in the
+ * query window.
+ *
+ * @author Bryan Daniel
+ */
+public class SqlUtil {
+
+    /**
+     * The keywords that start statements which do not change data
+     */
+    private static final String[] READ_ONLY_KEYWORDS = {"SELECT", "SHOW", "DESCRIBE", "DESC",
+        "EXPLAIN", "HELP"};
+
+    /**
+     * The keywords followed by a table name
+     */
+    private static final String[] TABLE_KEYWORDS = {"FROM", "JOIN", "INTO", "UPDATE", "TABLE",
+        "TABLES"};
+
+    /**
+     * The functions whose results depend on earlier statements of the same
+     * session
+     */
+    private static final String[] SESSION_FUNCTIONS = {"LAST_INSERT_ID", "FOUND_ROWS",
+        "ROW_COUNT", "CONNECTION_ID", "GET_LOCK", "RELEASE_LOCK", "IS_USED_LOCK"};
+
+    /**
+     * The functions whose results differ from one call to the next
+     */
+    private static final String[] VOLATILE_FUNCTIONS = {"NOW", "SYSDATE", "CURDATE", "CURTIME",
+        "CURRENT_DATE", "CURRENT_TIME", "CURRENT_TIMESTAMP", "LOCALTIME", "LOCALTIMESTAMP",
+        "UTC_DATE", "UTC_TIME", "UTC_TIMESTAMP", "UNIX_TIMESTAMP", "RAND", "UUID", "UUID_SHORT",
+        "SLEEP", "BENCHMARK"};
+
+    /**
+     * Private constructor - not called
+     */
+    private SqlUtil() {
+    }
+
+    /**
+     * This utility method determines whether the given text holds exactly one
+     * SELECT statement, ignoring comments, quoted text and a trailing
+     * semicolon.
+     *
+     * @param queryString the query text
+     * @return true if the text is a single SELECT statement
+     */
+    public static boolean isSingleSelect(String queryString) {
+        String statement = stripTrailingDelimiter(queryString);
+        if (statement == null || findTopLevelDelimiter(statement) != -1) {
+            return false;
+        }
+        return startsWithKeyword(statement, "SELECT");
+    }
+
+    /**
+     * This utility method removes a trailing semicolon, and any whitespace or
+     * comments after it, from a single statement. If the text contains more
+     * than one statement, null is returned.
+     *
+     * @param queryString the query text
+     * @return the statement without its delimiter, or null
+     */
+    public static String stripTrailingDelimiter(String queryString) {
+        if (queryString == null) {
+            return null;
+        }
+        int delimiter = findTopLevelDelimiter(queryString);
+        if (delimiter == -1) {
+            return queryString.trim();
+        }
+        if (skipWhitespaceAndComments(queryString, delimiter + 1) < queryString.length()) {
+            return null;
+        }
+        return queryString.substring(0, delimiter).trim();
+    }
+
+    /**
+     * This utility method determines whether the first word of the statement,
+     * after any leading whitespace and comments, is the given keyword.
+     *
+     * @param statement the statement text
+     * @param keyword the keyword in upper case
+     * @return true if the statement starts with the keyword
+     */
+    public static boolean startsWithKeyword(String statement, String keyword) {
+        int start = skipWhitespaceAndComments(statement, 0);
+        int end = start + keyword.length();
+        if (end > statement.length()
+                || !statement.regionMatches(true, start, keyword, 0, keyword.length())) {
+            return false;
+        }
+        return end == statement.length() || !Character.isLetterOrDigit(statement.charAt(end))
+                && statement.charAt(end) != '_';
+    }
+
+    /**
+     * This utility method returns the index of the first semicolon that is not
+     * inside a quoted string, a quoted identifier or a comment.
+     *
+     * @param text the SQL text
+     * @return the index of the delimiter, or -1 if there is none
+     */
+    public static int findTopLevelDelimiter(String text) {
+        int index = 0;
+        int length = text.length();
+        while (index < length) {
+            char current = text.charAt(index);
+            if (current == '\'' || current == '"' || current == '`') {
+                index = skipQuoted(text, index);
+            } else if (isCommentStart(text, index)) {
+                index = skipComment(text, index);
+            } else if (current == ';') {
+                return index;
+            } else {
+                index++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * This utility method returns the index of the first character at or after
+     * the given index that is neither whitespace nor part of a comment.
+     *
+     * @param text the SQL text
+     * @param index the starting index
+     * @return the index of the next significant character
+     */
+    public static int skipWhitespaceAndComments(String text, int index) {
+        int length = text.length();
+        while (index < length) {
+            if (Character.isWhitespace(text.charAt(index))) {
+                index++;
+            } else if (isCommentStart(text, index)) {
+                index = skipComment(text, index);
+            } else {
+                break;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * This utility method splits the text into its statements at top-level
+     * semicolons. Statements are trimmed, and empty statements are left out.
+     *
+     * @param text the SQL text
+     * @return the statements without their delimiters
+     */
+    public static List<String> splitStatements(String text) {
+        List<String> statements = new ArrayList<>();
+        String remaining = text;
+        while (true) {
+            int delimiter = findTopLevelDelimiter(remaining);
+            String statement = (delimiter == -1 ? remaining : remaining.substring(0, delimiter)).trim();
+            if (skipWhitespaceAndComments(statement, 0) < statement.length()) {
+                statements.add(statement);
+            }
+            if (delimiter == -1) {
+                return statements;
+            }
+            remaining = remaining.substring(delimiter + 1);
+        }
+    }
+
+    /**
+     * This utility method returns a normalized form of a statement for
+     * comparing statements: comments and the trailing delimiter are removed
+     * and runs of whitespace outside quotes become a single space. Quoted text
+     * and letter case are kept, since either may change the meaning.
+     *
+     * @param statement the statement text
+     * @return the normalized text
+     */
+    public static String normalize(String statement) {
+        StringBuilder normalized = new StringBuilder(statement.length());
+        int index = 0;
+        int length = statement.length();
+        while (index < length) {
+            char current = statement.charAt(index);
+            if (current == '\'' || current == '"' || current == '`') {
+                int end = skipQuoted(statement, index);
+                normalized.append(statement, index, end);
+                index = end;
+            } else if (Character.isWhitespace(current) || isCommentStart(statement, index)) {
+                index = skipWhitespaceAndComments(statement, index);
+                if (normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+            } else if (current == ';' && skipWhitespaceAndComments(statement, index + 1) == length) {
+                break;
+            } else {
+                normalized.append(current);
+                index++;
+            }
+        }
+        int end = normalized.length();
+        while (end > 0 && normalized.charAt(end - 1) == ' ') {
+            end--;
+        }
+        normalized.setLength(end);
+        return normalized.toString();
+    }
+
+    /**
+     * This utility method determines whether a statement only reads data, such
+     * as a SELECT or SHOW statement.
+     *
+     * @param statement the statement text
+     * @return true if the statement does not change data or schema
+     */
+    public static boolean isReadOnly(String statement) {
+        int start = skipWhitespaceAndComments(statement, 0);
+        if (start < statement.length() && statement.charAt(start) == '(') {
+            return true;
+        }
+        for (String keyword : READ_ONLY_KEYWORDS) {
+            if (startsWithKeyword(statement, keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This utility method determines whether a statement can run on a
+     * connection of its own without changing the outcome of the other
+     * statements of a script. The statement must only read data and must not
+     * use user variables, SELECT ... INTO, locking reads or functions that
+     * depend on the session, and it must not be SHOW WARNINGS or SHOW ERRORS.
+     *
+     * @param statement the statement text
+     * @return true if the statement is independent of its session
+     */
+    public static boolean isIndependent(String statement) {
+        if (!isReadOnly(statement)) {
+            return false;
+        }
+        List<String> tokens = tokenize(statement);
+        if (tokens.size() > 1 && tokens.get(0).equalsIgnoreCase("SHOW")
+                && (tokens.get(1).equalsIgnoreCase("WARNINGS")
+                || tokens.get(1).equalsIgnoreCase("ERRORS"))) {
+            return false;
+        }
+        for (int index = 0; index < tokens.size(); index++) {
+            String token = tokens.get(index);
+            if (token.equals("@") || token.equalsIgnoreCase("INTO")
+                    || token.equalsIgnoreCase("LOCK")) {
+                return false;
+            }
+            if (token.equalsIgnoreCase("FOR") && index + 1 < tokens.size()
+                    && (tokens.get(index + 1).equalsIgnoreCase("UPDATE")
+                    || tokens.get(index + 1).equalsIgnoreCase("SHARE"))) {
+                return false;
+            }
+            for (String function : SESSION_FUNCTIONS) {
+                if (function.equalsIgnoreCase(token)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This utility method determines whether the result of a statement may be
+     * answered from the result cache. Besides being independent of its
+     * session, the statement must not call functions such as NOW() or RAND()
+     * whose results change from one run to the next.
+     *
+     * @param statement the statement text
+     * @return true if the result of the statement may be cached
+     */
+    public static boolean isCacheable(String statement) {
+        if (!isIndependent(statement)) {
+            return false;
+        }
+        for (String token : tokenize(statement)) {
+            for (String function : VOLATILE_FUNCTIONS) {
+                if (function.equalsIgnoreCase(token)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This utility method returns the names of the tables a statement refers
+     * to after FROM, JOIN, INTO, UPDATE and TABLE, in lower case and without
+     * quotes or database names. The result is an approximation meant for
+     * matching statements that may touch the same tables.
+     *
+     * @param statement the statement text
+     * @return the table names
+     */
+    public static Set<String> referencedTables(String statement) {
+        List<String> tokens = tokenize(statement);
+        Set<String> tables = new LinkedHashSet<>();
+        for (int index = 0; index < tokens.size() - 1; index++) {
+            if (!isTableKeyword(tokens.get(index))) {
+                continue;
+            }
+            // FROM a, b AS c, d names several tables
+            int next = index + 1;
+            while (next < tokens.size() && isIdentifier(tokens.get(next))) {
+                tables.add(tableName(tokens.get(next)));
+                next++;
+                if (next < tokens.size() && tokens.get(next).equalsIgnoreCase("AS")) {
+                    next++;
+                }
+                if (next < tokens.size() && isIdentifier(tokens.get(next))
+                        && !isTableKeyword(tokens.get(next))) {
+                    next++;
+                }
+                if (next < tokens.size() && tokens.get(next).equals(",")) {
+                    next++;
+                } else {
+                    break;
+                }
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * This method splits a statement into words, quoted names and single
+     * punctuation characters, leaving out comments and quoted strings.
+     *
+     * @param statement the statement text
+     * @return the tokens
+     */
+    private static List<String> tokenize(String statement) {
+        List<String> tokens = new ArrayList<>();
+        int index = 0;
+        int length = statement.length();
+        while (index < length) {
+            char current = statement.charAt(index);
+            if (current == '`') {
+                int end = skipQuoted(statement, index);
+                // a dotted name such as `db`.`table` stays one token
+                while (end + 1 < length && statement.charAt(end) == '.') {
+                    end = statement.charAt(end + 1) == '`' ? skipQuoted(statement, end + 1)
+                            : skipWord(statement, end + 1);
+                }
+                tokens.add(statement.substring(index, end));
+                index = end;
+            } else if (current == '\'' || current == '"') {
+                tokens.add("'");
+                index = skipQuoted(statement, index);
+            } else if (Character.isWhitespace(current) || isCommentStart(statement, index)) {
+                index = skipWhitespaceAndComments(statement, index);
+            } else if (isWordCharacter(current)) {
+                int end = skipWord(statement, index);
+                while (end + 1 < length && statement.charAt(end) == '.') {
+                    end = statement.charAt(end + 1) == '`' ? skipQuoted(statement, end + 1)
+                            : skipWord(statement, end + 1);
+                }
+                tokens.add(statement.substring(index, end));
+                index = end;
+            } else {
+                tokens.add(String.valueOf(current));
+                index++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * This method returns the index just past the word starting at the given
+     * index.
+     *
+     * @param text the SQL text
+     * @param index the index of the first character of the word
+     * @return the index after the word
+     */
+    private static int skipWord(String text, int index) {
+        while (index < text.length() && isWordCharacter(text.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * This method determines whether a character can be part of an unquoted
+     * name.
+     *
+     * @param character the character
+     * @return true for letters, digits, underscores and dollar signs
+     */
+    private static boolean isWordCharacter(char character) {
+        return Character.isLetterOrDigit(character) || character == '_' || character == '$';
+    }
+
+    /**
+     * This method determines whether a token is one of the keywords followed
+     * by a table name.
+     *
+     * @param token the token
+     * @return true if the token is a table keyword
+     */
+    private static boolean isTableKeyword(String token) {
+        for (String keyword : TABLE_KEYWORDS) {
+            if (keyword.equalsIgnoreCase(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This method determines whether a token can be a table name or alias.
+     *
+     * @param token the token
+     * @return true if the token is a name
+     */
+    private static boolean isIdentifier(String token) {
+        char first = token.charAt(0);
+        return first == '`' || Character.isLetter(first) || first == '_' || first == '$';
+    }
+
+    /**
+     * This method returns the table part of a possibly qualified and quoted
+     * name in lower case.
+     *
+     * @param token the name token
+     * @return the table name
+     */
+    private static String tableName(String token) {
+        String name = token;
+        int dot = name.lastIndexOf('.');
+        if (dot != -1 && dot < name.length() - 1) {
+            name = name.substring(dot + 1);
+        }
+        if (name.length() > 1 && name.charAt(0) == '`') {
+            name = name.substring(1, name.length() - 1).replace("``", "`");
+        }
+        return name.toLowerCase();
+    }
+
+    /**
+     * This method determines whether a comment starts at the given index.
+     *
+     * @param text the SQL text
+     * @param index the index to check
+     * @return true if a comment starts at the index
+     */
+    private static boolean isCommentStart(String text, int index) {
+        char current = text.charAt(index);
+        if (current == '#') {
+            return true;
+        }
+        if (index + 1 >= text.length()) {
+            return false;
+        }
+        char next = text.charAt(index + 1);
+        if (current == '/' && next == '*') {
+            return true;
+        }
+        // MySQL requires whitespace after the double dash
+        return current == '-' && next == '-'
+                && (index + 2 == text.length() || Character.isWhitespace(text.charAt(index + 2)));
+    }
+
+    /**
+     * This method returns the index just past the comment starting at the
+     * given index.
+     *
+     * @param text the SQL text
+     * @param index the index of the comment start
+     * @return the index after the comment
+     */
+    private static int skipComment(String text, int index) {
+        if (text.charAt(index) == '/') {
+            int end = text.indexOf("*/", index + 2);
+            return end == -1 ? text.length() : end + 2;
+        }
+        int end = text.indexOf('\n', index);
+        return end == -1 ? text.length() : end + 1;
+    }
+
+    /**
+     * This method returns the index just past the quoted text starting at the
+     * given index, honoring backslash escapes and doubled quotes.
+     *
+     * @param text the SQL text
+     * @param index the index of the opening quote
+     * @return the index after the closing quote
+     */
+    private static int skipQuoted(String text, int index) {
+        char quote = text.charAt(index);
+        int length = text.length();
+        index++;
+        while (index < length) {
+            char current = text.charAt(index);
+            if (current == '\\' && quote != '`') {
+                index += 2;
+            } else if (current == quote) {
+                if (index + 1 < length && text.charAt(index + 1) == quote) {
+                    index += 2;
+                } else {
+                    return index + 1;
+                }
+            } else {
+                index++;
+            }
+        }
+        return length;
+    }
+}
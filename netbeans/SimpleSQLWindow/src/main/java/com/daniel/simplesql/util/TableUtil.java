@@ -15,11 +15,26 @@
  */
 package com.daniel.simplesql.util;
 
+import com.daniel.simplesql.logic.BackgroundExecutor;
+import com.daniel.simplesql.monitor.FlightEvents;
 import java.awt.Component;
+import java.awt.FontMetrics;
+import java.awt.Insets;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.JLabel;
+import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
 import javax.swing.JTable;
-import javax.swing.table.DefaultTableColumnModel;
-import javax.swing.table.TableCellRenderer;
+import javax.swing.SwingUtilities;
 import javax.swing.table.TableColumn;
+import javax.swing.table.TableColumnModel;
+import javax.swing.table.TableModel;
 
 /**
  * This utility class contains functionality to modify result table
@@ -29,31 +44,272 @@ import javax.swing.table.TableColumn;
  */
 public class TableUtil {
 
+    /**
+     * The number of rows measured from the start of a table
+     */
+    public static final int SAMPLE_HEAD_ROWS = 100;
+
+    /**
+     * The number of rows measured from the end of a table
+     */
+    public static final int SAMPLE_TAIL_ROWS = 100;
+
+    /**
+     * The number of rows measured at random between the head and the tail
+     */
+    public static final int SAMPLE_RANDOM_ROWS = 300;
+
     /**
      * This utility method adjusts the column widths of the given table to fit
-     * the largest data element in each column.
+     * the largest data element in each column, measuring a bounded sample of
+     * rows.
      *
      * @param table the result table
      */
     public static void adjustTableColumnWidths(JTable table) {
+        adjustTableColumnWidths(table, table.getRowCount());
+    }
+
+    /**
+     * This utility method adjusts the column widths of the given table to fit
+     * the largest data element in each column, measuring a bounded sample of
+     * the first rows.
+     *
+     * @param table the result table
+     * @param maxRows the number of rows the sample is taken from
+     */
+    public static void adjustTableColumnWidths(JTable table, int maxRows) {
+        ColumnMeasure[] measures = createColumnMeasures(table);
+        int[] widths = estimateColumnWidths(table.getModel(), measures,
+                Math.min(maxRows, table.getRowCount()));
+        applyColumnWidths(table, widths);
+    }
+
+    /**
+     * This utility method adjusts the column widths of the given table like
+     * adjustTableColumnWidths, but reads and measures the sampled values off
+     * the event dispatch thread and applies the widths afterwards. The table
+     * model must not change while the widths are computed, and the widths are
+     * discarded if the table is given another model in the meantime. This
+     * must be called on the event dispatch thread.
+     *
+     * @param table the result table
+     */
+    public static void adjustTableColumnWidthsInBackground(final JTable table) {
+
+        final TableModel model = table.getModel();
+        final ColumnMeasure[] measures = createColumnMeasures(table);
+        final int rowCount = table.getRowCount();
+        BackgroundExecutor.getInstance().execute(new Runnable() {
+            @Override
+            public void run() {
+                final int[] widths;
+                try {
+                    widths = estimateColumnWidths(model, measures, rowCount);
+                } catch (RuntimeException ex) {
+                    Logger.getLogger(TableUtil.class.getName()).log(Level.INFO,
+                            "Exception occurred estimating column widths.", ex);
+                    return;
+                }
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (table.getModel() == model) {
+                            applyColumnWidths(table, widths);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * This utility method returns the indexes of the rows measured for a
+     * table: the first and last rows, and a random selection between them.
+     * If the table is small enough, every row is returned.
+     *
+     * @param rowCount the number of rows the sample is taken from
+     * @return the sampled row indexes
+     */
+    public static int[] sampleRows(int rowCount) {
+
+        int sampleSize = SAMPLE_HEAD_ROWS + SAMPLE_TAIL_ROWS + SAMPLE_RANDOM_ROWS;
+        if (rowCount <= sampleSize) {
+            int[] rows = new int[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                rows[row] = row;
+            }
+            return rows;
+        }
+
+        int[] rows = new int[sampleSize];
+        int index = 0;
+        for (int row = 0; row < SAMPLE_HEAD_ROWS; row++) {
+            rows[index++] = row;
+        }
+        for (int row = rowCount - SAMPLE_TAIL_ROWS; row < rowCount; row++) {
+            rows[index++] = row;
+        }
+
+        // seeded by the row count so the same table is always measured the same way
+        Random random = new Random(rowCount);
+        int middleRows = rowCount - SAMPLE_HEAD_ROWS - SAMPLE_TAIL_ROWS;
+        for (int sample = 0; sample < SAMPLE_RANDOM_ROWS; sample++) {
+            rows[index++] = SAMPLE_HEAD_ROWS + random.nextInt(middleRows);
+        }
+        return rows;
+    }
+
+    /**
+     * This method captures what is needed to measure the values of each
+     * column without the table: the current width of the column and the font
+     * metrics of the renderer for the column class. Columns of the same class
+     * share one measure. This must be called on the event dispatch thread.
+     *
+     * @param table the result table
+     * @return the measure of each column
+     */
+    private static ColumnMeasure[] createColumnMeasures(JTable table) {
 
         table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        Map<Class<?>, ColumnMeasure> measuresByClass = new HashMap<>();
+        ColumnMeasure[] measures = new ColumnMeasure[table.getColumnCount()];
+        for (int column = 0; column < measures.length; column++) {
+            Class<?> columnClass = table.getColumnClass(column);
+            ColumnMeasure measure = measuresByClass.get(columnClass);
+            if (measure == null) {
+                Component component = table.getDefaultRenderer(columnClass)
+                        .getTableCellRendererComponent(table, null, false, false, 0, column);
+                measure = new ColumnMeasure(component);
+                measuresByClass.put(columnClass, measure);
+            }
+            measures[column] = measure;
+        }
+        return measures;
+    }
+
+    /**
+     * This method estimates the width needed for each column from a sample of
+     * the rows of the model. The time taken depends on the number of columns
+     * and not on the number of rows.
+     *
+     * @param model the table model
+     * @param measures the measure of each column
+     * @param rowCount the number of rows the sample is taken from
+     * @return the estimated width of each column
+     */
+    private static int[] estimateColumnWidths(TableModel model, ColumnMeasure[] measures,
+            int rowCount) {
+
+        Object widthEvent = FlightEvents.beginColumnWidths();
+        int[] rows = sampleRows(rowCount);
+        int[] widths = new int[measures.length];
+        for (int column = 0; column < widths.length; column++) {
+            for (int row : rows) {
+                widths[column] = Math.max(widths[column],
+                        measures[column].measure(model.getValueAt(row, column)));
+            }
+        }
+        FlightEvents.commitColumnWidths(widthEvent, widths.length, rows.length);
+        return widths;
+    }
+
+    /**
+     * This method widens each column of the table to fit its estimated width.
+     *
+     * @param table the result table
+     * @param widths the estimated width of each column
+     */
+    private static void applyColumnWidths(JTable table, int[] widths) {
 
-        for (int columnCount = 0; columnCount < table.getColumnCount(); columnCount++) {
-            DefaultTableColumnModel columnModel = (DefaultTableColumnModel) table.getColumnModel();
+        TableColumnModel columnModel = table.getColumnModel();
+        int columns = Math.min(widths.length, columnModel.getColumnCount());
+        for (int columnCount = 0; columnCount < columns; columnCount++) {
             TableColumn column = columnModel.getColumn(columnCount);
-            
+
             // preferred width is wide enough for table header here
             int preferredColumnWidth = column.getPreferredWidth();
 
             // if data is wider than the header, the preferred width is expanded
-            for (int rowCount = 0; rowCount < table.getRowCount(); rowCount++) {
-                TableCellRenderer renderer = table.getCellRenderer(rowCount, columnCount);
-                Component component = renderer.getTableCellRendererComponent(table, 
-                        table.getValueAt(rowCount, columnCount), false, false, rowCount, columnCount);
-                preferredColumnWidth = Math.max(preferredColumnWidth, component.getPreferredSize().width);
+            if (widths[columnCount] + 2 > preferredColumnWidth) {
+                column.setPreferredWidth(widths[columnCount] + 2);
+            }
+        }
+    }
+
+    /**
+     * This utility method removes all result tabs from the tabbed pane,
+     * closing any table model that holds database or file resources.
+     *
+     * @param tabbedPane the tabbed pane holding results
+     */
+    public static void clearResultTabs(JTabbedPane tabbedPane) {
+
+        for (int tab = 0; tab < tabbedPane.getTabCount(); tab++) {
+            Component component = tabbedPane.getComponentAt(tab);
+            if (component instanceof JScrollPane) {
+                Component view = ((JScrollPane) component).getViewport().getView();
+                if (view instanceof JTable && ((JTable) view).getModel() instanceof Closeable) {
+                    try {
+                        ((Closeable) ((JTable) view).getModel()).close();
+                    } catch (IOException ex) {
+                        Logger.getLogger(TableUtil.class.getName()).log(Level.INFO,
+                                "Exception occurred closing a result table model.", ex);
+                    }
+                }
+            }
+        }
+        tabbedPane.removeAll();
+    }
+
+    /**
+     * This class measures the width of cell values of one column class from
+     * the font metrics and insets of its renderer. Renderers that do not show
+     * text are given a fixed width.
+     *
+     * @author Bryan Daniel
+     */
+    private static class ColumnMeasure {
+
+        /**
+         * The font metrics of the renderer, or null if it does not show text
+         */
+        private final FontMetrics fontMetrics;
+
+        /**
+         * The space around the text, or the fixed width of a renderer that
+         * does not show text
+         */
+        private final int padding;
+
+        /**
+         * This constructor reads the font metrics and insets of a renderer
+         * component.
+         *
+         * @param component the renderer component
+         */
+        private ColumnMeasure(Component component) {
+            if (component instanceof JLabel) {
+                Insets insets = ((JLabel) component).getInsets();
+                fontMetrics = component.getFontMetrics(component.getFont());
+                padding = insets.left + insets.right;
+            } else {
+                fontMetrics = null;
+                padding = component.getPreferredSize().width;
+            }
+        }
+
+        /**
+         * This method returns the width needed to show the given value.
+         *
+         * @param value the cell value
+         * @return the width in pixels
+         */
+        private int measure(Object value) {
+            if (fontMetrics == null || value == null) {
+                return padding;
             }
-            column.setPreferredWidth(preferredColumnWidth + 2);
+            return padding + fontMetrics.stringWidth(value.toString());
         }
     }
 }